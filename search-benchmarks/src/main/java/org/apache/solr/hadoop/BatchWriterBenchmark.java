@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
+import org.apache.solr.common.SolrInputDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures how fast the reducer side BatchWriter feeds batches of the sample documents into an
+ * EmbeddedSolrServer that writes its index to the in-process HDFS, one batch per operation (so
+ * docs/sec = score * batchSize). Each document gets a fresh unique key, so the index keeps growing
+ * as it would in a real reducer. The final commit and optimize are not measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BatchWriterBenchmark {
+
+  @Param({"100", "1000"})
+  public int batchSize;
+
+  @Param({"0", "2"})
+  public int writerThreads;
+  
+  private List<SolrInputDocument> docs;
+  private Path outputShardDir;
+  private TaskAttemptContext context;
+  private BatchWriter batchWriter;
+  private final List<SolrInputDocument> batch = new ArrayList<SolrInputDocument>();
+  private long numDocs = 0;
+  
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    docs = BenchmarkFixtures.getDocuments();
+    FileSystem fs = BenchmarkFixtures.getFileSystem();
+    Configuration conf = new Configuration(BenchmarkFixtures.getConf());
+    outputShardDir = fs.makeQualified(new Path("/benchmarks/batchwriter/" + UUID.randomUUID()));
+    EmbeddedSolrServer solr = SolrRecordWriter.createEmbeddedSolrServer(
+        new Path(BenchmarkFixtures.getSolrHomeDir().getAbsolutePath()), fs, outputShardDir);
+    context = BenchmarkFixtures.newTaskAttemptContext(conf);
+    batchWriter = new BatchWriter(solr, batchSize, context, writerThreads, 
+        SolrOutputFormat.getSolrWriterQueueSize(conf));
+  }
+  
+  @Setup(Level.Invocation)
+  public void nextBatch() {
+    // the writer threads may still be indexing the previous batch, so use new docs rather than mutating old ones
+    batch.clear();
+    for (int i = 0; i < batchSize; i++) {
+      SolrInputDocument doc = docs.get((int) (numDocs % docs.size()));
+      batch.add(BenchmarkFixtures.copy(doc, "doc" + numDocs));
+      numDocs++;
+    }
+  }
+  
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException, InterruptedException, SolrServerException {
+    batchWriter.close(context);
+    BenchmarkFixtures.getFileSystem().delete(outputShardDir, true);
+  }
+
+  @Benchmark
+  public void queueBatch() throws IOException, SolrServerException {
+    batchWriter.queueBatch(batch);
+  }
+
+}
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.solr.client.solrj.response.SolrPingResponse;
+import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+import org.apache.solr.hadoop.morphline.MorphlineMapRunner;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.cloudera.cdk.morphline.base.FaultTolerance;
+import com.cloudera.cdk.morphline.solr.DocumentLoader;
+
+/**
+ * Shared fixtures of the benchmarks: an in-process HDFS holding the sample files, and the Solr
+ * documents that the morphline of the MapReduce tests extracts from them. The fixtures are set up
+ * lazily, once per (forked) benchmark JVM.
+ * 
+ * The locations of the samples and configs can be overridden via system properties, which are
+ * resolved relative to the search-benchmarks directory by default.
+ */
+public final class BenchmarkFixtures {
+
+  public static final String DOCUMENTS_DIR = "search.benchmarks.documentsDir";
+  public static final String SOLR_HOME_DIR = "search.benchmarks.solrHomeDir";
+  public static final String MORPHLINE_FILE = "search.benchmarks.morphlineFile";
+  
+  private static final String RESOURCES_DIR = "../search-mr/src/test/resources";
+  private static final Path HDFS_DOCUMENTS_DIR = new Path("/benchmarks/test-documents");
+  
+  private static MiniDFSCluster dfsCluster;
+  private static List<Path> paths;
+  private static List<SolrInputDocument> documents;
+  
+  private BenchmarkFixtures() {}
+  
+  public static File getDocumentsDir() {
+    return new File(System.getProperty(DOCUMENTS_DIR, "../samples/test-documents"));
+  }
+  
+  public static File getSolrHomeDir() {
+    return new File(System.getProperty(SOLR_HOME_DIR, RESOURCES_DIR + "/solr/minimr"));
+  }
+  
+  public static File getMorphlineFile() {
+    return new File(System.getProperty(MORPHLINE_FILE, RESOURCES_DIR + "/test-morphlines/solrCellDocumentTypes.conf"));
+  }
+  
+  /** Returns the in-process HDFS, starting it on first use */
+  public static synchronized FileSystem getFileSystem() throws IOException {
+    if (dfsCluster == null) {
+      if (System.getProperty("test.build.data") == null) {
+        System.setProperty("test.build.data", "target/test-dir");
+      }
+      if (System.getProperty("hadoop.log.dir") == null) {
+        System.setProperty("hadoop.log.dir", "target");
+      }
+      System.setProperty("solr.hdfs.blockcache.enabled", "false");
+      Configuration conf = new Configuration();
+      conf.set("dfs.block.access.token.enable", "false");
+      conf.set("hadoop.security.authentication", "simple");
+      dfsCluster = new MiniDFSCluster(conf, 1, true, null);
+      Runtime.getRuntime().addShutdownHook(new Thread() {
+        @Override
+        public void run() {
+          dfsCluster.shutdown();
+        }
+      });
+    }
+    return dfsCluster.getFileSystem();
+  }
+  
+  /** Returns the configuration of the in-process HDFS */
+  public static Configuration getConf() throws IOException {
+    return getFileSystem().getConf();
+  }
+  
+  /** Returns the fully qualified HDFS paths of the sample files, in a deterministic order */
+  public static synchronized List<Path> getPaths() throws IOException {
+    if (paths == null) {
+      File dir = getDocumentsDir();
+      File[] files = dir.listFiles();
+      if (files == null) {
+        throw new IOException("Cannot find sample documents in " + dir.getAbsolutePath() + 
+            " - run from the search-benchmarks directory or set -D" + DOCUMENTS_DIR);
+      }
+      Arrays.sort(files);
+      FileSystem fs = getFileSystem();
+      List<Path> results = new ArrayList<Path>();
+      for (File file : files) {
+        if (file.isFile() && !file.isHidden()) {
+          Path path = fs.makeQualified(new Path(HDFS_DOCUMENTS_DIR, file.getName()));
+          fs.copyFromLocalFile(new Path(file.getAbsolutePath()), path);
+          results.add(path);
+        }
+      }
+      paths = Collections.unmodifiableList(results);
+    }
+    return paths;
+  }
+  
+  /** Returns the documents extracted from the sample files; callers must not modify them */
+  public static synchronized List<SolrInputDocument> getDocuments() throws IOException {
+    if (documents == null) {
+      Configuration conf = new Configuration(getConf());
+      conf.set(MorphlineMapRunner.MORPHLINE_FILE_PARAM, getMorphlineFile().getPath());
+      conf.setBoolean(FaultTolerance.IS_PRODUCTION_MODE, true); // skip the few samples Tika cannot parse
+      conf.setBoolean(FaultTolerance.IS_IGNORING_RECOVERABLE_EXCEPTIONS, true);
+      CollectingDocumentLoader loader = new CollectingDocumentLoader();
+      MorphlineMapRunner runner = new MorphlineMapRunner(conf, loader, getSolrHomeDir().getPath());
+      for (Path path : getPaths()) {
+        runner.map(path.toString(), conf, null);
+      }
+      runner.cleanup();
+      if (loader.docs.isEmpty()) {
+        throw new IllegalStateException("No documents extracted from " + getDocumentsDir().getAbsolutePath());
+      }
+      documents = Collections.unmodifiableList(loader.docs);
+    }
+    return documents;
+  }
+  
+  /** Returns a shallow copy of the given document, with the given unique key */
+  public static SolrInputDocument copy(SolrInputDocument doc, String id) {
+    SolrInputDocument copy = new SolrInputDocument();
+    for (SolrInputField field : doc) {
+      copy.setField(field.getName(), field.getValue(), field.getBoost());
+    }
+    copy.setField("id", id);
+    return copy;
+  }
+  
+  /** Returns a task context whose counters and status updates go nowhere */
+  public static TaskAttemptContext newTaskAttemptContext(Configuration conf) {
+    TaskAttemptContext context = Mockito.mock(TaskAttemptContext.class, new CounterAnswer());
+    Mockito.doReturn(conf).when(context).getConfiguration();
+    return context;
+  }
+  
+  /** Returns a reducer context whose counters and status updates go nowhere */
+  public static Reducer.Context newReducerContext() {
+    return Mockito.mock(Reducer.Context.class, new CounterAnswer());
+  }
+  
+  
+  ///////////////////////////////////////////////////////////////////////////////
+  // Nested classes:
+  ///////////////////////////////////////////////////////////////////////////////
+  private static final class CollectingDocumentLoader implements DocumentLoader {
+
+    private final List<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
+    
+    @Override
+    public void beginTransaction() {
+    }
+
+    @Override
+    public void load(SolrInputDocument doc) {
+      if (doc.getFieldValue("id") == null) {
+        doc.setField("id", "sample" + docs.size()); // the benchmarks need a unique key for each doc
+      }
+      docs.add(doc);
+    }
+
+    @Override
+    public void commitTransaction() {
+    }
+
+    @Override
+    public UpdateResponse rollbackTransaction() {
+      return new UpdateResponse();
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public SolrPingResponse ping() {
+      return new SolrPingResponse();
+    }
+    
+  }
+  
+  
+  ///////////////////////////////////////////////////////////////////////////////
+  // Nested classes:
+  ///////////////////////////////////////////////////////////////////////////////
+  /** Serves getCounter(group, name) from a private Counters instance, and ignores everything else */
+  private static final class CounterAnswer implements Answer {
+    
+    private final Counters counters = new Counters();
+    
+    @Override
+    public Object answer(InvocationOnMock invocation) throws Throwable {
+      Object[] args = invocation.getArguments();
+      if (invocation.getMethod().getName().equals("getCounter") && args.length == 2 && args[0] instanceof String) {
+        return counters.findCounter((String) args[0], (String) args[1]);
+      }
+      return Mockito.RETURNS_DEFAULTS.answer(invocation);
+    }
+  }
+  
+}
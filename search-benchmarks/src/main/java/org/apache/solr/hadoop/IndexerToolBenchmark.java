@@ -0,0 +1,393 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
+import net.sourceforge.argparse4j.impl.choice.RangeArgumentChoice;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.DefaultJobHistoryParser;
+import org.apache.hadoop.mapred.JobClient;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.JobHistory;
+import org.apache.hadoop.mapred.JobID;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.util.JarFinder;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.solr.client.solrj.embedded.JettySolrRunner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+
+/**
+ * End-to-end throughput benchmark for MapReduceIndexerTool. Starts the same in-process HDFS and
+ * MapReduce clusters as MorphlineBasicMiniMRTest (see {@link MiniClusters}), generates a synthetic
+ * corpus of configurable scale, runs the tool over it, and reports docs/sec and bytes/sec for each
+ * phase: listing, randomization, mapping, shuffle, reducing, tree merge and (optionally) go-live
+ * into an embedded Solr server.
+ * 
+ * The mapping, shuffle and reducing phases are the wall clock spans of the respective task
+ * attempts of the indexing job, as recorded in its job history, so they may overlap.
+ */
+public final class IndexerToolBenchmark {
+
+  private static final Logger LOG = LoggerFactory.getLogger(IndexerToolBenchmark.class);
+  
+  /** API for command line clients */
+  public static void main(String[] args) throws Exception {
+    System.exit(new IndexerToolBenchmark().run(args));
+  }
+  
+  public int run(String[] args) throws Exception {
+    ArgumentParser parser = ArgumentParsers
+      .newArgumentParser("java -cp target/benchmarks.jar " + IndexerToolBenchmark.class.getName())
+      .defaultHelp(true)
+      .description("Runs MapReduceIndexerTool on in-process HDFS and MapReduce clusters over a synthetic corpus, " +
+          "and reports docs/sec and bytes/sec for each phase of the tool.");
+    
+    parser.addArgument("--kinds")
+      .type(SyntheticCorpus.Kind.class)
+      .nargs("+")
+      .setDefault(Arrays.asList(SyntheticCorpus.Kind.values()))
+      .help("Kinds of files to generate.");
+    parser.addArgument("--files")
+      .metavar("INTEGER")
+      .type(Integer.class)
+      .choices(new RangeArgumentChoice(1, Integer.MAX_VALUE))
+      .setDefault(8)
+      .help("Number of files to generate per kind.");
+    parser.addArgument("--records-per-file")
+      .metavar("INTEGER")
+      .type(Integer.class)
+      .choices(new RangeArgumentChoice(1, Integer.MAX_VALUE))
+      .setDefault(1000)
+      .help("Number of tweets, Avro records and CSV rows per file.");
+    parser.addArgument("--document-size")
+      .metavar("BYTES")
+      .type(Integer.class)
+      .choices(new RangeArgumentChoice(1, Integer.MAX_VALUE))
+      .setDefault(8192)
+      .help("Size of each generated text file.");
+    parser.addArgument("--seed")
+      .metavar("LONG")
+      .type(Long.class)
+      .setDefault(0L)
+      .help("Seed of the corpus generator. The same seed and scale generate the same corpus.");
+    parser.addArgument("--shards")
+      .metavar("INTEGER")
+      .type(Integer.class)
+      .choices(new RangeArgumentChoice(1, Integer.MAX_VALUE))
+      .setDefault(2)
+      .help("Number of output shards to generate. Ignored with --go-live, which uses one shard.");
+    parser.addArgument("--mappers")
+      .metavar("INTEGER")
+      .type(Integer.class)
+      .help("Passed through to MapReduceIndexerTool.");
+    parser.addArgument("--reducers")
+      .metavar("INTEGER")
+      .type(Integer.class)
+      .help("Passed through to MapReduceIndexerTool.");
+    parser.addArgument("--fanout")
+      .metavar("INTEGER")
+      .type(Integer.class)
+      .help("Passed through to MapReduceIndexerTool.");
+    parser.addArgument("--go-live")
+      .action(Arguments.storeTrue())
+      .help("Merge the output shard into a Solr server embedded in this JVM.");
+    parser.addArgument("--data-nodes")
+      .metavar("INTEGER")
+      .type(Integer.class)
+      .choices(new RangeArgumentChoice(1, Integer.MAX_VALUE))
+      .setDefault(2)
+      .help("Number of HDFS data nodes.");
+    parser.addArgument("--task-trackers")
+      .metavar("INTEGER")
+      .type(Integer.class)
+      .choices(new RangeArgumentChoice(1, Integer.MAX_VALUE))
+      .setDefault(2)
+      .help("Number of MapReduce task trackers.");
+    parser.addArgument("--report")
+      .metavar("FILE")
+      .type(File.class)
+      .help("Also write the results as JSON to this file, so they can be diffed between builds.");
+    
+    Namespace ns;
+    try {
+      ns = parser.parseArgs(args);
+    } catch (ArgumentParserException e) {
+      parser.handleError(e);
+      return 1;
+    }
+    
+    System.setProperty("solr.hdfs.blockcache.enabled", "false");
+    MiniClusters clusters = new MiniClusters(ns.getInt("data_nodes"), ns.getInt("task_trackers"));
+    try {
+      return run(ns, clusters);
+    } finally {
+      clusters.shutdown();
+    }
+  }
+  
+  private int run(Namespace ns, MiniClusters clusters) throws Exception {
+    FileSystem fs = clusters.getDfsCluster().getFileSystem();
+    Path inputDir = fs.makeQualified(new Path("/benchmark/input"));
+    Path outputDir = fs.makeQualified(new Path("/benchmark/output"));
+    fs.delete(inputDir, true);
+    fs.delete(outputDir, true);
+    
+    SyntheticCorpus corpus = new SyntheticCorpus(
+        BenchmarkFixtures.getDocumentsDir(), ns.getInt("records_per_file"), ns.getInt("document_size"), ns.getLong("seed"));
+    List<SyntheticCorpus.Kind> kinds = ns.getList("kinds");
+    for (SyntheticCorpus.Kind kind : kinds) {
+      corpus.generate(kind, ns.getInt("files"), fs, inputDir);
+    }
+    LOG.info("Generated {} files with {} bytes and {} records", 
+        new Object[] {corpus.getNumFiles(), corpus.getNumBytes(), corpus.getNumRecords()});
+    
+    List<String> args = new ArrayList<String>(Arrays.asList(
+        "--morphline-file=" + BenchmarkFixtures.getMorphlineFile().getPath(),
+        "--morphline-id=morphline1",
+        "--solr-home-dir=" + BenchmarkFixtures.getSolrHomeDir().getAbsolutePath(),
+        "--output-dir=" + outputDir.toString()
+        ));
+    for (String name : new String[] {"mappers", "reducers", "fanout"}) {
+      if (ns.get(name) != null) {
+        args.add("--" + name + "=" + ns.get(name));
+      }
+    }
+    JettySolrRunner jetty = null;
+    if (ns.getBoolean("go_live")) {
+      jetty = startSolr(fs);
+      args.add("--shard-url=http://127.0.0.1:" + jetty.getLocalPort() + "/solr/collection1");
+      args.add("--go-live");
+    } else {
+      args.add("--shards=" + ns.getInt("shards"));
+    }
+    args.add(inputDir.toString());
+    
+    JobConf jobConf = clusters.getMrCluster().createJobConf();
+    jobConf.setMaxMapAttempts(1);
+    jobConf.setMaxReduceAttempts(1);
+    jobConf.setJar(JarFinder.getJar(MapReduceIndexerTool.class));
+    MapReduceIndexerTool tool = new MapReduceIndexerTool();
+    long startTime = System.currentTimeMillis();
+    int res;
+    try {
+      res = ToolRunner.run(jobConf, tool, args.toArray(new String[args.size()]));
+    } finally {
+      if (jetty != null) {
+        jetty.stop();
+      }
+    }
+    long elapsed = System.currentTimeMillis() - startTime;
+    if (res != 0) {
+      LOG.error("MapReduceIndexerTool failed with exit code {}", res);
+      return res;
+    }
+    
+    Job job = tool.indexingJob;
+    long numDocs = getCounter(job, SolrCounters.class.getName(), SolrCounters.DOCUMENTS_WRITTEN.toString());
+    long shuffleBytes = getCounter(job, "org.apache.hadoop.mapred.Task$Counter", "REDUCE_SHUFFLE_BYTES");
+    long indexBytes = fs.getContentSummary(new Path(outputDir, MapReduceIndexerTool.RESULTS_DIR)).getLength();
+    
+    List<Phase> phases = new ArrayList<Phase>();
+    addPhase(phases, "listing", tool.phaseTimes.get("listing"), numDocs, corpus.getNumBytes());
+    addPhase(phases, "randomization", tool.phaseTimes.get("randomization"), numDocs, corpus.getNumBytes());
+    long[] spans = getIndexingSpans(jobConf, job);
+    if (spans != null) {
+      addPhase(phases, "mapping", spans[0], numDocs, corpus.getNumBytes());
+      addPhase(phases, "shuffle", spans[1], numDocs, shuffleBytes);
+      addPhase(phases, "reducing", spans[2], numDocs, shuffleBytes);
+    } else {
+      addPhase(phases, "indexing", tool.phaseTimes.get("indexing"), numDocs, corpus.getNumBytes());
+    }
+    addPhase(phases, "treeMerge", tool.phaseTimes.get("treeMerge"), numDocs, indexBytes);
+    addPhase(phases, "goLive", tool.phaseTimes.get("goLive"), numDocs, indexBytes);
+    addPhase(phases, "total", elapsed, numDocs, corpus.getNumBytes());
+    
+    printReport(phases, System.out);
+    File reportFile = (File) ns.get("report");
+    if (reportFile != null) {
+      FileUtils.writeStringToFile(reportFile, toJSON(ns, corpus, phases), Charsets.UTF_8.name());
+      LOG.info("Wrote benchmark report to {}", reportFile);
+    }
+    return 0;
+  }
+  
+  /** Starts a Solr server with a single core named collection1 that keeps its index on the given HDFS */
+  private JettySolrRunner startSolr(FileSystem fs) throws Exception {
+    File solrHomeDir = new File("target/benchmark-solr");
+    FileUtils.deleteDirectory(solrHomeDir);
+    FileUtils.copyDirectory(BenchmarkFixtures.getSolrHomeDir(), new File(solrHomeDir, "collection1"));
+    FileUtils.writeStringToFile(new File(solrHomeDir, "solr.xml"), 
+        "<solr persistent=\"false\">\n" +
+        "  <cores adminPath=\"/admin/cores\" defaultCoreName=\"collection1\">\n" +
+        "    <core name=\"collection1\" instanceDir=\"collection1\"/>\n" +
+        "  </cores>\n" +
+        "</solr>\n", 
+        Charsets.UTF_8.name());
+    System.setProperty("solr.hdfs.home", fs.makeQualified(new Path("/benchmark/solr")).toString());
+    JettySolrRunner jetty = new JettySolrRunner(solrHomeDir.getAbsolutePath(), "/solr", 0);
+    jetty.start();
+    return jetty;
+  }
+  
+  private long getCounter(Job job, String group, String name) throws IOException {
+    Counter counter = job.getCounters().findCounter(group, name);
+    return counter == null ? 0 : counter.getValue();
+  }
+  
+  /**
+   * Returns the wall clock spans of the map attempts, the shuffle and sort of the reduce attempts, and
+   * the reduce calls of the reduce attempts of the given job, or null if the job history is unavailable.
+   */
+  private long[] getIndexingSpans(JobConf conf, Job job) throws InterruptedException {
+    try {
+      String historyFile = null;
+      for (int i = 0; i < 20 && historyFile == null; i++) { // the job tracker publishes the history asynchronously
+        historyFile = new JobClient(conf).getJob(JobID.downgrade(job.getJobID())).getHistoryUrl();
+        if (historyFile == null || !new Path(historyFile).getFileSystem(conf).exists(new Path(historyFile))) {
+          historyFile = null;
+          Thread.sleep(500);
+        }
+      }
+      if (historyFile == null) {
+        LOG.warn("Cannot find job history of {}", job.getJobID());
+        return null;
+      }
+      JobHistory.JobInfo info = new JobHistory.JobInfo(job.getJobID().toString());
+      DefaultJobHistoryParser.parseJobTasks(historyFile, info, new Path(historyFile).getFileSystem(conf));
+      
+      long mapStart = Long.MAX_VALUE, mapFinish = 0;
+      long reduceStart = Long.MAX_VALUE, sortFinishMax = 0, sortFinishMin = Long.MAX_VALUE, reduceFinish = 0;
+      for (JobHistory.Task task : info.getAllTasks().values()) {
+        for (JobHistory.TaskAttempt attempt : task.getTaskAttempts().values()) {
+          if (!"SUCCESS".equals(attempt.get(JobHistory.Keys.TASK_STATUS))) {
+            continue;
+          }
+          String type = attempt.get(JobHistory.Keys.TASK_TYPE);
+          long start = attempt.getLong(JobHistory.Keys.START_TIME);
+          long finish = attempt.getLong(JobHistory.Keys.FINISH_TIME);
+          if ("MAP".equals(type)) {
+            mapStart = Math.min(mapStart, start);
+            mapFinish = Math.max(mapFinish, finish);
+          } else if ("REDUCE".equals(type)) {
+            long sortFinish = attempt.getLong(JobHistory.Keys.SORT_FINISHED);
+            reduceStart = Math.min(reduceStart, start);
+            sortFinishMin = Math.min(sortFinishMin, sortFinish);
+            sortFinishMax = Math.max(sortFinishMax, sortFinish);
+            reduceFinish = Math.max(reduceFinish, finish);
+          }
+        }
+      }
+      if (mapFinish == 0 || reduceFinish == 0) {
+        LOG.warn("Incomplete job history of {}", job.getJobID());
+        return null;
+      }
+      return new long[] {mapFinish - mapStart, sortFinishMax - reduceStart, reduceFinish - sortFinishMin};
+    } catch (IOException e) {
+      LOG.warn("Cannot read job history of " + job.getJobID(), e);
+      return null;
+    }
+  }
+  
+  private void addPhase(List<Phase> phases, String name, Long millis, long docs, long bytes) {
+    if (millis != null) { // phase did not run
+      phases.add(new Phase(name, millis, docs, bytes));
+    }
+  }
+  
+  private void printReport(List<Phase> phases, PrintStream out) {
+    out.println(String.format(Locale.ROOT, "%-15s %10s %12s %15s %12s %15s", 
+        "phase", "secs", "docs", "bytes", "docs/sec", "bytes/sec"));
+    for (Phase phase : phases) {
+      out.println(String.format(Locale.ROOT, "%-15s %10.3f %12d %15d %12.1f %15.1f", 
+          phase.name, phase.millis / 1000.0, phase.docs, phase.bytes, phase.getDocsPerSec(), phase.getBytesPerSec()));
+    }
+  }
+  
+  private String toJSON(Namespace ns, SyntheticCorpus corpus, List<Phase> phases) {
+    StringBuilder buf = new StringBuilder();
+    buf.append("{\n  \"parameters\" : {");
+    String sep = "";
+    for (Map.Entry<String, Object> entry : ns.getAttrs().entrySet()) {
+      if (entry.getValue() != null) {
+        buf.append(sep).append("\n    \"").append(entry.getKey()).append("\" : \"").append(entry.getValue()).append('"');
+        sep = ",";
+      }
+    }
+    buf.append("\n  },\n");
+    buf.append("  \"corpus\" : { \"files\" : ").append(corpus.getNumFiles());
+    buf.append(", \"bytes\" : ").append(corpus.getNumBytes());
+    buf.append(", \"records\" : ").append(corpus.getNumRecords()).append(" },\n");
+    buf.append("  \"phases\" : [");
+    sep = "";
+    for (Phase phase : phases) {
+      buf.append(sep).append(String.format(Locale.ROOT, 
+          "\n    { \"phase\" : \"%s\", \"millis\" : %d, \"docs\" : %d, \"bytes\" : %d, \"docsPerSec\" : %.1f, \"bytesPerSec\" : %.1f }",
+          phase.name, phase.millis, phase.docs, phase.bytes, phase.getDocsPerSec(), phase.getBytesPerSec()));
+      sep = ",";
+    }
+    buf.append("\n  ]\n}\n");
+    return buf.toString();
+  }
+  
+  
+  ///////////////////////////////////////////////////////////////////////////////
+  // Nested classes:
+  ///////////////////////////////////////////////////////////////////////////////
+  private static final class Phase {
+    
+    private final String name;
+    private final long millis;
+    private final long docs;
+    private final long bytes;
+    
+    public Phase(String name, long millis, long docs, long bytes) {
+      this.name = name;
+      this.millis = millis;
+      this.docs = docs;
+      this.bytes = bytes;
+    }
+    
+    public double getDocsPerSec() {
+      return millis <= 0 ? 0 : docs * 1000.0 / millis;
+    }
+    
+    public double getBytesPerSec() {
+      return millis <= 0 ? 0 : bytes * 1000.0 / millis;
+    }
+  }
+  
+}
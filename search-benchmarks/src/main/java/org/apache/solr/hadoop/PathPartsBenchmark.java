@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the per file overhead of the mappers before any content is read: constructing the
+ * PathParts of a sample file and computing the document id and file status, once by asking the file
+ * system (a NameNode round trip) and once from the metadata carried in the input file list.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PathPartsBenchmark {
+
+  private Configuration conf;
+  private FileSystem fs;
+  private String[] urls;
+  private String[] lines;
+  private int next = 0;
+  
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    List<Path> paths = BenchmarkFixtures.getPaths();
+    conf = BenchmarkFixtures.getConf();
+    fs = BenchmarkFixtures.getFileSystem();
+    urls = new String[paths.size()];
+    lines = new String[paths.size()];
+    for (int i = 0; i < paths.size(); i++) {
+      urls[i] = paths.get(i).toString();
+      lines[i] = InputFileLine.format(fs.getFileStatus(paths.get(i)));
+    }
+  }
+  
+  private int nextIndex() {
+    int i = next;
+    next = (i + 1 == urls.length ? 0 : i + 1);
+    return i;
+  }
+  
+  @Benchmark
+  public long fromFileSystem() throws IOException {
+    PathParts parts = new PathParts(urls[nextIndex()], conf);
+    return parts.getId().length() + parts.getFileStatus().getLen();
+  }
+
+  @Benchmark
+  public long fromInputFileLine() throws IOException {
+    String line = lines[nextIndex()];
+    FileStatus stats = InputFileLine.getFileStatus(line);
+    PathParts parts = new PathParts(InputFileLine.getPath(line), conf, fs, stats);
+    return parts.getId().length() + parts.getFileStatus().getLen();
+  }
+
+}
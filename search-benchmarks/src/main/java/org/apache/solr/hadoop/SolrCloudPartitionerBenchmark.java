@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.Text;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.DocRouter;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the routing of the sample documents to reducers, against a synthetic compositeId
+ * collection that is laid out like the ones SolrCloud creates, one document per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SolrCloudPartitionerBenchmark {
+
+  @Param({"1", "10", "100"})
+  public int shards;
+
+  @Param({"1", "4"})
+  public int reducersPerShard;
+  
+  private final SolrCloudPartitioner partitioner = new SolrCloudPartitioner();
+  private Text[] keys;
+  private SolrInputDocumentWritable[] values;
+  private int next = 0;
+  
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    DocRouter router = DocRouter.DEFAULT;
+    List<DocRouter.Range> ranges = router.partitionRange(shards, router.fullRange());
+    Map<String, Slice> slices = new LinkedHashMap<String, Slice>();
+    for (int i = 0; i < shards; i++) {
+      Map<String, Object> props = new HashMap<String, Object>();
+      props.put(Slice.RANGE, ranges.get(i));
+      String name = "shard" + (i + 1);
+      slices.put(name, new Slice(name, new HashMap<String, Replica>(), props));
+    }
+    partitioner.setDocCollection(
+        new DocCollection("collection1", slices, new HashMap<String, Object>(), router), shards);
+    
+    List<SolrInputDocument> docs = BenchmarkFixtures.getDocuments();
+    keys = new Text[docs.size()];
+    values = new SolrInputDocumentWritable[docs.size()];
+    for (int i = 0; i < docs.size(); i++) {
+      keys[i] = new Text(docs.get(i).getFieldValue("id").toString());
+      values[i] = new SolrInputDocumentWritable(docs.get(i));
+    }
+  }
+  
+  @Benchmark
+  public int getPartition() {
+    int i = next;
+    next = (i + 1 == keys.length ? 0 : i + 1);
+    return partitioner.getPartition(keys[i], values[i], shards * reducersPerShard);
+  }
+
+}
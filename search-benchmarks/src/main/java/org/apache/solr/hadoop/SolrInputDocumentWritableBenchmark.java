@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.solr.common.SolrInputDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the JavaBin (de)serialization of the documents that the mappers emit and the reducers
+ * consume, one sample document per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SolrInputDocumentWritableBenchmark {
+
+  private SolrInputDocumentWritable[] writables;
+  private byte[][] serialized;
+  private int next = 0;
+  
+  private final DataOutputBuffer out = new DataOutputBuffer();
+  private final DataInputBuffer in = new DataInputBuffer();
+  private final SolrInputDocumentWritable reusable = new SolrInputDocumentWritable();
+  
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    List<SolrInputDocument> docs = BenchmarkFixtures.getDocuments();
+    writables = new SolrInputDocumentWritable[docs.size()];
+    serialized = new byte[docs.size()][];
+    for (int i = 0; i < docs.size(); i++) {
+      writables[i] = new SolrInputDocumentWritable(docs.get(i));
+      DataOutputBuffer buf = new DataOutputBuffer();
+      writables[i].write(buf);
+      serialized[i] = new byte[buf.getLength()];
+      System.arraycopy(buf.getData(), 0, serialized[i], 0, buf.getLength());
+    }
+  }
+  
+  private int nextIndex() {
+    int i = next;
+    next = (i + 1 == writables.length ? 0 : i + 1);
+    return i;
+  }
+
+  @Benchmark
+  public int write() throws IOException {
+    out.reset();
+    writables[nextIndex()].write(out);
+    return out.getLength();
+  }
+
+  @Benchmark
+  public SolrInputDocument read() throws IOException {
+    byte[] bytes = serialized[nextIndex()];
+    in.reset(bytes, bytes.length);
+    reusable.readFields(in);
+    return reusable.getSolrInputDocument();
+  }
+
+}
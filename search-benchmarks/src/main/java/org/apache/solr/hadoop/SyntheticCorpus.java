@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Generates a reproducible corpus of input files of configurable size for end-to-end benchmarks.
+ * The file formats are the ones that the morphline of the MapReduce tests knows how to index, and
+ * the tweet and Avro records are modelled after the samples in samples/test-documents.
+ */
+public final class SyntheticCorpus {
+  
+  /** The kinds of files that can be generated */
+  public enum Kind {
+    /** Length delimited JSON tweets, one document per tweet */
+    TWEETS,
+    /** Avro container files with the schema of sample-statuses-20120906-141433.avsc, one document per record */
+    AVRO,
+    /** CSV files, indexed by SolrCell as one document per file */
+    CSV,
+    /** Plain text files of a given size, one document per file */
+    TEXT
+  }
+  
+  private final File samplesDir;
+  private final int recordsPerFile;
+  private final int documentSize;
+  private final Random random;
+  
+  private String tweetTemplate;
+  private Schema avroSchema;
+  
+  private long numFiles = 0;
+  private long numBytes = 0;
+  private long numRecords = 0;
+  
+  private static final String[] WORDS = (
+      "the quick brown fox jumps over lazy dog hadoop solr lucene index shard reducer mapper morphline " +
+      "search query document field schema token analyzer commit merge segment tweet user status " +
+      "cluster node replica leader collection core batch stream record avro json text file").split(" ");
+  
+  private static final Pattern TWEET_ID = Pattern.compile("\"id_str\":\"[0-9]+\"");
+  private static final Pattern TWEET_TEXT = Pattern.compile("\"text\":\"[^\"]*\"");
+  
+  public SyntheticCorpus(File samplesDir, int recordsPerFile, int documentSize, long seed) {
+    this.samplesDir = samplesDir;
+    this.recordsPerFile = recordsPerFile;
+    this.documentSize = documentSize;
+    this.random = new Random(seed);
+  }
+  
+  /** Writes the given number of files of the given kind into the given directory */
+  public void generate(Kind kind, int files, FileSystem fs, Path dir) throws IOException {
+    for (int i = 0; i < files; i++) {
+      String name = kind.toString().toLowerCase(Locale.ROOT) + String.format(Locale.ROOT, "-%05d", i);
+      switch (kind) {
+        case TWEETS: 
+          writeTweets(fs, new Path(dir, name)); // no extension; detected by magic
+          break;
+        case AVRO: 
+          writeAvro(fs, new Path(dir, name + ".avro"));
+          break;
+        case CSV: 
+          writeCSV(fs, new Path(dir, name + ".csv"));
+          break;
+        case TEXT: 
+          writeText(fs, new Path(dir, name + ".txt"));
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown kind: " + kind);
+      }
+    }
+  }
+  
+  /** Returns the number of files generated so far */
+  public long getNumFiles() {
+    return numFiles;
+  }
+  
+  /** Returns the number of bytes generated so far */
+  public long getNumBytes() {
+    return numBytes;
+  }
+  
+  /** Returns the number of tweets, Avro records and text files generated so far, i.e. the expected number of docs */
+  public long getNumRecords() {
+    return numRecords;
+  }
+  
+  private void writeTweets(FileSystem fs, Path path) throws IOException {
+    if (tweetTemplate == null) {
+      String sample = FileUtils.readFileToString(new File(samplesDir, "sample-statuses-20120906-141433"), "UTF-8");
+      tweetTemplate = sample.split("\r?\n")[1]; // the first tweet; lines alternate between length and JSON
+    }
+    Writer writer = new OutputStreamWriter(fs.create(path), Charsets.UTF_8);
+    try {
+      for (int i = 0; i < recordsPerFile; i++) {
+        String tweet = replaceFirst(TWEET_ID, tweetTemplate, "\"id_str\":\"" + nextId() + "\"");
+        tweet = replaceFirst(TWEET_TEXT, tweet, "\"text\":\"" + nextWords(140) + "\"");
+        writer.write(tweet.length() + "\r\n" + tweet + "\r\n");
+        numRecords++;
+      }
+    } finally {
+      writer.close();
+    }
+    addFile(fs, path);
+  }
+  
+  private void writeAvro(FileSystem fs, Path path) throws IOException {
+    if (avroSchema == null) {
+      avroSchema = new Schema.Parser().parse(new File(samplesDir, "sample-statuses-20120906-141433.avsc"));
+    }
+    Schema schema = avroSchema;
+    DataFileWriter<GenericRecord> writer = new DataFileWriter<GenericRecord>(new GenericDatumWriter<GenericRecord>(schema));
+    OutputStream out = fs.create(path);
+    try {
+      writer.create(schema, out);
+      for (int i = 0; i < recordsPerFile; i++) {
+        GenericRecord record = new GenericData.Record(schema);
+        record.put("id", Long.toString(nextId()));
+        record.put("user_screen_name", "user" + random.nextInt(1000));
+        record.put("user_friends_count", random.nextInt(1000));
+        record.put("created_at", "1985-09-04T18:01:01Z");
+        record.put("text", nextWords(140));
+        record.put("retweet_count", random.nextInt(10));
+        record.put("retweeted", random.nextBoolean());
+        writer.append(record);
+        numRecords++;
+      }
+    } finally {
+      writer.close();
+    }
+    addFile(fs, path);
+  }
+  
+  private void writeCSV(FileSystem fs, Path path) throws IOException {
+    Writer writer = new OutputStreamWriter(fs.create(path), Charsets.UTF_8);
+    try {
+      writer.write("Age,Color,Extras,Type,Used\n");
+      for (int i = 0; i < recordsPerFile; i++) {
+        writer.write(random.nextInt(20) + "," + nextWords(5) + ",\"" + nextWords(20) + "\"," + nextWords(10) + "," 
+            + (random.nextBoolean() ? "yes" : "") + "\n");
+      }
+      numRecords++;
+    } finally {
+      writer.close();
+    }
+    addFile(fs, path);
+  }
+  
+  private void writeText(FileSystem fs, Path path) throws IOException {
+    Writer writer = new OutputStreamWriter(fs.create(path), Charsets.UTF_8);
+    try {
+      writer.write(nextWords(documentSize));
+      numRecords++;
+    } finally {
+      writer.close();
+    }
+    addFile(fs, path);
+  }
+
+  private void addFile(FileSystem fs, Path path) throws IOException {
+    numFiles++;
+    numBytes += fs.getFileStatus(path).getLen();
+  }
+  
+  private long nextId() {
+    return random.nextLong() & Long.MAX_VALUE;
+  }
+  
+  /** Returns random words up to the given length */
+  private String nextWords(int maxLength) {
+    StringBuilder buf = new StringBuilder(maxLength);
+    while (true) {
+      String word = WORDS[random.nextInt(WORDS.length)];
+      if (buf.length() + word.length() + 1 > maxLength) {
+        break;
+      }
+      if (buf.length() > 0) {
+        buf.append(' ');
+      }
+      buf.append(word);
+    }
+    return buf.toString();
+  }
+  
+  private static String replaceFirst(Pattern pattern, String str, String replacement) {
+    return pattern.matcher(str).replaceFirst(Matcher.quoteReplacement(replacement));
+  }
+  
+}
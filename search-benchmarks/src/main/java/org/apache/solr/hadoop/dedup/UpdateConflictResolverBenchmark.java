@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop.dedup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer.Context;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.hadoop.BenchmarkFixtures;
+import org.apache.solr.hadoop.HdfsFileFieldNames;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the UpdateConflictResolver implementations, one group of colliding document versions per
+ * operation. The versions of a group carry distinct, shuffled timestamps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UpdateConflictResolverBenchmark {
+
+  @Param({"1", "2", "10"})
+  public int versions;
+  
+  private final Text key = new Text();
+  private final Context context = BenchmarkFixtures.newReducerContext();
+  private final NoChangeUpdateConflictResolver noChange = new NoChangeUpdateConflictResolver();
+  private final RejectingUpdateConflictResolver rejecting = new RejectingUpdateConflictResolver();
+  private final SortingUpdateConflictResolver sorting = new SortingUpdateConflictResolver();
+  private final RetainMostRecentUpdateConflictResolver retainMostRecent = new RetainMostRecentUpdateConflictResolver();
+  private List<SolrInputDocument>[] groups;
+  private int next = 0;
+  
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    Configuration conf = new Configuration();
+    sorting.setConf(conf);
+    retainMostRecent.setConf(conf);
+    
+    List<SolrInputDocument> docs = BenchmarkFixtures.getDocuments();
+    groups = new List[docs.size()];
+    for (int i = 0; i < docs.size(); i++) {
+      SolrInputDocument[] group = new SolrInputDocument[versions];
+      for (int j = 0; j < versions; j++) {
+        SolrInputDocument version = BenchmarkFixtures.copy(docs.get(i), "doc" + i);
+        long timestamp = 1000000L + ((j * 7919L) % versions); // deterministic shuffle
+        version.setField(HdfsFileFieldNames.FILE_LAST_MODIFIED, timestamp);
+        group[j] = version;
+      }
+      groups[i] = Arrays.asList(group);
+    }
+  }
+  
+  private List<SolrInputDocument> nextGroup() {
+    int i = next;
+    next = (i + 1 == groups.length ? 0 : i + 1);
+    return groups[i];
+  }
+  
+  private void consume(Iterator<SolrInputDocument> iter, Blackhole blackhole) {
+    while (iter.hasNext()) {
+      blackhole.consume(iter.next());
+    }
+  }
+  
+  @Benchmark
+  public void noChange(Blackhole blackhole) {
+    consume(noChange.orderUpdates(key, nextGroup().iterator(), context), blackhole);
+  }
+  
+  @Benchmark
+  public void rejecting(Blackhole blackhole) {
+    // rejecting only accepts groups without collisions
+    Iterator<SolrInputDocument> iter = Collections.singletonList(nextGroup().get(0)).iterator();
+    consume(rejecting.orderUpdates(key, iter, context), blackhole);
+  }
+  
+  @Benchmark
+  public void sorting(Blackhole blackhole) {
+    consume(sorting.orderUpdates(key, nextGroup().iterator(), context), blackhole);
+  }
+  
+  @Benchmark
+  public void retainMostRecent(Blackhole blackhole) {
+    consume(retainMostRecent.orderUpdates(key, nextGroup().iterator(), context), blackhole);
+  }
+  
+}
@@ -0,0 +1,214 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.shell;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.shell.find.FindOptions;
+import org.apache.hadoop.fs.shell.find.Mapreduce;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapred.JobClient;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.NLineInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.LazyOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+
+/**
+ * Runs a {@link Find} command across a MapReduce cluster, for directory trees that are too large
+ * to traverse from a single client. The client processes the command arguments and the top
+ * levels of the tree below them, and collects the directories it would descend into next. These
+ * directories are handed out to the map tasks of a job, which parse the same expression and
+ * process everything below them (see {@link FindMapper}).
+ * 
+ * The output of the actions is written to part files in the output directory, one per map task
+ * plus one for the client, with one item per line as printed by the expression. The order of
+ * items across part files is unspecified. Each task writes its totals, such as those of -count,
+ * to the totals directory instead; the client adds them up and writes them to its own output
+ * when the expression is finished.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+class DistributedFind {
+  
+  /** Number of frontier directories handed to each map task; by default computed from the cluster size. */
+  public static final String DIRS_PER_TASK = "find.mapreduce.dirs.per.task";
+  
+  /** Prefix of the configuration keys holding the expression arguments of the job. */
+  static final String ARGS = "find.mapreduce.args";
+  
+  /** Name of the part file holding the output of the client. */
+  static final String CLIENT_PART = "part-c-00000";
+  
+  /** Directory below the output directory holding the totals of the tasks, hidden from --input-list. */
+  static final String TOTALS_DIR = "_totals";
+  
+  private final Find find;
+  private final Configuration conf;
+  
+  DistributedFind(Find find) {
+    this.find = find;
+    this.conf = find.getConf();
+  }
+  
+  /** Processes the given command arguments, and runs the job for the directory tree below them. */
+  void run(LinkedList<PathData> args) throws IOException {
+    FindOptions options = find.getOptions();
+    Path outputDir = new Path(options.getMapReduceOutputDir());
+    FileSystem fs = outputDir.getFileSystem(conf);
+    outputDir = fs.makeQualified(outputDir);
+    if(fs.exists(outputDir)) {
+      throw new IOException("Output directory already exists: " + outputDir);
+    }
+    
+    File clientOutput = File.createTempFile("find", ".txt");
+    try {
+      List<PathData> frontier;
+      PrintStream out = options.getOut();
+      PrintStream clientOut = new PrintStream(new BufferedOutputStream(new FileOutputStream(clientOutput)), false, "UTF-8");
+      options.setOut(clientOut);
+      try {
+        frontier = find.processTopLevels(args, conf.getInt(Mapreduce.CLIENT_DEPTH, 2));
+        find.getRootExpression().flush(); // the last -exec batch of the client goes to its part file
+      } finally {
+        options.setOut(out);
+        clientOut.close();
+      }
+      if(clientOut.checkError()) {
+        throw new IOException("Cannot write " + clientOutput);
+      }
+      
+      if(frontier.isEmpty()) {
+        fs.mkdirs(outputDir); // the client has seen the whole tree
+      }
+      else {
+        runJob(frontier, outputDir, fs);
+        addTaskTotals(new Path(outputDir, TOTALS_DIR), fs);
+      }
+      fs.copyFromLocalFile(new Path(clientOutput.getAbsolutePath()), new Path(outputDir, CLIENT_PART));
+    } finally {
+      clientOutput.delete();
+    }
+  }
+  
+  /** Runs a map only job that processes the directory trees below the given directories. */
+  private void runJob(List<PathData> frontier, Path outputDir, FileSystem fs) throws IOException {
+    Job job = Job.getInstance(conf);
+    job.setJobName(Find.NAME + " " + outputDir);
+    job.setJarByClass(FindMapper.class);
+    
+    LinkedList<String> expressionArgs = find.getExpressionArguments();
+    job.getConfiguration().setInt(ARGS + ".count", expressionArgs.size());
+    int i = 0;
+    for(String arg : expressionArgs) {
+      job.getConfiguration().set(ARGS + "." + (i++), arg); // args may contain commas, so no setStrings()
+    }
+    
+    // spread large and small subtrees evenly across the tasks, as neighbouring directories tend to be alike
+    Collections.shuffle(frontier, new Random(frontier.size()));
+    Path frontierFile = new Path(outputDir.getParent(), "." + outputDir.getName() + ".frontier");
+    Writer writer = new OutputStreamWriter(fs.create(frontierFile, true), "UTF-8");
+    try {
+      for(PathData dir : frontier) {
+        writer.write(dir.fs.makeQualified(dir.path).toString());
+        writer.write("\n");
+      }
+    } finally {
+      writer.close();
+    }
+    
+    int dirsPerTask = conf.getInt(DIRS_PER_TASK, -1);
+    if(dirsPerTask <= 0) {
+      JobClient jobClient = new JobClient(job.getConfiguration());
+      int slots;
+      try {
+        slots = Math.max(1, jobClient.getClusterStatus().getMaxMapTasks()); // MR1
+      } finally {
+        jobClient.close();
+      }
+      dirsPerTask = Math.max(1, (frontier.size() + 4 * slots - 1) / (4 * slots)); // a few waves for load balancing
+    }
+    
+    job.setInputFormatClass(NLineInputFormat.class);
+    NLineInputFormat.addInputPath(job, frontierFile);
+    NLineInputFormat.setNumLinesPerSplit(job, dirsPerTask);
+    job.setMapperClass(FindMapper.class);
+    job.setNumReduceTasks(0);
+    job.setMapSpeculativeExecution(false); // actions such as -exec must not run twice
+    job.setOutputKeyClass(NullWritable.class);
+    job.setOutputValueClass(NullWritable.class);
+    LazyOutputFormat.setOutputFormatClass(job, TextOutputFormat.class); // tasks write their own part files
+    FileOutputFormat.setOutputPath(job, outputDir);
+    
+    boolean success;
+    try {
+      success = job.waitForCompletion(false);
+    } catch (InterruptedException e) {
+      throw new IOException("Interrupted while waiting for " + job.getJobID(), e);
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    } finally {
+      fs.delete(frontierFile, false);
+    }
+    if(!success) {
+      throw new IOException("Distributed find failed: " + job.getJobID());
+    }
+  }
+  
+  /** Adds the totals written by the tasks to those of the client, which writes them on finish. */
+  private void addTaskTotals(Path totalsDir, FileSystem fs) throws IOException {
+    if(!fs.exists(totalsDir)) {
+      return;
+    }
+    for(FileStatus status : fs.listStatus(totalsDir)) {
+      FSDataInputStream in = fs.open(status.getPath());
+      try {
+        find.getRootExpression().addTotals(in);
+      } finally {
+        in.close();
+      }
+    }
+  }
+  
+  /** Returns the expression arguments stored in the given job configuration. */
+  static LinkedList<String> getExpressionArguments(Configuration conf) {
+    LinkedList<String> args = new LinkedList<String>();
+    int count = conf.getInt(ARGS + ".count", 0);
+    for(int i = 0; i < count; i++) {
+      args.add(conf.get(ARGS + "." + i));
+    }
+    return args;
+  }
+}
@@ -17,13 +17,38 @@
  */
 package org.apache.hadoop.fs.shell;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
@@ -32,6 +57,7 @@ import org.apache.hadoop.fs.shell.CommandFormat;
 import org.apache.hadoop.fs.shell.FsCommand;
 import org.apache.hadoop.fs.shell.PathData;
 import org.apache.hadoop.fs.shell.find.*;
+import org.apache.hadoop.util.Progressable;
 
 /**
  * Count the number of directories, files, bytes, quota, and remaining quota.
@@ -58,28 +84,51 @@ public class Find extends FsCommand {
   private static final Class[] EXPRESSIONS = {
     Atime.class,
     Blocksize.class,
+    Checkpoint.class,
     ClassExpression.class,
+    CountExpression.class,
     Depth.class,
+    Du.class,
     Empty.class,
     Exec.class,
+    Execthreads.class,
     Group.class,
+    Mapreduce.class,
+    Maxruntime.class,
     Mtime.class,
     Name.class,
     Newer.class,
     Nogroup.class,
     Nouser.class,
+    PathExpression.class,
     Perm.class,
     Print.class,
     Prune.class,
     Replicas.class,
+    Resume.class,
     Size.class,
+    Summary.class,
+    Threads.class,
     Type.class,
+    Unordered.class,
     User.class,
     And.class,
     Or.class,
     Not.class,
   };
   
+  /** Size of the buffer of the output of the actions. */
+  private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+  
+  /** Maximum number of items held by prefetched listings that have not been processed yet. */
+  private static final long MAX_PREFETCHED_ITEMS = 64 * 1024;
+  
+  /** Checkpoint entry of an item still to be processed, along with everything below it. */
+  private static final char CHECKPOINT_PROCESS = 'P';
+  
+  /** Checkpoint entry of a directory whose contents have been processed, but not the directory itself. */
+  private static final char CHECKPOINT_APPLY = 'A';
+  
   /** Options for use in this command */
   private FindOptions options;
   
@@ -89,6 +138,54 @@ public class Find extends FsCommand {
   /** Set of links followed to guard against infinite loops. */
   private HashSet<PathData> linksFollowed = new HashSet<PathData>();
   
+  /** Lists directories concurrently if the -threads expression is used, otherwise null. */
+  private ExecutorService listingExecutor;
+  
+  /** Directory listings requested ahead of time, by path, in ordered concurrent mode. */
+  private Map<String, PrefetchedListing> prefetchedListings = new HashMap<String, PrefetchedListing>();
+  
+  /** Prefetched listings that were still being fetched when last checked. */
+  private List<PrefetchedListing> listingsInFlight = new LinkedList<PrefetchedListing>();
+  
+  /** Number of items held by the prefetched listings that have been fetched but not yet processed. */
+  private long prefetchedItems = 0;
+  
+  /** Levels of the directory tree being processed in ordered concurrent mode, innermost first. */
+  private LinkedList<PrefetchLevel> prefetchLevels = new LinkedList<PrefetchLevel>();
+  
+  /** Maximum number of directory listings in flight. */
+  private int listingWindow;
+  
+  /** Expression arguments as given on the command line, for re-parsing by distributed find tasks. */
+  private LinkedList<String> expressionArgs;
+  
+  /** Directories left to traverse by a distributed find, or null if the whole tree is traversed here. */
+  private List<PathData> frontier;
+  
+  /** Depth below the command arguments at which directories are added to the frontier. */
+  private int frontierDepth;
+  
+  /** Depth below the command arguments of the directory currently being listed. */
+  private int traversalDepth = 0;
+  
+  /** Reports progress while a distributed find task traverses its directories, otherwise null. */
+  private Progressable progress;
+  
+  /**
+   * Items being processed at each level of the directory tree, innermost level first, if the
+   * traversal is checkpointed or time bounded, otherwise null.
+   */
+  private LinkedList<TraversalFrame> traversalStack;
+  
+  /** Time (in milliseconds since epoch) at which a time bounded traversal is stopped. */
+  private long traversalDeadline;
+  
+  /** Time (in milliseconds since epoch) at which the next checkpoint is written. */
+  private long nextCheckpointTime;
+  
+  /** Indicates whether the traversal has been stopped after the maximum runtime. */
+  private boolean traversalStopped = false;
+  
   /** allows the command factory to be used if necessary */
   private CommandFactory commandFactory = null;
   
@@ -322,6 +419,17 @@ public class Find extends FsCommand {
     if(pathArgs.size() == 0) {
       throw new IOException("No path specified");
     }
+    expressionArgs = new LinkedList<String>(args);
+    setRootExpression(buildRootExpression(args));
+    
+    return pathArgs;
+  }
+  
+  /**
+   * Parses the given expression arguments, adding a -print action if the expression has no
+   * action of its own, and optimises the resulting expression.
+   */
+  private Expression buildRootExpression(Deque<String> args) throws IOException {
     Expression expression = parseExpression(args);
     if(!expression.isAction()) {
       Expression and = getExpression(And.class);
@@ -331,26 +439,59 @@ public class Find extends FsCommand {
       and.addChildren(children);
       expression = and;
     }
-    
-    setRootExpression(expression);
-    
-    return pathArgs;
+    expression.optimise(getOptions()); // cheap predicates first
+    return expression;
+  }
+  
+  /** Returns the expression arguments given on the command line, after the path arguments. */
+  @InterfaceAudience.Private
+  LinkedList<String> getExpressionArguments() {
+    return expressionArgs;
   }
   
   @Override
   protected void recursePath(PathData item) throws IOException {
+    item = followLink(item);
+    if(item == null || !item.stat.isDirectory()) {
+      return;
+    }
+    if(!getRootExpression().canMatchDescendants(item)) {
+      discardPrefetched(item);
+      return; // nothing below can match, so don't even list it
+    }
+    if(frontier != null && traversalDepth >= frontierDepth) {
+      discardPrefetched(item);
+      frontier.add(item); // left to the map tasks of a distributed find
+      return;
+    }
+    traversalDepth++;
+    try {
+      if(listingExecutor == null) {
+        super.recursePath(item);
+      }
+      else {
+        processPaths(item, getDirectoryContents(item));
+      }
+    } finally {
+      traversalDepth--;
+    }
+  }
+  
+  /**
+   * Returns the item the given item links to, if it is a symbolic link that should be followed,
+   * or null if following it would result in an infinite loop. Otherwise returns the given item.
+   */
+  private PathData followLink(PathData item) throws IOException {
     if(item.stat.isSymlink() && getOptions().isFollowLink()) {
       PathData linkedItem = new PathData(item.stat.getSymlink().toString(), getConf());
       if(linksFollowed.contains(item)) {
         getOptions().getErr().println("Infinite loop ignored: " + item.toString() + " -> " + linkedItem.toString());
-        return;
+        return null;
       }
       linksFollowed.add(item);
       item = linkedItem;
     }
-    if(item.stat.isDirectory()) {
-      super.recursePath(item);
-    }
+    return item;
   }
 
   /** {@inheritDoc} */
@@ -359,30 +500,491 @@ public class Find extends FsCommand {
     if(parent == null) {
       // processing a command line argument so clear the links followed
       linksFollowed.clear();
+      if(listingExecutor != null && getOptions().isUnordered() && !getOptions().isDepth() && frontier == null) {
+        for(PathData item : items) {
+          processPathsUnordered(item);
+        }
+        return;
+      }
+    }
+    PrefetchLevel level = null;
+    if(listingExecutor != null) {
+      level = new PrefetchLevel(items);
+      prefetchLevels.push(level);
     }
     Expression expr = getRootExpression();
-    for (PathData item : items) {
-      try {
-        if(getOptions().isDepth()) {
-          recursePath(item);
-          expr.apply(item);
+    TraversalFrame frame = null;
+    if(traversalStack != null && parent != null) {
+      // command arguments are tracked by processResumable
+      frame = new TraversalFrame(items, null);
+      traversalStack.push(frame);
+    }
+    try {
+      for (int i = 0; i < items.length; i++) {
+        if(frame != null && isTraversalStopped(frame, i)) {
+          return;
+        }
+        if(level != null) {
+          level.current = i;
+          prefetch(); // top up as each item is consumed
         }
-        else if (expr.apply(item).isDescend()) {
+        PathData item = items[i];
+        if(progress != null) {
+          progress.progress();
+        }
+        boolean isDescend = false;
+        try {
+          if(getOptions().isDepth()) {
+            isDescend = true;
+            recursePath(item);
+            if(traversalStopped) {
+              return; // the checkpoint applies the expression once the subtree has been finished
+            }
+            expr.apply(item);
+          }
+          else if (expr.apply(item).isDescend()) {
+            isDescend = true;
             recursePath(item);
+          }
+        } catch (IOException e) {
+          displayError(e);
+        } finally {
+          if(!isDescend) {
+            discardPrefetched(item);
+          }
         }
+      }
+    } finally {
+      if(frame != null) {
+        traversalStack.pop();
+      }
+      if(level != null) {
+        prefetchLevels.pop();
+      }
+    }
+  }
+  
+  /**
+   * Requests the listings of the directories still to be processed ahead of time, those of the
+   * innermost level first as they are needed soonest, as long as fewer than listingWindow
+   * listings are in flight and the fetched ones don't hold too many items.
+   */
+  private void prefetch() {
+    updateListingsInFlight();
+    boolean isInnermost = true;
+    for(PrefetchLevel level : prefetchLevels) {
+      // the current item of an outer level is being descended into by the levels within
+      level.next = Math.max(level.next, isInnermost ? level.current : level.current + 1);
+      isInnermost = false;
+      while(level.next < level.items.length) {
+        if(listingsInFlight.size() >= listingWindow || prefetchedItems >= MAX_PREFETCHED_ITEMS) {
+          return;
+        }
+        PathData item = level.items[level.next++];
+        if(item.stat.isDirectory() && !prefetchedListings.containsKey(item.toString()) && canMatchDescendants(item)) {
+          PrefetchedListing listing = new PrefetchedListing(listingExecutor.submit(new DirectoryLister(item)));
+          prefetchedListings.put(item.toString(), listing);
+          listingsInFlight.add(listing);
+        }
+      }
+    }
+  }
+  
+  /** Moves the listings that have been fetched out of the list of those in flight, counting their items. */
+  private void updateListingsInFlight() {
+    Iterator<PrefetchedListing> iter = listingsInFlight.iterator();
+    while(iter.hasNext()) {
+      PrefetchedListing listing = iter.next();
+      if(listing.future.isDone()) {
+        iter.remove();
+        try {
+          listing.size = listing.future.get().length;
+        } catch (CancellationException e) {
+          listing.size = 0;
+        } catch (ExecutionException e) {
+          listing.size = 0; // reported when the directory is processed
+        } catch (InterruptedException e) {
+          listing.size = 0; // can't happen, the listing is done
+        }
+        prefetchedItems += listing.size;
+      }
+    }
+  }
+  
+  /** Stops accounting for a prefetched listing that has been removed for processing or discarding. */
+  private void release(PrefetchedListing listing) {
+    if(!listingsInFlight.remove(listing)) {
+      prefetchedItems -= listing.size;
+    }
+  }
+  
+  /** Asks the root expression whether anything below the given directory can match, displaying any error. */
+  private boolean canMatchDescendants(PathData dir) {
+    try {
+      return getRootExpression().canMatchDescendants(dir);
+    } catch (IOException e) {
+      return true; // reported when the directory is processed
+    }
+  }
+  
+  /** Drops the prefetched listing of an item that turned out not to be descended into. */
+  private void discardPrefetched(PathData item) {
+    PrefetchedListing listing = prefetchedListings.remove(item.toString());
+    if(listing != null) {
+      listing.future.cancel(false);
+      release(listing);
+    }
+  }
+  
+  /** Returns the contents of the given directory, using its prefetched listing if available. */
+  private PathData[] getDirectoryContents(PathData item) throws IOException {
+    PrefetchedListing listing = prefetchedListings.remove(item.toString());
+    if(listing == null) {
+      return item.getDirectoryContents();
+    }
+    release(listing);
+    return getListing(listing.future);
+  }
+  
+  /**
+   * Processes the tree below the given command line argument, with all directories listed
+   * concurrently, and each item processed as soon as the listing of its parent completes.
+   */
+  private void processPathsUnordered(PathData root) throws IOException {
+    Deque<PathData> pendingDirs = new LinkedList<PathData>();
+    CompletionService<PathData[]> listings = new ExecutorCompletionService<PathData[]>(listingExecutor);
+    int inFlight = 0;
+    processPathUnordered(root, pendingDirs);
+    while(!pendingDirs.isEmpty() || inFlight > 0) {
+      while(!pendingDirs.isEmpty() && inFlight < listingWindow) {
+        listings.submit(new DirectoryLister(pendingDirs.poll()));
+        inFlight++;
+      }
+      PathData[] contents;
+      try {
+        contents = getListing(listings.take());
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException("Interrupted while listing directories");
       } catch (IOException e) {
         displayError(e);
+        continue;
+      } finally {
+        inFlight--;
+      }
+      for(PathData item : contents) {
+        processPathUnordered(item, pendingDirs);
+      }
+    }
+  }
+  
+  /** Applies the root expression to the given item, and queues it for listing if it is to be descended into. */
+  private void processPathUnordered(PathData item, Deque<PathData> pendingDirs) {
+    try {
+      if(getRootExpression().apply(item).isDescend()) {
+        item = followLink(item);
+        if(item != null && item.stat.isDirectory() && getRootExpression().canMatchDescendants(item)) {
+          pendingDirs.add(item);
+        }
       }
+    } catch (IOException e) {
+      displayError(e);
+    }
+  }
+  
+  /** Waits for the given directory listing, rethrowing any failure to list the directory. */
+  private PathData[] getListing(Future<PathData[]> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException("Interrupted while listing directories");
+    } catch (ExecutionException e) {
+      if(e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
     }
   }
   
   /** {@inheritDoc} */
   @Override
   protected void processArguments(LinkedList<PathData> args) throws IOException {
-    Expression expr = getRootExpression();
-    expr.initialise(getOptions());
-    super.processArguments(args);
-    expr.finish();
+    // buffer the output rather than flushing it for every line, it is flushed on finish
+    PrintStream out = getOptions().getOut();
+    PrintStream bufferedOut = new PrintStream(new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE), false, "UTF-8");
+    getOptions().setOut(bufferedOut);
+    try {
+      Expression expr = getRootExpression();
+      expr.initialise(getOptions());
+      startListingThreads();
+      try {
+        if(getOptions().getCheckpointFile() != null || getOptions().isResume() || getOptions().getMaxRuntime() >= 0) {
+          processResumable(args);
+        }
+        else if(getOptions().getMapReduceOutputDir() != null) {
+          new DistributedFind(this).run(args);
+        }
+        else {
+          super.processArguments(args);
+        }
+      } finally {
+        stopListingThreads();
+      }
+      expr.finish();
+    } finally {
+      bufferedOut.flush();
+      getOptions().setOut(out);
+    }
+  }
+  
+  /**
+   * Processes the given command arguments, or the traversal recorded in the checkpoint file if
+   * resuming, while keeping track of the items still to be processed. This allows the traversal to
+   * be checkpointed periodically, and stopped after the maximum runtime.
+   */
+  private void processResumable(LinkedList<PathData> args) throws IOException {
+    FindOptions options = getOptions();
+    if(options.getMapReduceOutputDir() != null || (options.isUnordered() && options.getThreads() > 1)) {
+      throw new IOException("-checkpoint, -resume and -maxruntime can't be combined with -mapreduce or -unordered");
+    }
+    File checkpointFile = options.getCheckpointFile() == null ? null : new File(options.getCheckpointFile());
+    if(options.isResume() && checkpointFile == null) {
+      throw new IOException("-resume requires -checkpoint");
+    }
+    boolean isResumed = options.isResume() && checkpointFile.exists();
+    TraversalFrame frame;
+    if(isResumed) {
+      frame = readCheckpoint(checkpointFile);
+    }
+    else {
+      frame = new TraversalFrame(args.toArray(new PathData[args.size()]), null);
+    }
+    
+    long now = getCurrentTime();
+    traversalDeadline = options.getMaxRuntime() < 0 ? Long.MAX_VALUE : now + 1000 * options.getMaxRuntime();
+    nextCheckpointTime = now + 1000 * getConf().getLong(Checkpoint.INTERVAL, 60);
+    traversalStopped = false;
+    traversalStack = new LinkedList<TraversalFrame>();
+    traversalStack.push(frame);
+    try {
+      for(int i = 0; i < frame.items.length && !isTraversalStopped(frame, i); i++) {
+        PathData item = frame.items[i];
+        try {
+          if(frame.isApplyOnly(i)) {
+            getRootExpression().apply(item);
+          }
+          else if(isResumed) {
+            // not a command argument, so links are only followed as they would be below one
+            super.processPathArgument(item);
+          }
+          else {
+            processArgument(item);
+          }
+        } catch (IOException e) {
+          displayError(e);
+        }
+      }
+    } finally {
+      traversalStack = null;
+    }
+    
+    if(traversalStopped) {
+      options.getErr().println("Stopped after " + options.getMaxRuntime() + " seconds"
+          + (checkpointFile == null ? "" : ", continue with -resume"));
+    }
+    else if(checkpointFile != null && checkpointFile.exists() && !checkpointFile.delete()) {
+      throw new IOException("Unable to delete checkpoint " + checkpointFile);
+    }
+  }
+  
+  /**
+   * Records the given item of the given frame as the one about to be processed, then returns
+   * whether the traversal should stop rather than processing it. Writes a checkpoint if one is
+   * due, or if the traversal stops.
+   */
+  private boolean isTraversalStopped(TraversalFrame frame, int current) throws IOException {
+    frame.current = current;
+    if(traversalStopped) {
+      return true;
+    }
+    long now = getCurrentTime();
+    if(now >= traversalDeadline) {
+      traversalStopped = true;
+      writeCheckpoint();
+      return true;
+    }
+    if(now >= nextCheckpointTime) {
+      writeCheckpoint();
+      nextCheckpointTime = now + 1000 * getConf().getLong(Checkpoint.INTERVAL, 60);
+    }
+    return false;
+  }
+  
+  /**
+   * Writes the items still to be processed to the checkpoint file, if any, in the order they would
+   * be processed. Must be called before the current item of the innermost frame is processed. The
+   * file is replaced by renaming, so that a crash can't leave a partial checkpoint behind.
+   */
+  private void writeCheckpoint() throws IOException {
+    if(getOptions().getCheckpointFile() == null) {
+      return;
+    }
+    // the items before the checkpoint must not be processed again, so complete their actions
+    getRootExpression().flush();
+    getOptions().getOut().flush();
+    File file = new File(getOptions().getCheckpointFile());
+    File tmp = new File(file.getPath() + ".tmp");
+    Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8"));
+    try {
+      boolean isInnermost = true;
+      for(TraversalFrame frame : traversalStack) {
+        int start = frame.current;
+        if(!isInnermost) {
+          // the current item of an outer frame is being descended into by the frames above
+          if(getOptions().isDepth() && !frame.isApplyOnly(start)) {
+            writeCheckpointEntry(writer, CHECKPOINT_APPLY, frame.items[start]);
+          }
+          start++;
+        }
+        for(int i = start; i < frame.items.length; i++) {
+          writeCheckpointEntry(writer, frame.isApplyOnly(i) ? CHECKPOINT_APPLY : CHECKPOINT_PROCESS, frame.items[i]);
+        }
+        isInnermost = false;
+      }
+    } finally {
+      writer.close();
+    }
+    if(!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+      throw new IOException("Unable to write checkpoint " + file);
+    }
+  }
+  
+  /** Returns the current time in milliseconds since epoch. */
+  @InterfaceAudience.Private
+  long getCurrentTime() {
+    return System.currentTimeMillis();
+  }
+  
+  /** Writes an entry of the given kind for the given item to a checkpoint. */
+  private void writeCheckpointEntry(Writer writer, char kind, PathData item) throws IOException {
+    writer.write(kind);
+    writer.write('\t');
+    writer.write(item.toString());
+    writer.write('\n');
+  }
+  
+  /**
+   * Reads the items still to be processed from the given checkpoint file. Items that no longer
+   * exist are skipped.
+   */
+  private TraversalFrame readCheckpoint(File file) throws IOException {
+    List<PathData> items = new ArrayList<PathData>();
+    List<Boolean> applyOnly = new ArrayList<Boolean>();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+    try {
+      String line;
+      while((line = reader.readLine()) != null) {
+        if(line.length() < 2 || line.charAt(1) != '\t'
+            || (line.charAt(0) != CHECKPOINT_PROCESS && line.charAt(0) != CHECKPOINT_APPLY)) {
+          throw new IOException("Invalid checkpoint " + file + ": " + line);
+        }
+        PathData item = new PathData(line.substring(2), getConf());
+        if(item.exists) {
+          items.add(item);
+          applyOnly.add(line.charAt(0) == CHECKPOINT_APPLY);
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    boolean[] flags = new boolean[applyOnly.size()];
+    for(int i = 0; i < flags.length; i++) {
+      flags[i] = applyOnly.get(i);
+    }
+    return new TraversalFrame(items.toArray(new PathData[items.size()]), flags);
+  }
+  
+  /**
+   * Processes the given command arguments and the directory tree below them down to the given
+   * depth. Returns the directories at that depth that would have been descended into, which
+   * are left to the map tasks of a distributed find.
+   */
+  @InterfaceAudience.Private
+  List<PathData> processTopLevels(LinkedList<PathData> args, int depth) throws IOException {
+    frontier = new ArrayList<PathData>();
+    frontierDepth = depth;
+    try {
+      super.processArguments(args);
+      return frontier;
+    } finally {
+      frontier = null;
+    }
+  }
+  
+  /**
+   * Prepares this command for processing the directories handed out to a distributed find task,
+   * by parsing and initialising the given expression arguments. Totals such as those of -count
+   * are left to the client, see {@link #finishSubtrees(DataOutput)}.
+   */
+  @InterfaceAudience.Private
+  void initialiseSubtrees(LinkedList<String> args, Progressable progress) throws IOException {
+    getOptions().setDeferTotals(true);
+    setRootExpression(buildRootExpression(new LinkedList<String>(args)));
+    getRootExpression().initialise(getOptions());
+    this.progress = progress;
+    startListingThreads();
+  }
+  
+  /**
+   * Processes the contents of the given directory and everything below it. The directory itself
+   * has already been processed by the client of the distributed find.
+   */
+  @InterfaceAudience.Private
+  void processSubtree(PathData dir) throws IOException {
+    linksFollowed.clear();
+    try {
+      recursePath(dir);
+    } catch (IOException e) {
+      displayError(e);
+    }
+  }
+  
+  /**
+   * Completes the processing of a distributed find task, and writes the totals of the task for
+   * the client to add up.
+   */
+  @InterfaceAudience.Private
+  void finishSubtrees(DataOutput totals) throws IOException {
+    stopListingThreads();
+    getRootExpression().finish();
+    getRootExpression().writeTotals(totals);
+  }
+  
+  /** Starts the directory listing threads if the -threads expression is used. */
+  private void startListingThreads() {
+    int threads = getOptions().getThreads();
+    if(threads > 1) {
+      listingWindow = 2 * threads; // keep the threads busy while requests are being queued
+      listingExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+        private int count = 0;
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "find-lister-" + (count++));
+          thread.setDaemon(true);
+          return thread;
+        }});
+    }
+  }
+  
+  /** Stops the directory listing threads, if any. */
+  private void stopListingThreads() {
+    if(listingExecutor != null) {
+      listingExecutor.shutdownNow();
+      listingExecutor = null;
+      prefetchedListings.clear();
+      listingsInFlight.clear();
+      prefetchedItems = 0;
+      prefetchLevels.clear();
+    }
   }
   
   /** {@inheritDoc} */
@@ -403,6 +1005,63 @@ public class Find extends FsCommand {
     return ExpressionFactory.getExpressionFactory().createExpression(expressionClass, getConf());
   }
   
+  /** Lists a directory on a listing thread. */
+  private static class DirectoryLister implements Callable<PathData[]> {
+    private final PathData dir;
+    
+    DirectoryLister(PathData dir) {
+      this.dir = dir;
+    }
+    
+    @Override
+    public PathData[] call() throws IOException {
+      return dir.getDirectoryContents();
+    }
+  }
+  
+  /** Directory listing requested ahead of time, along with the number of items it holds once fetched. */
+  private static class PrefetchedListing {
+    private final Future<PathData[]> future;
+    private int size = 0;
+    
+    PrefetchedListing(Future<PathData[]> future) {
+      this.future = future;
+    }
+  }
+  
+  /** Items of one level of an ordered concurrent traversal, and how far their listings have been requested. */
+  private static class PrefetchLevel {
+    private final PathData[] items;
+    private int current = 0;
+    private int next = 0;
+    
+    PrefetchLevel(PathData[] items) {
+      this.items = items;
+    }
+  }
+  
+  /** Items of one level of a checkpointed traversal, and the position of the item being processed. */
+  private static class TraversalFrame {
+    private final PathData[] items;
+    
+    /**
+     * Flags the directories whose contents have already been processed, so that only the
+     * expression is left to apply to them (depth first traversals only), or null if there are none.
+     */
+    private final boolean[] applyOnly;
+    
+    private int current = 0;
+    
+    TraversalFrame(PathData[] items, boolean[] applyOnly) {
+      this.items = items;
+      this.applyOnly = applyOnly;
+    }
+    
+    boolean isApplyOnly(int i) {
+      return applyOnly != null && applyOnly[i];
+    }
+  }
+  
   /** Asks the factory whether an expression is recognised. */
   private boolean isExpression(String expressionName) {
     return ExpressionFactory.getExpressionFactory().isExpression(expressionName);
@@ -0,0 +1,78 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.shell;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+
+/**
+ * Map task of a {@link DistributedFind}. Each input line names a directory that the client has
+ * already processed; the task applies the find expression to everything below it, and writes
+ * the output of the actions to a part file of its own. Totals such as those of -count are
+ * written to a file of the same name in the totals directory, for the client to add up.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+public class FindMapper extends Mapper<LongWritable, Text, NullWritable, NullWritable> {
+  
+  private Find find;
+  private PrintStream out;
+  
+  @Override
+  protected void setup(final Context context) throws IOException, InterruptedException {
+    Path file = new Path(FileOutputFormat.getWorkOutputPath(context), FileOutputFormat.getUniqueFile(context, "part", ""));
+    out = new PrintStream(new BufferedOutputStream(file.getFileSystem(context.getConfiguration()).create(file)), false, "UTF-8");
+    find = new Find();
+    find.setConf(context.getConfiguration());
+    find.out = out;
+    find.initialiseSubtrees(DistributedFind.getExpressionArguments(context.getConfiguration()), context);
+  }
+
+  @Override
+  protected void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
+    context.setStatus("Processing " + value);
+    find.processSubtree(new PathData(value.toString(), context.getConfiguration()));
+  }
+
+  @Override
+  protected void cleanup(Context context) throws IOException, InterruptedException {
+    Path file = new Path(FileOutputFormat.getWorkOutputPath(context), 
+        new Path(DistributedFind.TOTALS_DIR, FileOutputFormat.getUniqueFile(context, "part", "")));
+    FSDataOutputStream totals = file.getFileSystem(context.getConfiguration()).create(file);
+    try {
+      find.finishSubtrees(totals);
+    } finally {
+      out.close();
+      totals.close();
+    }
+    if(out.checkError()) {
+      throw new IOException("Cannot write find output");
+    }
+  }
+}
@@ -76,6 +76,30 @@ public final class And extends BaseExpression {
   public void addChildren(Deque<Expression> expressions) {
     addChildren(expressions, 2);
   }
+  /** {@inheritDoc} */
+  @Override
+  public void optimise(FindOptions options) {
+    super.optimise(options);
+    reorderChildren(And.class, options);
+  }
+  /**
+   * {@inheritDoc}
+   * A descendant can't match if one of the children can't match it, unless a child before that
+   * one may have side effects.
+   */
+  @Override
+  public boolean canMatchDescendants(PathData dir) throws IOException {
+    for(Expression child : getChildren()) {
+      if(!child.canMatchDescendants(dir)) {
+        return false;
+      }
+      if(child.isAction()) {
+        return true;
+      }
+    }
+    return true;
+  }
+
   /** Registers this expression with the specified factory. */
   public static void registerExpression(ExpressionFactory factory) throws IOException {
     factory.addClass(And.class, "-a");
@@ -17,7 +17,12 @@
  */
 package org.apache.hadoop.fs.shell.find;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
@@ -72,6 +77,15 @@ public abstract class BaseExpression implements Expression, Configurable {
     return Result.PASS;
   }
 
+  /**
+   * {@inheritDoc}
+   * Defaults to true, i.e. only expressions that know better prevent directories from being listed.
+   */
+  @Override
+  public boolean canMatchDescendants(PathData dir) throws IOException {
+    return true;
+  }
+
   /** {@inheritDoc} */
   @Override
   public void finish() throws IOException {
@@ -80,6 +94,30 @@ public abstract class BaseExpression implements Expression, Configurable {
     }
   }
   
+  /** {@inheritDoc} */
+  @Override
+  public void flush() throws IOException {
+    for(Expression child : getChildren()) {
+      child.flush();
+    }
+  }
+  
+  /** {@inheritDoc} */
+  @Override
+  public void writeTotals(DataOutput out) throws IOException {
+    for(Expression child : getChildren()) {
+      child.writeTotals(out);
+    }
+  }
+  
+  /** {@inheritDoc} */
+  @Override
+  public void addTotals(DataInput in) throws IOException {
+    for(Expression child : getChildren()) {
+      child.addTotals(in);
+    }
+  }
+  
   /** Options passed in from the {@link Find} command. */
   private FindOptions options;
   
@@ -201,6 +239,71 @@ public abstract class BaseExpression implements Expression, Configurable {
     return 0;
   }
 
+  /**
+   * {@inheritDoc}
+   * Defaults to the highest cost class of the children, or {@link Cost#ACTION} for an expression
+   * without children, so that expressions which don't declare their cost are never reordered.
+   */
+  @Override
+  public Cost getCost(FindOptions options) {
+    if(children.isEmpty()) {
+      return Cost.ACTION;
+    }
+    Cost cost = Cost.PATH;
+    for(Expression child : children) {
+      cost = cost.max(child.getCost(options));
+    }
+    return cost;
+  }
+  
+  /**
+   * Returns the cost class of an expression that needs the file status of an item, which takes
+   * an extra call to the file system if symbolic links are followed.
+   */
+  protected Cost getFileStatusCost(FindOptions options) {
+    return options.isFollowLink() ? Cost.RPC : Cost.STATUS;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void optimise(FindOptions options) {
+    for(Expression child : children) {
+      child.optimise(options);
+    }
+  }
+  
+  /**
+   * Merges the children of nested operators of the given (associative) class into the children
+   * of this expression, and sorts each run of adjacent side effect free children by ascending
+   * cost. Children with side effects, and their order relative to the other children, are left
+   * as they are.
+   */
+  protected void reorderChildren(Class<? extends BaseExpression> operatorClass, final FindOptions options) {
+    List<Expression> merged = new ArrayList<Expression>();
+    for(Expression child : children) {
+      if(operatorClass.isInstance(child)) {
+        merged.addAll(((BaseExpression) child).getChildren());
+      }
+      else {
+        merged.add(child);
+      }
+    }
+    Comparator<Expression> byCost = new Comparator<Expression>() {
+      @Override
+      public int compare(Expression expr1, Expression expr2) {
+        return expr1.getCost(options).compareTo(expr2.getCost(options));
+      }};
+    int start = 0;
+    for(int i = 0; i <= merged.size(); i++) {
+      if(i == merged.size() || merged.get(i).getCost(options) == Cost.ACTION) {
+        Collections.sort(merged.subList(start, i), byCost); // stable, so retains the typed order of equal costs
+        start = i + 1;
+      }
+    }
+    children.clear();
+    children.addAll(merged);
+  }
+
   /** {@inheritDoc} */
   @Override
   public void addChildren(Deque<Expression> exprs) {
@@ -258,15 +361,21 @@ public abstract class BaseExpression implements Expression, Configurable {
   /**
    * Returns the {@link FileStatus} from the {@link PathData} item.
    * If the current options require links to be followed then the
-   * returned file status is that of the linked file.
+   * returned file status is that of the linked file, which is only
+   * looked up once per traversal.
    * @param item PathData
    * @return FileStatus
    */
   protected FileStatus getFileStatus(PathData item) throws IOException {
     FileStatus fileStatus = item.stat;
     if(getOptions().isFollowLink() && fileStatus.isSymlink()) {
-      Path linkedFile = fileStatus.getSymlink();
-      fileStatus = getFileSystem(item).getFileStatus(linkedFile);
+      // several expressions, and many links, may need the same target so only resolve it once
+      Path linkedFile = getFileSystem(item).makeQualified(fileStatus.getSymlink());
+      fileStatus = getOptions().getLinkTargetStatus(linkedFile);
+      if(fileStatus == null) {
+        fileStatus = getFileSystem(item).getFileStatus(linkedFile);
+        getOptions().addLinkTargetStatus(linkedFile, fileStatus);
+      }
     }
     return fileStatus;
   }
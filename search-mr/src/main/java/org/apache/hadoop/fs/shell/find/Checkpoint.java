@@ -0,0 +1,78 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.shell.find;
+
+import java.io.IOException;
+import java.util.Deque;
+
+import org.apache.hadoop.fs.shell.PathData;
+
+/**
+ * Implements the -checkpoint expression for the {@link org.apache.hadoop.fs.shell.find.Find} command.
+ */
+public final class Checkpoint extends BaseExpression {
+  private static final String[] USAGE = {
+    "-checkpoint file"
+  };
+  private static final String[] HELP = {
+    "Always evaluates to true. Periodically records the part of the",
+    "directory tree still to be traversed in the local file file, so",
+    "that an interrupted find can be continued with -resume. Items",
+    "processed since the last checkpoint are processed again when",
+    "resuming. The file is deleted once the traversal completes. The",
+    "interval defaults to 60 seconds and can be changed with",
+    "-D " + Checkpoint.INTERVAL + "=seconds. Can not be combined with",
+    "-unordered or -mapreduce."
+  };
+  
+  /** Number of seconds between checkpoints. */
+  public static final String INTERVAL = "find.checkpoint.interval";
+  
+  public Checkpoint() {
+    super();
+    setUsage(USAGE);
+    setHelp(HELP);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void addArguments(Deque<String> args) {
+    addArguments(args, 1);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void initialise(FindOptions options) throws IOException {
+    super.initialise(options);
+    options.setCheckpointFile(getArgument(1));
+  }
+
+  @Override
+  public Result apply(PathData item) {
+    return Result.PASS;
+  }
+  /** {@inheritDoc} */
+  @Override
+  public Cost getCost(FindOptions options) {
+    return Cost.PATH;
+  }
+  /** Registers this expression with the specified factory. */
+  public static void registerExpression(ExpressionFactory factory) throws IOException {
+    factory.addClass(Checkpoint.class, "-checkpoint");
+  }
+}
@@ -0,0 +1,39 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.shell.find;
+
+/**
+ * Cost classes of {@link Expression}s, in ascending order of the cost of applying an expression
+ * to an item. Expressions of the classes below {@link #ACTION} are free of side effects, so the
+ * {@link And} and {@link Or} operators may evaluate them in any order.
+ */
+public enum Cost {
+  /** Only needs the path of the item, or nothing at all. */
+  PATH,
+  /** Needs the {@link org.apache.hadoop.fs.FileStatus} returned by the directory listing. */
+  STATUS,
+  /** Needs additional calls to the file system, e.g. to resolve a symbolic link. */
+  RPC,
+  /** Has side effects, such as output or pruning the tree, or is of unknown cost. */
+  ACTION;
+  
+  /** Returns the higher of the two costs. */
+  public Cost max(Cost other) {
+    return compareTo(other) >= 0 ? this : other;
+  }
+}
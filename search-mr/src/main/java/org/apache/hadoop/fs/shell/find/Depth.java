@@ -47,6 +47,11 @@ public final class Depth extends BaseExpression {
   public void initialise(FindOptions options) {
     options.setDepth(true);
   }
+  /** {@inheritDoc} */
+  @Override
+  public Cost getCost(FindOptions options) {
+    return Cost.PATH;
+  }
   /** Registers this expression with the specified factory. */
   public static void registerExpression(ExpressionFactory factory) throws IOException {
     factory.addClass(Depth.class, "-depth");
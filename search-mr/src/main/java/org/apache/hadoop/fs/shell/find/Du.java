@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.shell.find;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.shell.PathData;
+
+/**
+ * Implements the -du expression for the {@link org.apache.hadoop.fs.shell.find.Find} command.
+ */
+public final class Du extends BaseExpression {
+  private static final String[] USAGE = {
+    "-du"
+  };
+  private static final String[] HELP = {
+    "Always evaluates to true. Sums up the length of the matching",
+    "files, and the disk space they consume including replicas,",
+    "and writes both totals in bytes to standard output when the",
+    "command completes."
+  };
+  
+  private long bytes = 0;
+  private long spaceConsumed = 0;
+
+  public Du() {
+    super();
+    setUsage(USAGE);
+    setHelp(HELP);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Result apply(PathData item) throws IOException {
+    FileStatus fileStatus = getFileStatus(item);
+    if(!fileStatus.isDirectory()) {
+      bytes += fileStatus.getLen();
+      spaceConsumed += fileStatus.getLen() * fileStatus.getReplication();
+    }
+    return Result.PASS;
+  }
+  
+  /** {@inheritDoc} */
+  @Override
+  public void finish() throws IOException {
+    if(!getOptions().isDeferTotals()) {
+      getOptions().getOut().println(String.format("%18d %18d", bytes, spaceConsumed));
+    }
+  }
+  
+  /** {@inheritDoc} */
+  @Override
+  public void writeTotals(DataOutput out) throws IOException {
+    out.writeLong(bytes);
+    out.writeLong(spaceConsumed);
+  }
+  
+  /** {@inheritDoc} */
+  @Override
+  public void addTotals(DataInput in) throws IOException {
+    bytes += in.readLong();
+    spaceConsumed += in.readLong();
+  }
+
+  @Override
+  public boolean isAction() {
+    return true;
+  }
+  /** Registers this expression with the specified factory. */
+  public static void registerExpression(ExpressionFactory factory) throws IOException {
+    factory.addClass(Du.class, "-du");
+  }
+}
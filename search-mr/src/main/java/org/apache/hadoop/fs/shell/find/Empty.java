@@ -55,6 +55,11 @@ public final class Empty extends BaseExpression {
     }
     return Result.FAIL;
   }
+  /** {@inheritDoc} */
+  @Override
+  public Cost getCost(FindOptions options) {
+    return Cost.RPC; // lists directories
+  }
   /** Registers this expression with the specified factory. */
   public static void registerExpression(ExpressionFactory factory) throws IOException {
     factory.addClass(Empty.class, "-empty");
@@ -18,12 +18,22 @@
 package org.apache.hadoop.fs.shell.find;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Deque;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.hadoop.fs.shell.Command;
 import org.apache.hadoop.fs.shell.PathData;
@@ -49,7 +59,11 @@ public final class Exec extends BaseExpression {
     "If -ok is specified then confirmation of each command shall be",
     "prompted for on STDERR prior to execution.  If the response is",
     "'y' or 'yes' then the command shall be executed else the command",
-    "shall not be invoked and the expression shall return false."
+    "shall not be invoked and the expression shall return false.",
+    "The exit status of a batched command is ignored, as its paths",
+    "have already evaluated to true.",
+    "Batches of a -exec command run concurrently with the traversal",
+    "if the -execthreads expression is specified."
   };
   private Command command;
   private ArrayList<String> pathItems;
@@ -57,6 +71,10 @@ public final class Exec extends BaseExpression {
   private int maxArgs = MAX_ARGS;
   private boolean prompt;
   private BufferedReader reader = null;
+  /** Runs batches concurrently if the -execthreads expression is used, otherwise null. */
+  private ExecutorService executor = null;
+  /** Batches submitted to the executor whose output hasn't been written yet, in submission order. */
+  private LinkedList<BatchRun> pendingBatches = new LinkedList<BatchRun>();
 
   public Exec() {
     this(false);
@@ -110,11 +128,14 @@ public final class Exec extends BaseExpression {
     if(this.command == null) {
       throw new IOException("Unknown command: " + commandName);
     }
+    if(getOptions().getOut() != null) {
+      this.command.out = getOptions().getOut(); // keeps its output in order with the output of other actions
+    }
     pathItems = new ArrayList<String>();
   }
   
-  /** Build and run the command. */
-  private Result runCommand(List<String> items) throws IOException {
+  /** Build the arguments of the command, replacing {} with the given items. */
+  private ArrayList<String> getCommandArgs(List<String> items) {
     ArrayList<String> commandArgs = new ArrayList<String>();
     boolean gotCommand = false;
     for(String arg : getArguments()) {
@@ -130,6 +151,12 @@ public final class Exec extends BaseExpression {
         gotCommand = true;
       }
     }
+    return commandArgs;
+  }
+  
+  /** Build and run the command. */
+  private Result runCommand(List<String> items) throws IOException {
+    ArrayList<String> commandArgs = getCommandArgs(items);
     pathItems.clear();
     if(getPrompt()) {
       StringBuilder commandString = new StringBuilder();
@@ -150,7 +177,7 @@ public final class Exec extends BaseExpression {
     if(isBatch()) {
       pathItems.add(getPath(item).toString());
       if(pathItems.size() >= getMaxArgs()) {
-        runCommand(pathItems);
+        runBatch();
       }
       return Result.PASS;
     }
@@ -158,8 +185,74 @@ public final class Exec extends BaseExpression {
   }
   @Override
   public void finish() throws IOException {
+    try {
+      flush();
+    } finally {
+      if(executor != null) {
+        executor.shutdownNow();
+        executor = null;
+      }
+    }
+  }
+  
+  /** Runs the command on the paths collected so far, and waits for all batches to complete. */
+  @Override
+  public void flush() throws IOException {
     if(pathItems.size() > 0) {
+      runBatch();
+    }
+    writeCompletedBatches(0);
+  }
+  
+  /**
+   * Runs the command on the collected batch of paths, on the traversal thread or, if the
+   * -execthreads expression is used, on one of the threads of the executor. Waits for the
+   * oldest batch if too many are in flight.
+   */
+  private void runBatch() throws IOException {
+    // read here rather than on initialise, as -execthreads may follow -exec on the command line
+    int threads = getOptions().getExecThreads();
+    if(getPrompt() || threads <= 1) {
       runCommand(pathItems);
+      return;
+    }
+    if(executor == null) {
+      executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+        private int count = 0;
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "find-exec-" + (count++));
+          thread.setDaemon(true);
+          return thread;
+        }});
+    }
+    BatchRun batch = new BatchRun(getOptions().getCommandFactory().getInstance(getArgument(1)), getCommandArgs(pathItems));
+    pathItems.clear();
+    batch.future = executor.submit(batch);
+    pendingBatches.add(batch);
+    writeCompletedBatches(2 * getOptions().getExecThreads()); // bounds the paths held in memory
+  }
+  
+  /**
+   * Writes the output of the completed batches, in the order the batches were submitted,
+   * waiting for the oldest ones until no more than the given number are pending.
+   */
+  private void writeCompletedBatches(int maxPending) throws IOException {
+    while(!pendingBatches.isEmpty() && (pendingBatches.size() > maxPending || pendingBatches.peek().future.isDone())) {
+      BatchRun batch = pendingBatches.poll();
+      try {
+        batch.future.get();
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException("Interrupted while waiting for " + batch.command.getName());
+      } catch (ExecutionException e) {
+        // fail as the command would have on the traversal thread
+        batch.write(getOptions().getOut(), getOptions().getErr());
+        if(e.getCause() instanceof IOException) {
+          throw (IOException)e.getCause();
+        }
+        throw new IOException(batch.command.getName() + " failed", e.getCause());
+      }
+      batch.write(getOptions().getOut(), getOptions().getErr());
     }
   }
 
@@ -189,6 +282,43 @@ public final class Exec extends BaseExpression {
     return this.batch;
   }
   
+  /** Runs the command on a batch of paths on an executor thread, capturing its output. */
+  private static final class BatchRun implements Callable<Integer> {
+    private final Command command;
+    private final String[] commandArgs;
+    private final ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errBuffer = new ByteArrayOutputStream();
+    private final PrintStream out = new PrintStream(outBuffer, true);
+    private final PrintStream err = new PrintStream(errBuffer, true);
+    private Future<Integer> future;
+    
+    BatchRun(Command command, List<String> commandArgs) {
+      this.command = command; // a fresh instance, as commands keep state while running
+      this.commandArgs = commandArgs.toArray(new String[0]);
+      command.out = out;
+      command.err = err;
+    }
+    
+    @Override
+    public Integer call() {
+      return command.run(commandArgs);
+    }
+    
+    /** Writes the captured output to the given streams. */
+    void write(PrintStream toOut, PrintStream toErr) {
+      out.flush();
+      err.flush();
+      if(outBuffer.size() > 0) {
+        toOut.write(outBuffer.toByteArray(), 0, outBuffer.size());
+        toOut.flush();
+      }
+      if(errBuffer.size() > 0) {
+        toErr.write(errBuffer.toByteArray(), 0, errBuffer.size());
+        toErr.flush();
+      }
+    }
+  }
+  
   public static final class Ok extends FilterExpression {
     public Ok() {
       super(new Exec(true));
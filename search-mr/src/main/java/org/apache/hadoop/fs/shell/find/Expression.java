@@ -17,6 +17,8 @@
  */
 package org.apache.hadoop.fs.shell.find;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.Deque;
 
@@ -41,6 +43,29 @@ public interface Expression {
    * @throws IOException
    */
   public void finish() throws IOException;
+  
+  /**
+   * Completes the work left pending by the items applied so far, such as a partial batch of a
+   * command, called before a checkpoint of the traversal is written.
+   * @throws IOException
+   */
+  public void flush() throws IOException;
+  
+  /**
+   * Writes the totals accumulated by this expression so far, such as those of -count, so that the
+   * totals of the tasks of a distributed find can be added up by its client.
+   * @param out output to write the totals to
+   * @throws IOException
+   */
+  public void writeTotals(DataOutput out) throws IOException;
+  
+  /**
+   * Adds the totals written by {@link #writeTotals(DataOutput)} of another instance of this
+   * expression to the totals of this expression.
+   * @param in input to read the totals from
+   * @throws IOException
+   */
+  public void addTotals(DataInput in) throws IOException;
 
   /**
    * Returns brief usage instructions for this expression.
@@ -66,6 +91,31 @@ public interface Expression {
   /** Returns the precendence of this expression (only applicable to operators). */
   public int getPrecedence();
   
+  /**
+   * Returns the cost class of applying this expression to an item, which for an operator is the
+   * highest cost class of its children.
+   * @param options options the expression will be initialised with
+   * @return cost class of this expression
+   */
+  public Cost getCost(FindOptions options);
+  
+  /**
+   * Indicates whether applying this expression to any item below the given directory may pass or
+   * have side effects. If not, the directory is not listed at all.
+   * @param dir directory to be descended into
+   * @return false if the expression is certain to fail, without side effects, for every item
+   * below the directory; true if unsure
+   * @throws IOException
+   */
+  public boolean canMatchDescendants(PathData dir) throws IOException;
+  
+  /**
+   * Optimises this expression and its children after parsing, before it is initialised.
+   * Operators may reorder their side effect free children so the cheapest are applied first.
+   * @param options options the expression will be initialised with
+   */
+  public void optimise(FindOptions options);
+  
   /**
    * Adds children to this expression.  Children are popped from the head of the deque.
    * @param expressions deque of expressions from which to take the children
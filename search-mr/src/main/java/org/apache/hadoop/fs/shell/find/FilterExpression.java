@@ -17,6 +17,8 @@
  */
 package org.apache.hadoop.fs.shell.find;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.Deque;
 
@@ -51,6 +53,24 @@ public abstract class FilterExpression implements Expression, Configurable {
   public void finish() throws IOException {
     expression.finish();
   }
+  
+  /** {@inheritDoc} */
+  @Override
+  public void flush() throws IOException {
+    expression.flush();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void writeTotals(DataOutput out) throws IOException {
+    expression.writeTotals(out);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void addTotals(DataInput in) throws IOException {
+    expression.addTotals(in);
+  }
 
   /** {@inheritDoc} */
   @Override
@@ -82,6 +102,24 @@ public abstract class FilterExpression implements Expression, Configurable {
     return expression.getPrecedence();
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public boolean canMatchDescendants(PathData dir) throws IOException {
+    return expression.canMatchDescendants(dir);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Cost getCost(FindOptions options) {
+    return expression.getCost(options);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void optimise(FindOptions options) {
+    expression.optimise(options);
+  }
+
   /** {@inheritDoc} */
   @Override
   public void addChildren(Deque<Expression> expressions) {
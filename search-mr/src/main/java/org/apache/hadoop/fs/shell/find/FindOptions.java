@@ -19,8 +19,13 @@ package org.apache.hadoop.fs.shell.find;
 
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.shell.CommandFactory;
 
 /**
@@ -45,6 +50,43 @@ public class FindOptions {
   /** Indicates whether symbolic links specified as command arguments should be followed. */
   private boolean followArgLink = false;
   
+  /** Number of threads listing directories concurrently; 1 means sequential traversal. */
+  private int threads = 1;
+  
+  /** Indicates whether items may be processed in the order their directory listings complete. */
+  private boolean unordered = false;
+  
+  /** Number of -exec batches run concurrently; 1 means batches run on the traversal thread. */
+  private int execThreads = 1;
+  
+  /** Output directory of a distributed find, or null if the tree is traversed on the client only. */
+  private String mapReduceOutputDir = null;
+  
+  /** Indicates whether totals such as those of -count are added up by the client of a distributed find rather than written on finish. */
+  private boolean deferTotals = false;
+  
+  /** Local file recording the traversal still to be done, or null if no checkpoints are written. */
+  private String checkpointFile = null;
+  
+  /** Indicates whether the traversal should be resumed from the checkpoint file, if it exists. */
+  private boolean resume = false;
+  
+  /** Maximum running time of the traversal in seconds, or -1 if unlimited. */
+  private long maxRuntime = -1;
+  
+  /** Maximum number of symbolic link targets whose file status is cached. */
+  private static final int LINK_STATUS_CACHE_SIZE = 10000;
+  
+  /** File status of the symbolic link targets resolved during the traversal, least recently used first. */
+  private final Map<Path, FileStatus> linkStatusCache = Collections.synchronizedMap(
+      new LinkedHashMap<Path, FileStatus>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, FileStatus> eldest) {
+          return size() > LINK_STATUS_CACHE_SIZE;
+        }
+      });
+  
   /** Start time of the find process. */
   private long startTime = new Date().getTime();
 
@@ -146,6 +188,158 @@ public class FindOptions {
     return this.followArgLink;
   }
   
+  /**
+   * Sets the number of threads listing directories concurrently.
+   * @param threads number of threads, 1 for sequential traversal
+   */
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+  
+  /**
+   * Returns the number of threads listing directories concurrently.
+   * @return number of threads, 1 for sequential traversal
+   */
+  public int getThreads() {
+    return this.threads;
+  }
+  
+  /**
+   * Sets flag indicating whether items may be processed in the order their directory listings
+   * complete rather than in directory tree order.
+   * @param unordered true indicates unordered processing
+   */
+  public void setUnordered(boolean unordered) {
+    this.unordered = unordered;
+  }
+  
+  /**
+   * May items be processed out of directory tree order?
+   * @return true indicates unordered processing
+   */
+  public boolean isUnordered() {
+    return this.unordered;
+  }
+  
+  /**
+   * Sets the number of -exec batches run concurrently.
+   * @param execThreads number of threads, 1 to run batches on the traversal thread
+   */
+  public void setExecThreads(int execThreads) {
+    this.execThreads = execThreads;
+  }
+  
+  /**
+   * Returns the number of -exec batches run concurrently.
+   * @return number of threads, 1 to run batches on the traversal thread
+   */
+  public int getExecThreads() {
+    return this.execThreads;
+  }
+  
+  /**
+   * Sets the output directory of a distributed find, which traverses the lower levels of the
+   * directory tree in a MapReduce job.
+   * @param dir output directory, or null to traverse the tree on the client only
+   */
+  public void setMapReduceOutputDir(String dir) {
+    this.mapReduceOutputDir = dir;
+  }
+  
+  /**
+   * Returns the output directory of a distributed find.
+   * @return output directory, or null if the tree is traversed on the client only
+   */
+  public String getMapReduceOutputDir() {
+    return this.mapReduceOutputDir;
+  }
+  
+  /**
+   * Sets flag indicating whether totals such as those of -count are left to the client of a
+   * distributed find, which adds up the totals written by its tasks, rather than written on finish.
+   * @param deferTotals true indicates the totals are not written on finish
+   */
+  public void setDeferTotals(boolean deferTotals) {
+    this.deferTotals = deferTotals;
+  }
+  
+  /**
+   * Should totals such as those of -count be left to the client of a distributed find?
+   * @return true indicates the totals are not written on finish
+   */
+  public boolean isDeferTotals() {
+    return this.deferTotals;
+  }
+  
+  /**
+   * Sets the local file that periodically records the part of the directory tree still to be
+   * traversed, so that an interrupted traversal can be resumed.
+   * @param file checkpoint file, or null to not write checkpoints
+   */
+  public void setCheckpointFile(String file) {
+    this.checkpointFile = file;
+  }
+  
+  /**
+   * Returns the local file recording the part of the directory tree still to be traversed.
+   * @return checkpoint file, or null if no checkpoints are written
+   */
+  public String getCheckpointFile() {
+    return this.checkpointFile;
+  }
+  
+  /**
+   * Sets flag indicating whether the traversal should be resumed from the checkpoint file.
+   * @param resume true indicates the traversal is resumed if the checkpoint file exists
+   */
+  public void setResume(boolean resume) {
+    this.resume = resume;
+  }
+  
+  /**
+   * Should the traversal be resumed from the checkpoint file?
+   * @return true indicates the traversal is resumed if the checkpoint file exists
+   */
+  public boolean isResume() {
+    return this.resume;
+  }
+  
+  /**
+   * Sets the maximum running time of the traversal, after which it stops and records the
+   * remaining traversal in the checkpoint file.
+   * @param seconds maximum running time, or -1 for unlimited
+   */
+  public void setMaxRuntime(long seconds) {
+    this.maxRuntime = seconds;
+  }
+  
+  /**
+   * Returns the maximum running time of the traversal.
+   * @return maximum running time in seconds, or -1 if unlimited
+   */
+  public long getMaxRuntime() {
+    return this.maxRuntime;
+  }
+  
+  /**
+   * Returns the cached file status of a symbolic link target resolved earlier in the traversal.
+   * @param target qualified path of the link target
+   * @return file status of the target, or null if it isn't cached
+   */
+  public FileStatus getLinkTargetStatus(Path target) {
+    return this.linkStatusCache.get(target);
+  }
+  
+  /**
+   * Caches the file status of a resolved symbolic link target for the rest of the traversal,
+   * evicting the least recently used target if the cache is full.
+   * @param target qualified path of the link target
+   * @param status file status of the target
+   */
+  public void addLinkTargetStatus(Path target, FileStatus status) {
+    this.linkStatusCache.put(target, status);
+  }
+  
   /**
    * Returns the start time of this {@link Find} command.
    * @return start time (in milliseconds since epoch)
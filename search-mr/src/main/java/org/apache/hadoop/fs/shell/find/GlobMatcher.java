@@ -0,0 +1,167 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.shell.find;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.hadoop.fs.GlobPattern;
+
+/**
+ * Matches strings against a glob pattern with the same results as {@link GlobPattern}, but
+ * compiles the common pattern shapes (literal, literal*, *literal and *literal*) into matchers
+ * that compare characters directly instead of running a regular expression. Case insensitive
+ * matching compares characters ignoring case, rather than converting the strings.
+ * 
+ * Instances are not thread safe.
+ */
+abstract class GlobMatcher {
+  /** Characters with a special meaning in a glob pattern, other than '*'. */
+  private static final String SPECIAL_CHARS = "?[]{}\\";
+  
+  /**
+   * Compiles the given glob pattern.
+   * @param glob pattern to be compiled
+   * @param caseSensitive false if case should be ignored
+   * @return matcher for the pattern
+   */
+  static GlobMatcher compile(String glob, boolean caseSensitive) {
+    for(int i = 0; i < glob.length(); i++) {
+      if(SPECIAL_CHARS.indexOf(glob.charAt(i)) >= 0) {
+        return new RegexMatcher(glob, caseSensitive);
+      }
+    }
+    boolean leadingStar = glob.startsWith("*");
+    String literal = leadingStar ? glob.substring(1) : glob;
+    boolean trailingStar = literal.endsWith("*");
+    if(trailingStar) {
+      literal = literal.substring(0, literal.length() - 1);
+    }
+    if(literal.indexOf('*') >= 0) {
+      return new RegexMatcher(glob, caseSensitive);
+    }
+    if(leadingStar && trailingStar) {
+      return new ContainsMatcher(literal, caseSensitive);
+    }
+    else if(leadingStar) {
+      return new SuffixMatcher(literal, caseSensitive);
+    }
+    else if(trailingStar) {
+      return new PrefixMatcher(literal, caseSensitive);
+    }
+    return new ExactMatcher(literal, caseSensitive);
+  }
+  
+  /** Returns true if the given string, from the given start index to its end, matches the pattern. */
+  abstract boolean matches(String s, int start);
+  
+  /** Returns true if the whole of the given string matches the pattern. */
+  boolean matches(String s) {
+    return matches(s, 0);
+  }
+  
+  /** Base class of the matchers for patterns with a single literal. */
+  private static abstract class LiteralMatcher extends GlobMatcher {
+    protected final String literal;
+    protected final boolean ignoreCase;
+    
+    LiteralMatcher(String literal, boolean caseSensitive) {
+      this.literal = literal;
+      this.ignoreCase = !caseSensitive;
+    }
+    
+    /** Returns true if the literal occurs in the given string at the given offset. */
+    protected boolean matchesAt(String s, int offset) {
+      return s.regionMatches(ignoreCase, offset, literal, 0, literal.length());
+    }
+  }
+  
+  /** Matches pattern "literal". */
+  private static final class ExactMatcher extends LiteralMatcher {
+    ExactMatcher(String literal, boolean caseSensitive) {
+      super(literal, caseSensitive);
+    }
+    
+    @Override
+    boolean matches(String s, int start) {
+      return s.length() - start == literal.length() && matchesAt(s, start);
+    }
+  }
+  
+  /** Matches pattern "literal*". */
+  private static final class PrefixMatcher extends LiteralMatcher {
+    PrefixMatcher(String literal, boolean caseSensitive) {
+      super(literal, caseSensitive);
+    }
+    
+    @Override
+    boolean matches(String s, int start) {
+      return s.length() - start >= literal.length() && matchesAt(s, start);
+    }
+  }
+  
+  /** Matches pattern "*literal". */
+  private static final class SuffixMatcher extends LiteralMatcher {
+    SuffixMatcher(String literal, boolean caseSensitive) {
+      super(literal, caseSensitive);
+    }
+    
+    @Override
+    boolean matches(String s, int start) {
+      return s.length() - start >= literal.length() && matchesAt(s, s.length() - literal.length());
+    }
+  }
+  
+  /** Matches pattern "*literal*", and "*" with an empty literal. */
+  private static final class ContainsMatcher extends LiteralMatcher {
+    ContainsMatcher(String literal, boolean caseSensitive) {
+      super(literal, caseSensitive);
+    }
+    
+    @Override
+    boolean matches(String s, int start) {
+      if(!ignoreCase) {
+        return s.indexOf(literal, start) >= 0;
+      }
+      for(int i = start; i <= s.length() - literal.length(); i++) {
+        if(matchesAt(s, i)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+  
+  /** Matches any other pattern using the regular expression compiled by {@link GlobPattern}. */
+  private static final class RegexMatcher extends GlobMatcher {
+    private final Matcher matcher;
+    
+    RegexMatcher(String glob, boolean caseSensitive) {
+      Pattern pattern = new GlobPattern(glob).compiled();
+      if(!caseSensitive) {
+        pattern = Pattern.compile(pattern.pattern(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+      }
+      this.matcher = pattern.matcher("");
+    }
+    
+    @Override
+    boolean matches(String s, int start) {
+      return matcher.reset(s).region(start, s.length()).matches();
+    }
+  }
+}
@@ -61,6 +61,11 @@ public final class Group extends BaseExpression {
     }
     return Result.FAIL;
   }
+  /** {@inheritDoc} */
+  @Override
+  public Cost getCost(FindOptions options) {
+    return getFileStatusCost(options);
+  }
   /** Registers this expression with the specified factory. */
   public static void registerExpression(ExpressionFactory factory) throws IOException {
     factory.addClass(Group.class, "-group");
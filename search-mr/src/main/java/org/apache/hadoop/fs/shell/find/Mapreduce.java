@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.shell.find;
+
+import java.io.IOException;
+import java.util.Deque;
+
+import org.apache.hadoop.fs.shell.PathData;
+
+/**
+ * Implements the -mapreduce expression for the {@link org.apache.hadoop.fs.shell.find.Find} command.
+ */
+public final class Mapreduce extends BaseExpression {
+  private static final String[] USAGE = {
+    "-mapreduce dir"
+  };
+  private static final String[] HELP = {
+    "Always evaluates to true. Expands the top levels of the directory",
+    "tree on the client, then traverses the directories below in the",
+    "map tasks of a MapReduce job. Output of the actions is written to",
+    "part files in the new directory dir, which can be passed to the",
+    "--input-list option of the MapReduceIndexerTool. The number of",
+    "levels expanded on the client defaults to 2 and can be changed",
+    "with -D " + Mapreduce.CLIENT_DEPTH + "=n. The part files only hold",
+    "the output of actions on single items; the totals of -count, -du",
+    "and -summary are added up across the job and written to standard",
+    "output."
+  };
+  
+  /** Number of directory levels below the command arguments that are expanded on the client. */
+  public static final String CLIENT_DEPTH = "find.mapreduce.client.depth";
+  
+  public Mapreduce() {
+    super();
+    setUsage(USAGE);
+    setHelp(HELP);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void addArguments(Deque<String> args) {
+    addArguments(args, 1);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void initialise(FindOptions options) throws IOException {
+    super.initialise(options);
+    options.setMapReduceOutputDir(getArgument(1));
+  }
+
+  @Override
+  public Result apply(PathData item) {
+    return Result.PASS;
+  }
+  /** {@inheritDoc} */
+  @Override
+  public Cost getCost(FindOptions options) {
+    return Cost.PATH;
+  }
+  /** Registers this expression with the specified factory. */
+  public static void registerExpression(ExpressionFactory factory) throws IOException {
+    factory.addClass(Mapreduce.class, "-mapreduce");
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.shell.find;
+
+import java.io.IOException;
+import java.util.Deque;
+
+import org.apache.hadoop.fs.shell.PathData;
+
+/**
+ * Implements the -maxruntime expression for the {@link org.apache.hadoop.fs.shell.find.Find} command.
+ */
+public final class Maxruntime extends BaseExpression {
+  private static final String[] USAGE = {
+    "-maxruntime n"
+  };
+  private static final String[] HELP = {
+    "Always evaluates to true. Stops the traversal once it has run for",
+    "n seconds, after completing the actions of the items processed so",
+    "far. With -checkpoint, the remaining traversal is recorded so that",
+    "it can be continued with -resume."
+  };
+  
+  public Maxruntime() {
+    super();
+    setUsage(USAGE);
+    setHelp(HELP);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void addArguments(Deque<String> args) {
+    addArguments(args, 1);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void initialise(FindOptions options) throws IOException {
+    super.initialise(options);
+    long seconds;
+    try {
+      seconds = Long.parseLong(getArgument(1));
+    } catch (NumberFormatException e) {
+      throw new IOException("Invalid maximum runtime: " + getArgument(1));
+    }
+    if(seconds < 0) {
+      throw new IOException("Invalid maximum runtime: " + seconds);
+    }
+    options.setMaxRuntime(seconds);
+  }
+
+  @Override
+  public Result apply(PathData item) {
+    return Result.PASS;
+  }
+  /** {@inheritDoc} */
+  @Override
+  public Cost getCost(FindOptions options) {
+    return Cost.PATH;
+  }
+  /** Registers this expression with the specified factory. */
+  public static void registerExpression(ExpressionFactory factory) throws IOException {
+    factory.addClass(Maxruntime.class, "-maxruntime");
+  }
+}
@@ -20,7 +20,6 @@ package org.apache.hadoop.fs.shell.find;
 import java.io.IOException;
 import java.util.Deque;
 
-import org.apache.hadoop.fs.GlobPattern;
 import org.apache.hadoop.fs.shell.PathData;
 
 /**
@@ -36,7 +35,7 @@ public final class Name extends BaseExpression {
     "pattern using standard file system globbing.",
     "If -iname is used then the match is case insensitive."
   };
-  private GlobPattern globPattern;
+  private GlobMatcher globMatcher;
   private boolean caseSensitive = true;
 
   public Name() {
@@ -62,26 +61,32 @@ public final class Name extends BaseExpression {
   /** {@inheritDoc} */
   @Override
   public void initialise(FindOptions options) {
-    String argPattern = getArguments().get(0);
-    if(!caseSensitive) {
-      argPattern = argPattern.toLowerCase();
-    }
-    globPattern = new GlobPattern(argPattern);
+    globMatcher = GlobMatcher.compile(getArguments().get(0), caseSensitive);
   }
 
   @Override
   public Result apply(PathData item) {
-    String name = getPath(item).getName();
-    if(!caseSensitive) {
-      name = name.toLowerCase();
+    // match the basename within the path string, rather than extracting it for every item
+    String path = item.toString();
+    boolean isMatch;
+    if(path.length() > 1 && path.endsWith("/")) {
+      isMatch = globMatcher.matches(getPath(item).getName());
+    }
+    else {
+      isMatch = globMatcher.matches(path, path.lastIndexOf('/') + 1);
     }
-    if(globPattern.matches(name)) {
+    if(isMatch) {
       return Result.PASS;
     }
     else {
       return Result.FAIL;
     }
   }
+  /** {@inheritDoc} */
+  @Override
+  public Cost getCost(FindOptions options) {
+    return Cost.PATH;
+  }
   /** Registers this expression with the specified factory. */
   public static void registerExpression(ExpressionFactory factory) throws IOException {
     factory.addClass(Name.class, "-name");
@@ -65,6 +65,11 @@ public final class Newer extends BaseExpression {
   public void addArguments(Deque<String> args) {
     addArguments(args, 1);
   }
+  /** {@inheritDoc} */
+  @Override
+  public Cost getCost(FindOptions options) {
+    return getFileStatusCost(options);
+  }
   /** Registers this expression with the specified factory. */
   public static void registerExpression(ExpressionFactory factory) throws IOException {
     factory.addClass(Newer.class, "-newer");
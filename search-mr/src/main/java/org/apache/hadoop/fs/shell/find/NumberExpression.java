@@ -80,4 +80,10 @@ public abstract class NumberExpression extends BaseExpression {
     }
     return Result.PASS;
   }
+
+  /** {@inheritDoc} */
+  @Override
+  public Cost getCost(FindOptions options) {
+    return getFileStatusCost(options);
+  }
 }
@@ -72,6 +72,26 @@ public final class Or extends BaseExpression {
   public void addChildren(Deque<Expression> expressions) {
     addChildren(expressions, 2);
   }
+  /** {@inheritDoc} */
+  @Override
+  public void optimise(FindOptions options) {
+    super.optimise(options);
+    reorderChildren(Or.class, options);
+  }
+  /**
+   * {@inheritDoc}
+   * A descendant can't match if none of the children can match it.
+   */
+  @Override
+  public boolean canMatchDescendants(PathData dir) throws IOException {
+    for(Expression child : getChildren()) {
+      if(child.canMatchDescendants(dir)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /** Registers this expression with the specified factory. */
   public static void registerExpression(ExpressionFactory factory) throws IOException {
     factory.addClass(Or.class, "-o");
@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.shell.find;
+
+import java.io.IOException;
+import java.util.Deque;
+import java.util.regex.Matcher;
+
+import org.apache.hadoop.fs.GlobPattern;
+import org.apache.hadoop.fs.shell.PathData;
+
+/**
+ * Implements the -path expression for the {@link org.apache.hadoop.fs.shell.find.Find} command.
+ */
+public final class PathExpression extends BaseExpression {
+  private static final String[] USAGE = {
+    "-path pattern",
+    "-ipath pattern"
+  };
+  private static final String[] HELP = {
+    "Evaluates as true if the whole path of the file, as it would",
+    "be printed, matches the pattern using standard file system",
+    "globbing. Wildcards also match '/'. Directories whose",
+    "descendants can't match are not descended into, e.g.",
+    "-path '/data/2013/1?/*' skips all other years and months.",
+    "If -ipath is used then the match is case insensitive."
+  };
+  private GlobPattern globPattern;
+  private boolean caseSensitive = true;
+
+  public PathExpression() {
+    this(true);
+  }
+  public PathExpression(boolean caseSensitive) {
+    super();
+    setUsage(USAGE);
+    setHelp(HELP);
+    setCaseSensitive(caseSensitive);
+  }
+  
+  private void setCaseSensitive(boolean caseSensitive) {
+    this.caseSensitive = caseSensitive;
+  }
+  
+  /** {@inheritDoc} */
+  @Override
+  public void addArguments(Deque<String> args) {
+    addArguments(args, 1);
+  }
+  
+  /** {@inheritDoc} */
+  @Override
+  public void initialise(FindOptions options) throws IOException {
+    super.initialise(options);
+    String argPattern = getArgument(1);
+    if(!caseSensitive) {
+      argPattern = argPattern.toLowerCase();
+    }
+    globPattern = new GlobPattern(argPattern);
+  }
+
+  @Override
+  public Result apply(PathData item) {
+    if(globPattern.matches(getPathString(item))) {
+      return Result.PASS;
+    }
+    else {
+      return Result.FAIL;
+    }
+  }
+  
+  /**
+   * {@inheritDoc}
+   * The path of every descendant starts with the path of the directory followed by a '/', so
+   * if the pattern fails before reaching the end of that prefix then it fails for all of them.
+   */
+  @Override
+  public boolean canMatchDescendants(PathData dir) {
+    String prefix = getPathString(dir);
+    if(!prefix.endsWith("/")) {
+      prefix = prefix + "/";
+    }
+    Matcher matcher = globPattern.compiled().matcher(prefix);
+    return matcher.matches() || matcher.hitEnd();
+  }
+  
+  /** Returns the path of the item as matched against the pattern. */
+  private String getPathString(PathData item) {
+    String path = getPath(item).toString();
+    return caseSensitive ? path : path.toLowerCase();
+  }
+  
+  /** {@inheritDoc} */
+  @Override
+  public Cost getCost(FindOptions options) {
+    return Cost.PATH;
+  }
+  /** Registers this expression with the specified factory. */
+  public static void registerExpression(ExpressionFactory factory) throws IOException {
+    factory.addClass(PathExpression.class, "-path");
+    factory.addClass(Ipath.class, "-ipath");
+  }
+  
+  /** Case insensitive version of the -path expression. */
+  public static class Ipath extends FilterExpression {
+    public Ipath() {
+      super(new PathExpression(false));
+    }
+  }
+}
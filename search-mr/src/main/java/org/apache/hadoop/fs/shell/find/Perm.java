@@ -174,6 +174,11 @@ public final class Perm extends BaseExpression {
       public String toString() { return "minus";}
     };
   }
+  /** {@inheritDoc} */
+  @Override
+  public Cost getCost(FindOptions options) {
+    return getFileStatusCost(options);
+  }
   /** Registers this expression with the specified factory. */
   public static void registerExpression(ExpressionFactory factory) throws IOException {
     factory.addClass(Perm.class, "-perm");
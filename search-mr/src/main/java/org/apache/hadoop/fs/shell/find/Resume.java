@@ -0,0 +1,63 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.shell.find;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.shell.PathData;
+
+/**
+ * Implements the -resume expression for the {@link org.apache.hadoop.fs.shell.find.Find} command.
+ */
+public final class Resume extends BaseExpression {
+  private static final String[] USAGE = {
+    "-resume"
+  };
+  private static final String[] HELP = {
+    "Always evaluates to true. If the file given to -checkpoint exists,",
+    "continues the traversal it records instead of starting from the",
+    "command arguments. Otherwise the traversal starts as usual, so the",
+    "same command line can be run repeatedly, e.g. with -maxruntime.",
+    "The totals of -count, -du and -summary are not checkpointed, so",
+    "each run only reports the items it processed itself."
+  };
+  
+  public Resume() {
+    super();
+    setUsage(USAGE);
+    setHelp(HELP);
+  }
+
+  @Override
+  public Result apply(PathData item) {
+    return Result.PASS;
+  }
+  @Override
+  public void initialise(FindOptions options) {
+    options.setResume(true);
+  }
+  /** {@inheritDoc} */
+  @Override
+  public Cost getCost(FindOptions options) {
+    return Cost.PATH;
+  }
+  /** Registers this expression with the specified factory. */
+  public static void registerExpression(ExpressionFactory factory) throws IOException {
+    factory.addClass(Resume.class, "-resume");
+  }
+}
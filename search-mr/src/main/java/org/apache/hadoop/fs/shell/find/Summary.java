@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.shell.find;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.shell.PathData;
+
+/**
+ * Implements the -summary expression for the {@link org.apache.hadoop.fs.shell.find.Find} command.
+ */
+public final class Summary extends BaseExpression {
+  private static final String[] USAGE = {
+    "-summary"
+  };
+  private static final String[] HELP = {
+    "Always evaluates to true. Counts the matching files and their",
+    "bytes per file name extension, along with a histogram of the",
+    "file sizes, and writes a table of the results to standard",
+    "output when the command completes. Directories and symbolic",
+    "links are counted as (dir) and (link), files without an",
+    "extension as (none)."
+  };
+  
+  /** Exclusive upper bounds of the file size buckets of the histogram, except for the last bucket. */
+  private static final long[] BUCKET_LIMITS = {
+    1, 
+    1024, 
+    64 * 1024, 
+    1024 * 1024, 
+    16 * 1024 * 1024, 
+    128 * 1024 * 1024, 
+    1024 * 1024 * 1024
+  };
+  private static final String[] BUCKET_NAMES = {
+    "0", "<1K", "<64K", "<1M", "<16M", "<128M", "<1G", ">=1G"
+  };
+  private static final String TOTAL = "TOTAL";
+  
+  private final Map<String, Stats> statsByType = new TreeMap<String, Stats>();
+
+  public Summary() {
+    super();
+    setUsage(USAGE);
+    setHelp(HELP);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Result apply(PathData item) throws IOException {
+    FileStatus fileStatus = getFileStatus(item);
+    String type;
+    if(fileStatus.isDirectory()) {
+      type = "(dir)";
+    }
+    else if(fileStatus.isSymlink()) {
+      type = "(link)";
+    }
+    else {
+      type = getExtension(getPath(item).getName());
+    }
+    getStats(type).add(fileStatus.isFile() ? fileStatus.getLen() : -1);
+    return Result.PASS;
+  }
+  
+  /** Returns the stats of the given type, creating them if this is the first item of the type. */
+  private Stats getStats(String type) {
+    Stats stats = statsByType.get(type);
+    if(stats == null) {
+      stats = new Stats();
+      statsByType.put(type, stats);
+    }
+    return stats;
+  }
+  
+  /** Returns the lower case extension of the given file name, or (none) if it has none. */
+  private static String getExtension(String name) {
+    int dot = name.lastIndexOf('.');
+    if(dot <= 0 || dot == name.length() - 1) {
+      return "(none)";
+    }
+    return name.substring(dot + 1).toLowerCase();
+  }
+  
+  /** {@inheritDoc} */
+  @Override
+  public void finish() throws IOException {
+    if(getOptions().isDeferTotals()) {
+      return;
+    }
+    PrintStream out = getOptions().getOut();
+    StringBuilder header = new StringBuilder(String.format("%-12s %12s %18s", "TYPE", "COUNT", "BYTES"));
+    for(String bucketName : BUCKET_NAMES) {
+      header.append(String.format(" %10s", bucketName));
+    }
+    out.println(header.toString());
+    Stats total = new Stats();
+    for(Map.Entry<String, Stats> entry : statsByType.entrySet()) {
+      out.println(entry.getValue().format(entry.getKey()));
+      total.add(entry.getValue());
+    }
+    out.println(total.format(TOTAL));
+  }
+  
+  /** {@inheritDoc} */
+  @Override
+  public void writeTotals(DataOutput out) throws IOException {
+    out.writeInt(statsByType.size());
+    for(Map.Entry<String, Stats> entry : statsByType.entrySet()) {
+      out.writeUTF(entry.getKey());
+      entry.getValue().write(out);
+    }
+  }
+  
+  /** {@inheritDoc} */
+  @Override
+  public void addTotals(DataInput in) throws IOException {
+    int types = in.readInt();
+    for(int i = 0; i < types; i++) {
+      getStats(in.readUTF()).add(in);
+    }
+  }
+
+  @Override
+  public boolean isAction() {
+    return true;
+  }
+  /** Registers this expression with the specified factory. */
+  public static void registerExpression(ExpressionFactory factory) throws IOException {
+    factory.addClass(Summary.class, "-summary");
+  }
+  
+  /** Counts, bytes and size histogram of one type of item. */
+  private static final class Stats {
+    private long count = 0;
+    private long bytes = 0;
+    private final long[] histogram = new long[BUCKET_NAMES.length];
+    
+    /** Adds an item of the given length, or -1 if it isn't a file. */
+    void add(long length) {
+      count++;
+      if(length >= 0) {
+        bytes += length;
+        int bucket = 0;
+        while(bucket < BUCKET_LIMITS.length && length >= BUCKET_LIMITS[bucket]) {
+          bucket++;
+        }
+        histogram[bucket]++;
+      }
+    }
+    
+    /** Adds the given stats to these. */
+    void add(Stats other) {
+      count += other.count;
+      bytes += other.bytes;
+      for(int i = 0; i < histogram.length; i++) {
+        histogram[i] += other.histogram[i];
+      }
+    }
+    
+    /** Writes these stats for {@link #add(DataInput)}. */
+    void write(DataOutput out) throws IOException {
+      out.writeLong(count);
+      out.writeLong(bytes);
+      for(long bucketCount : histogram) {
+        out.writeLong(bucketCount);
+      }
+    }
+    
+    /** Adds the stats written by {@link #write(DataOutput)} to these. */
+    void add(DataInput in) throws IOException {
+      count += in.readLong();
+      bytes += in.readLong();
+      for(int i = 0; i < histogram.length; i++) {
+        histogram[i] += in.readLong();
+      }
+    }
+    
+    /** Returns these stats as a line of the table. */
+    String format(String type) {
+      StringBuilder line = new StringBuilder(String.format("%-12s %12d %18d", type, count, bytes));
+      for(long bucketCount : histogram) {
+        line.append(String.format(" %10d", bucketCount));
+      }
+      return line.toString();
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.shell.find;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.shell.PathData;
+
+/**
+ * Implements the -unordered expression for the {@link org.apache.hadoop.fs.shell.find.Find} command.
+ */
+public final class Unordered extends BaseExpression {
+  private static final String[] USAGE = {
+    "-unordered"
+  };
+  private static final String[] HELP = {
+    "Always evaluates to true. With -threads, causes items to be",
+    "processed as soon as their directory has been listed, rather",
+    "than in directory tree order. This maximises throughput but",
+    "makes the output order nondeterministic. Does not have any",
+    "affect if the -depth expression is specified."
+  };
+  
+  public Unordered() {
+    super();
+    setUsage(USAGE);
+    setHelp(HELP);
+  }
+
+  @Override
+  public Result apply(PathData item) {
+    return Result.PASS;
+  }
+  @Override
+  public void initialise(FindOptions options) {
+    options.setUnordered(true);
+  }
+  /** {@inheritDoc} */
+  @Override
+  public Cost getCost(FindOptions options) {
+    return Cost.PATH;
+  }
+  /** Registers this expression with the specified factory. */
+  public static void registerExpression(ExpressionFactory factory) throws IOException {
+    factory.addClass(Unordered.class, "-unordered");
+  }
+}
@@ -19,14 +19,18 @@ package org.apache.solr.hadoop;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.apache.hadoop.mapreduce.TaskID;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
 import org.apache.solr.client.solrj.response.UpdateResponse;
@@ -60,7 +64,18 @@ class BatchWriter {
 
   private final ThreadPoolExecutor batchPool;
 
-  private TaskID taskId = null;
+  private final TaskAttemptContext context;
+  
+  /**
+   * Counter increments accumulated by the writer threads, which must not touch the (non thread-safe)
+   * task context. The accumulated increments are flushed to the MR counters by the task thread
+   * from time to time, and on close.
+   */
+  private final Map<SolrCounters, AtomicLong> counters = new EnumMap<SolrCounters, AtomicLong>(SolrCounters.class);
+  private final ConcurrentMap<String, AtomicLong> errorCounters = new ConcurrentHashMap<String, AtomicLong>();
+  private long nextCounterFlushTime = System.currentTimeMillis() + COUNTER_FLUSH_INTERVAL_MS;
+  
+  private static final long COUNTER_FLUSH_INTERVAL_MS = 10 * 1000;
 
   /**
    * The number of in progress batches, must be zero before the close can
@@ -132,10 +147,10 @@ class BatchWriter {
   protected UpdateResponse runUpdate(List<SolrInputDocument> batchToWrite) {
     try {
       UpdateResponse result = solr.add(batchToWrite);
-      SolrRecordWriter.incrementCounter(taskId, SolrCounters.class.getName(), SolrCounters.BATCHES_WRITTEN.toString(), 1);      
-      SolrRecordWriter.incrementCounter(taskId, SolrCounters.class.getName(), SolrCounters.DOCUMENTS_WRITTEN.toString(), batchToWrite.size());
+      counters.get(SolrCounters.BATCHES_WRITTEN).addAndGet(1);      
+      counters.get(SolrCounters.DOCUMENTS_WRITTEN).addAndGet(batchToWrite.size());
       if (LOG.isDebugEnabled()) {
-        SolrRecordWriter.incrementCounter(taskId, SolrCounters.class.getName(), SolrCounters.BATCH_WRITE_TIME.toString(), result.getElapsedTime());
+        counters.get(SolrCounters.BATCH_WRITE_TIME).addAndGet(result.getElapsedTime());
       }
       return result;
     } catch (Throwable e) {
@@ -144,19 +159,54 @@ class BatchWriter {
       } else {
         setBatchWriteException(new Exception(e));
       }
-      SolrRecordWriter.incrementCounter(taskId, getClass().getName() + ".errors", e.getClass().getName(), 1);
+      incrementErrorCounter(e.getClass().getName());
       LOG.error("Unable to process batch", e);
       return null;
     }
   }
 
 
-  public BatchWriter(EmbeddedSolrServer solr, int batchSize, TaskID tid,
+  private void incrementErrorCounter(String name) {
+    AtomicLong counter = errorCounters.get(name);
+    if (counter == null) {
+      AtomicLong newCounter = new AtomicLong();
+      counter = errorCounters.putIfAbsent(name, newCounter);
+      if (counter == null) {
+        counter = newCounter;
+      }
+    }
+    counter.incrementAndGet();
+  }
+  
+  /**
+   * Adds the accumulated counter increments to the MR counters of the task. Must only be called from
+   * the task thread.
+   */
+  private void flushCounters() {
+    for (Map.Entry<SolrCounters, AtomicLong> entry : counters.entrySet()) {
+      long incr = entry.getValue().getAndSet(0);
+      if (incr != 0) {
+        context.getCounter(SolrCounters.class.getName(), entry.getKey().toString()).increment(incr);
+      }
+    }
+    for (Map.Entry<String, AtomicLong> entry : errorCounters.entrySet()) {
+      long incr = entry.getValue().getAndSet(0);
+      if (incr != 0) {
+        context.getCounter(getClass().getName() + ".errors", entry.getKey()).increment(incr);
+      }
+    }
+    nextCounterFlushTime = System.currentTimeMillis() + COUNTER_FLUSH_INTERVAL_MS;
+  }
+
+  public BatchWriter(EmbeddedSolrServer solr, int batchSize, TaskAttemptContext context,
       int writerThreads, int queueSize) {
     this.solr = solr;
     this.writerThreads = writerThreads;
     this.queueSize = queueSize;
-    taskId = tid;
+    this.context = context;
+    for (SolrCounters counter : SolrCounters.values()) {
+      counters.put(counter, new AtomicLong());
+    }
 
     // we need to obtain the settings before the constructor
     if (writerThreads != 0) {
@@ -179,6 +229,9 @@ class BatchWriter {
       b.run();
       throwIf();
     }
+    if (System.currentTimeMillis() >= nextCounterFlushTime) {
+      flushCounters();
+    }
   }
 
   public synchronized void close(TaskAttemptContext context)
@@ -195,6 +248,7 @@ class BatchWriter {
         batchPool.awaitTermination(5, TimeUnit.SECONDS);
       }
     }
+    flushCounters();
     context.setStatus("Committing Solr Phase 1");
     solr.commit(true, false);
     context.setStatus("Optimizing Solr");
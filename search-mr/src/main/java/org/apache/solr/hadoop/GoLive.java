@@ -18,6 +18,7 @@ package org.apache.solr.hadoop;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -32,6 +33,7 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.fs.FileStatus;
+import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.CloudSolrServer;
 import org.apache.solr.client.solrj.impl.HttpSolrServer;
@@ -48,8 +50,22 @@ class GoLive {
 
   private static final Logger LOG = LoggerFactory.getLogger(GoLive.class);
   
-  // TODO: handle clusters with replicas
+  private static final int DELETE_BATCH_SIZE = 1000;
+  
   public boolean goLive(Options options, FileStatus[] outDirs) {
+    return goLive(options, outDirs, Collections.<String>emptyList());
+  }
+  
+  /**
+   * Deletes the documents with the given unique keys from the live Solr cluster, and then merges
+   * the given output shards into it. Deletes go first, so that a document that is deleted and
+   * re-added ends up being present exactly once.
+   */
+  // TODO: handle clusters with replicas
+  public boolean goLive(Options options, FileStatus[] outDirs, List<String> deleteIds) {
+    if (deleteIds.size() > 0 && !deleteLive(options, deleteIds)) {
+      return false;
+    }
     LOG.info("Live merging of output shards into Solr cluster...");
     boolean success = false;
     long start = System.currentTimeMillis();
@@ -185,6 +201,45 @@ class GoLive {
     // if an output dir does not exist, we should fail and do no merge?
   }
 
+  private boolean deleteLive(Options options, List<String> ids) {
+    LOG.info("Deleting {} obsolete documents from live Solr cluster...", ids.size());
+    long start = System.currentTimeMillis();
+    try {
+      if (options.zkHost != null) {
+        CloudSolrServer server = new CloudSolrServer(options.zkHost);
+        try {
+          server.setDefaultCollection(options.collection);
+          deleteById(server, ids);
+        } finally {
+          server.shutdown();
+        }
+      } else {
+        for (List<String> urls : options.shardUrls) {
+          for (String url : urls) {
+            HttpSolrServer server = new HttpSolrServer(url); // the shard that contains the doc will delete it
+            try {
+              deleteById(server, ids);
+            } finally {
+              server.shutdown();
+            }
+          }
+        }
+      }
+    } catch (Exception e) {
+      LOG.error("Error sending deletes to live Solr cluster", e);
+      return false;
+    }
+    float secs = (System.currentTimeMillis() - start) / 1000.0f;
+    LOG.info("Deleting obsolete documents from live Solr cluster took " + secs + " secs");
+    return true;
+  }
+  
+  private void deleteById(SolrServer server, List<String> ids) throws SolrServerException, IOException {
+    for (int i = 0; i < ids.size(); i += DELETE_BATCH_SIZE) {
+      server.deleteById(ids.subList(i, Math.min(ids.size(), i + DELETE_BATCH_SIZE)));
+    }
+  }
+
   private void shutdownNowAndAwaitTermination(ExecutorService pool) {
     pool.shutdown(); // Disable new tasks from being submitted
     pool.shutdownNow(); // Cancel currently executing tasks
@@ -33,6 +33,11 @@ import org.apache.hadoop.util.ToolRunner;
  * 
  * sudo -u hdfs hadoop --config /etc/hadoop/conf.cloudera.mapreduce1 jar search-mr-*-job.jar org.apache.solr.hadoop.HdfsFindTool -find hdfs:///user/$USER/solrloadtest/iarchive/1percent/WIDE-20110309005125-crawl338 hdfs:///user/$USER/solrloadtest/iarchive/1percent/WIDE-20110309002853-crawl337 -name '*.gz' -type f
  * </pre>
+ * 
+ * For very large directory trees, the <code>-mapreduce dir</code> expression traverses the lower
+ * levels of the tree in a MapReduce job, and writes the results to part files in the given
+ * directory, which can be passed as is to the <code>--input-list</code> option of the
+ * {@link MapReduceIndexerTool}.
  */
 public class HdfsFindTool extends FsShell {
   
@@ -16,8 +16,12 @@
  */
 package org.apache.solr.hadoop;
 
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.hadoop.mapreduce.TaskInputOutputContext;
 import org.apache.hadoop.util.Progressable;
@@ -25,7 +29,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * This class runs a background thread that once every 60 seconds checks to see if
+ * This class schedules a background task that once every 60 seconds checks to see if
  * a progress report is needed. If a report is needed it is issued.
  * 
  * A simple counter {@link #threadsNeedingHeartBeat} handles the number of
@@ -42,20 +46,21 @@ import org.slf4j.LoggerFactory;
  *    }
  * </pre>
  * 
- * 
+ * As needHeartBeat() and cancelHeartBeat() are typically called once per record, they are
+ * lock-free, and the progress report issued by needHeartBeat() is rate limited. All instances
+ * within a JVM share a single daemon scheduler thread.
  */
-public class HeartBeater extends Thread {
+public class HeartBeater {
   
   public static Logger LOG = LoggerFactory.getLogger(HeartBeater.class);
 
   /**
-   * count of threads asking for heart beat, at 0 no heart beat done. This could
-   * be an atomic long but then missmatches in need/cancel could result in
-   * negative counts.
+   * count of threads asking for heart beat, at 0 no heart beat done. Missmatches 
+   * in need/cancel are guarded against, so the count never becomes negative.
    */
-  private volatile int threadsNeedingHeartBeat = 0;
+  private final AtomicInteger threadsNeedingHeartBeat = new AtomicInteger(0);
 
-  private Progressable progress;
+  private volatile Progressable progress;
 
   /**
    * The amount of time to wait between checks for the need to issue a heart
@@ -63,18 +68,41 @@ public class HeartBeater extends Thread {
    */
   private final long waitTimeMs = TimeUnit.MILLISECONDS.convert(60, TimeUnit.SECONDS);
   
-  private final CountDownLatch isClosing = new CountDownLatch(1);
+  /**
+   * The minimum amount of time between two progress reports issued by
+   * {@link #needHeartBeat()}. In nanoseconds.
+   */
+  private static final long MIN_PROGRESS_INTERVAL_NANOS = TimeUnit.NANOSECONDS.convert(1, TimeUnit.SECONDS);
+  
+  private volatile long lastProgressNanos;
+  
+  private final ScheduledFuture<?> future;
+  
+  private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, HeartBeater.class.getSimpleName());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
 
   /**
-   * Create the heart beat object thread set it to daemon priority and start the
-   * thread. When the count in {@link #threadsNeedingHeartBeat} is positive, the
+   * Create the heart beat object and schedule its background task on the shared
+   * daemon scheduler. When the count in {@link #threadsNeedingHeartBeat} is positive, the
    * heart beat will be issued on the progress object every 60 seconds.
    */
   public HeartBeater(Progressable progress) {
-    setDaemon(true);
     this.progress = progress;
+    this.lastProgressNanos = System.nanoTime() - MIN_PROGRESS_INTERVAL_NANOS;
     LOG.info("Heart beat reporting class is " + progress.getClass().getName());
-    start();
+    this.future = SCHEDULER.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        beat();
+      }
+    }, 0, waitTimeMs, TimeUnit.MILLISECONDS);
   }
 
   public Progressable getProgress() {
@@ -85,62 +113,61 @@ public class HeartBeater extends Thread {
     this.progress = progress;
   }
 
-  @Override
-  public void run() {
-    LOG.info("HeartBeat thread running");
-    while (true) {
-      try {
-        synchronized (this) {
-          if (threadsNeedingHeartBeat > 0) {
-            progress.progress();
-            if (LOG.isInfoEnabled()) {
-              LOG.info(String.format("Issuing heart beat for %d threads",
-                  threadsNeedingHeartBeat));
-            }
-          } else {
-            if (LOG.isInfoEnabled()) {
-              LOG.info(String.format("heartbeat skipped count %d",
-                  threadsNeedingHeartBeat));
-            }
-          }
+  private void beat() {
+    try {
+      int count = threadsNeedingHeartBeat.get();
+      if (count > 0) {
+        reportProgress();
+        if (LOG.isInfoEnabled()) {
+          LOG.info(String.format("Issuing heart beat for %d threads", count));
         }
-        if (isClosing.await(waitTimeMs, TimeUnit.MILLISECONDS)) {
-          return;
+      } else {
+        if (LOG.isInfoEnabled()) {
+          LOG.info(String.format("heartbeat skipped count %d", count));
         }
-      } catch (Throwable e) {
-        LOG.error("HeartBeat throwable", e);
       }
+    } catch (Throwable e) { // an exception would suppress all subsequent executions
+      LOG.error("HeartBeat throwable", e);
     }
   }
+  
+  private void reportProgress() {
+    lastProgressNanos = System.nanoTime();
+    progress.progress();
+  }
 
   /**
-   * inform the background thread that heartbeats are to be issued. Issue a
-   * heart beat also
+   * inform the background task that heartbeats are to be issued. Issue a
+   * heart beat also, unless one was issued very recently.
    */
-  public synchronized void needHeartBeat() {
-    threadsNeedingHeartBeat++;
+  public void needHeartBeat() {
+    threadsNeedingHeartBeat.incrementAndGet();
     // Issue a progress report right away,
-    // just in case the the cancel comes before the background thread issues a
+    // just in case the the cancel comes before the background task issues a
     // report.
     // If enough cases like this happen the 600 second timeout can occur
-    progress.progress();
-    if (threadsNeedingHeartBeat == 1) {
-      // this.notify(); // wake up the heartbeater
+    if (System.nanoTime() - lastProgressNanos >= MIN_PROGRESS_INTERVAL_NANOS) {
+      reportProgress(); // benign race: concurrent callers may report twice
     }
   }
 
   /**
-   * inform the background thread that this heartbeat request is not needed.
+   * inform the background task that this heartbeat request is not needed.
    * This must be called at some point after each {@link #needHeartBeat()}
    * request.
    */
-  public synchronized void cancelHeartBeat() {
-    if (threadsNeedingHeartBeat > 0) {
-      threadsNeedingHeartBeat--;
-    } else {
-      Exception e = new Exception("Dummy");
-      e.fillInStackTrace();
-      LOG.warn("extra call to cancelHeartBeat", e);
+  public void cancelHeartBeat() {
+    while (true) {
+      int count = threadsNeedingHeartBeat.get();
+      if (count <= 0) {
+        Exception e = new Exception("Dummy");
+        e.fillInStackTrace();
+        LOG.warn("extra call to cancelHeartBeat", e);
+        return;
+      }
+      if (threadsNeedingHeartBeat.compareAndSet(count, count - 1)) {
+        return;
+      }
     }
   }
 
@@ -152,6 +179,6 @@ public class HeartBeater extends Thread {
   
   /** Releases any resources */
   public void close() {
-    isClosing.countDown();
+    future.cancel(false);
   }
 }
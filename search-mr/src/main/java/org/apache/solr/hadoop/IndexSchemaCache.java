@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.solr.schema.IndexSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Shares parsed schemas among the tasks of a JVM (with JVM reuse enabled). Parsing the schema and
+ * instantiating its analyzers dominates the startup time of short tasks. This is the same approach
+ * that Solr takes with shareSchema="true" in solr.xml.
+ * 
+ * A schema is parsed anew if its file has changed since, i.e. the cache is keyed by the path,
+ * modification time and length of the schema file.
+ * 
+ * A cached schema holds on to the resource loader, and thus the class loader, of the task that
+ * parsed it. That is harmless as long as all classes come from the class path of the JVM. However,
+ * if the Solr home contains plugin jars in its lib directory, each task loads these classes anew,
+ * and a shared schema would mix plugin classes of different class loaders. Schemas of such Solr
+ * homes are therefore not shared.
+ */
+@Beta
+public final class IndexSchemaCache {
+
+  private static final ConcurrentMap<String, IndexSchema> CACHE = new ConcurrentHashMap<String, IndexSchema>();
+  
+  private static final Logger LOG = LoggerFactory.getLogger(IndexSchemaCache.class);
+
+  private IndexSchemaCache() {}
+  
+  /**
+   * Returns the schema parsed from the given schema file by a prior task of this JVM, or else the
+   * schema returned by the given parser.
+   * 
+   * @param schemaFile the schema file the parser reads
+   * @param libDir the lib directory of the Solr home, containing the plugin jars, if any
+   * @param parser parses the schema file
+   */
+  public static IndexSchema getIndexSchema(File schemaFile, File libDir, Callable<IndexSchema> parser) throws IOException {
+    String[] libs = libDir.list();
+    if (libs != null && libs.length > 0) {
+      LOG.debug("Not sharing schema because of the plugins in {}", libDir);
+      return parse(schemaFile, parser);
+    }
+    String key = getKey(schemaFile);
+    IndexSchema schema = CACHE.get(key);
+    if (schema == null) {
+      schema = parse(schemaFile, parser);
+      IndexSchema existing = CACHE.putIfAbsent(key, schema);
+      if (existing != null) {
+        schema = existing;
+      }
+    } else {
+      LOG.info("Reusing schema parsed by a prior task of this JVM: {}", schemaFile);
+    }
+    return schema;
+  }
+
+  static String getKey(File schemaFile) {
+    return schemaFile.getAbsolutePath() + ":" + schemaFile.lastModified() + ":" + schemaFile.length();
+  }
+  
+  private static IndexSchema parse(File schemaFile, Callable<IndexSchema> parser) throws IOException {
+    try {
+      return parser.call();
+    } catch (IOException e) {
+      throw e;
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException("Cannot parse " + schemaFile, e);
+    }
+  }
+}
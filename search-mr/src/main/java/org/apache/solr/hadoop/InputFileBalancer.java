@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Collects the input files of a job while they are being listed and distributes them across a
+ * given number of mapper splits such that each split ends up with roughly the same number of
+ * bytes to index.
+ *
+ * The assignment uses the longest-processing-time-first heuristic: files are visited in order of
+ * descending length and each file is added to the split that currently has the fewest bytes (ties
+ * are broken by the fewest files). Files of unknown length count as zero bytes, in which case the
+ * assignment degenerates into a plain round-robin.
+ *
+ * The balancer holds at most <code>maxFiles</code> entries in main memory. Once more files are
+ * added it releases its buffer and reports itself as overflowed, so the caller can fall back to
+ * a scalable alternative.
+ */
+final class InputFileBalancer {
+
+  private final long maxFiles;
+  private List<Entry> entries = new ArrayList<Entry>();
+  private long numFiles = 0;
+  private boolean isOverflowed = false;
+
+  public InputFileBalancer(long maxFiles) {
+    this.maxFiles = maxFiles;
+  }
+
+  /**
+   * Adds the given input file line along with its length in bytes, or a negative number if the
+   * length is unknown.
+   */
+  public void add(String line, long length) {
+    numFiles++;
+    if (isOverflowed) {
+      return;
+    }
+    if (numFiles > maxFiles) {
+      isOverflowed = true;
+      entries = null; // help gc
+      return;
+    }
+    entries.add(new Entry(line, Math.max(0, length)));
+  }
+
+  /** Returns the number of files added so far */
+  public long getNumFiles() {
+    return numFiles;
+  }
+
+  /** Returns true if more than maxFiles files were added, in which case {@link #assign(int)} is unavailable */
+  public boolean isOverflowed() {
+    return isOverflowed;
+  }
+
+  /**
+   * Returns the given number of splits, each containing the lines assigned to it. The lines
+   * within a split are ordered by descending file length.
+   */
+  public List<List<String>> assign(int numSplits) {
+    if (isOverflowed) {
+      throw new IllegalStateException("Too many files for main memory assignment: " + numFiles);
+    }
+    if (numSplits <= 0) {
+      throw new IllegalArgumentException("Illegal number of splits: " + numSplits);
+    }
+
+    Collections.sort(entries, new Comparator<Entry>() {
+      @Override
+      public int compare(Entry e1, Entry e2) {
+        return e1.length > e2.length ? -1 : (e1.length < e2.length ? 1 : 0); // descending
+      }
+    }); // stable sort retains listing order among files of the same length, for reproducability
+
+    PriorityQueue<Split> queue = new PriorityQueue<Split>(numSplits);
+    List<List<String>> splits = new ArrayList<List<String>>(numSplits);
+    for (int i = 0; i < numSplits; i++) {
+      Split split = new Split(i);
+      splits.add(split.lines);
+      queue.add(split);
+    }
+
+    for (Entry entry : entries) {
+      Split split = queue.poll(); // least loaded split
+      split.lines.add(entry.line);
+      split.bytes += entry.length;
+      queue.add(split);
+    }
+    return splits;
+  }
+
+
+  ///////////////////////////////////////////////////////////////////////////////
+  // Nested classes:
+  ///////////////////////////////////////////////////////////////////////////////
+  private static final class Entry {
+
+    private final String line;
+    private final long length;
+
+    public Entry(String line, long length) {
+      this.line = line;
+      this.length = length;
+    }
+  }
+
+  private static final class Split implements Comparable<Split> {
+
+    private final int id;
+    private final List<String> lines = new ArrayList<String>();
+    private long bytes = 0;
+
+    public Split(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public int compareTo(Split other) {
+      if (bytes != other.bytes) {
+        return bytes < other.bytes ? -1 : 1;
+      }
+      if (lines.size() != other.lines.size()) {
+        return lines.size() < other.lines.size() ? -1 : 1;
+      }
+      return id < other.id ? -1 : (id > other.id ? 1 : 0); // deterministic tie breaker
+    }
+  }
+
+}
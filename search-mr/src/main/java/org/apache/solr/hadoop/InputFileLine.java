@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
+
+/**
+ * Encodes and decodes a line of the list of input files.
+ * 
+ * A line is either a plain URI or a URI followed by the metadata of the file as obtained during
+ * listing, separated by tabs:
+ * 
+ * <pre>
+ * uri TAB length TAB modificationTime TAB owner TAB group TAB octalPermission
+ * </pre>
+ * 
+ * The metadata is parsed from the end of the line, so the URI itself may contain tabs. Carrying
+ * the metadata along with the URI enables mappers to generate the file metadata headers without
+ * issuing another getFileStatus() RPC to the NameNode per file.
+ */
+public final class InputFileLine {
+
+  private static final char SEPARATOR = '\t';
+  private static final int NUM_METADATA_FIELDS = 5;
+  
+  private InputFileLine() {}
+  
+  /** Returns a line containing the path and metadata of the given file */
+  public static String format(FileStatus stats) {
+    StringBuilder buf = new StringBuilder();
+    buf.append(stats.getPath().toString());
+    buf.append(SEPARATOR).append(stats.getLen());
+    buf.append(SEPARATOR).append(stats.getModificationTime());
+    buf.append(SEPARATOR).append(stats.getOwner());
+    buf.append(SEPARATOR).append(stats.getGroup());
+    buf.append(SEPARATOR).append(Integer.toOctalString(stats.getPermission().toShort()));
+    return buf.toString();
+  }
+  
+  /** Returns the URI contained in the given line */
+  public static String getPath(String line) {
+    int[] separators = findMetadataSeparators(line);
+    return separators == null ? line : line.substring(0, separators[0]);
+  }
+  
+  /**
+   * Returns the file metadata contained in the given line, or null if the line is a plain URI or
+   * the metadata is malformed.
+   */
+  public static FileStatus getFileStatus(String line) {
+    int[] separators = findMetadataSeparators(line);
+    if (separators == null) {
+      return null;
+    }
+    try {
+      long length = Long.parseLong(field(line, separators, 0));
+      long modificationTime = Long.parseLong(field(line, separators, 1));
+      String owner = field(line, separators, 2);
+      String group = field(line, separators, 3);
+      FsPermission permission = new FsPermission((short) Integer.parseInt(field(line, separators, 4), 8));
+      Path path = new Path(line.substring(0, separators[0]));
+      return new FileStatus(length, false, 0, 0, modificationTime, 0, permission, owner, group, path);
+    } catch (IllegalArgumentException e) {
+      return null; // malformed number or path
+    }
+  }
+  
+  /** Returns the length of the file described by the given line, or -1 if unknown */
+  public static long getLength(String line) {
+    FileStatus stats = getFileStatus(line);
+    return stats == null ? -1 : stats.getLen();
+  }
+  
+  /**
+   * Returns the positions of the last NUM_METADATA_FIELDS separators, in ascending order, or null
+   * if the line doesn't end with well formed metadata.
+   */
+  private static int[] findMetadataSeparators(String line) {
+    int[] separators = new int[NUM_METADATA_FIELDS];
+    int pos = line.length();
+    for (int i = NUM_METADATA_FIELDS - 1; i >= 0; i--) {
+      pos = line.lastIndexOf(SEPARATOR, pos - 1);
+      if (pos <= 0) {
+        return null; // plain URI
+      }
+      separators[i] = pos;
+    }
+    if (!isDigits(line, separators, 0) || !isDigits(line, separators, 1) || !isDigits(line, separators, 4)) {
+      return null; // plain URI that happens to contain tabs
+    }
+    return separators;
+  }
+  
+  private static boolean isDigits(String line, int[] separators, int i) {
+    int end = i + 1 < separators.length ? separators[i + 1] : line.length();
+    if (end == separators[i] + 1) {
+      return false; // empty
+    }
+    for (int j = separators[i] + 1; j < end; j++) {
+      char c = line.charAt(j);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  private static String field(String line, int[] separators, int i) {
+    int end = i + 1 < separators.length ? separators[i + 1] : line.length();
+    return line.substring(separators[i] + 1, end);
+  }
+  
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Writes a list of input files in the compact binary format that is exchanged between the client
+ * and the MR jobs.
+ * 
+ * The list is a block compressed SequenceFile of (position, line) pairs, where each line is an
+ * input file line as defined by {@link InputFileLine}. Consecutive lines mostly share long
+ * scheme/host/directory prefixes, which block compression reduces to a small fraction of the
+ * equivalent UTF-8 text file, and the ascending positions compress to almost nothing.
+ */
+final class InputFileListWriter implements Closeable {
+
+  private final SequenceFile.Writer writer;
+  private final LongWritable key = new LongWritable();
+  private final Text value = new Text();
+  private long position = 0;
+  
+  public InputFileListWriter(FileSystem fs, Path path, Configuration conf) throws IOException {
+    this.writer = SequenceFile.createWriter(fs, conf, path, LongWritable.class, Text.class, CompressionType.BLOCK);
+  }
+  
+  public void append(String line) throws IOException {
+    key.set(position++);
+    value.set(line);
+    writer.append(key, value);
+  }
+  
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+  
+}
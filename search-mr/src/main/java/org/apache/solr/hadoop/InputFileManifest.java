@@ -0,0 +1,353 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent list of the input files (along with their length and modification time) that were
+ * indexed by a previous successful run, used to support incremental indexing.
+ * 
+ * The manifest uses the same line format as the list of input files, see {@link InputFileLine},
+ * and is sorted by path. While the input files of the current run are listed, they are written
+ * into a temporary SequenceFile keyed by path. On {@link #close(Listener)} that file is sorted
+ * with an external merge sort and merged with the (sorted) previous manifest into the new
+ * manifest. Only files that are new or whose length or modification time changed need to be
+ * indexed. Files of the previous manifest that are missing from the current listing have been
+ * deleted. Once the run succeeded, the new manifest replaces the previous manifest. Neither
+ * manifest is ever held in main memory, only the list of deleted or modified files is.
+ * 
+ * Lines that carry no metadata (e.g. plain URIs from an --input-list) can't be compared and are
+ * always considered changed. An unsorted previous manifest written by an older version is sorted
+ * on the fly.
+ */
+final class InputFileManifest {
+
+  private final Path previousManifest; // null if not incremental
+  private final Path newManifest;
+  private final Path unsortedManifest;
+  private final FileSystem fs;
+  private final Configuration conf;
+  private final SequenceFile.Writer writer;
+  private final Text key = new Text();
+  private final Text value = new Text();
+  private final List<String> deletedOrModifiedFiles = new ArrayList<String>();
+  private long numAdded = 0;
+  
+  private static final String BACKUP_SUFFIX = ".old";
+  
+  private static final Logger LOG = LoggerFactory.getLogger(InputFileManifest.class);
+
+  /**
+   * Opens a new manifest for writing. If isIncremental is true, files listed in the given
+   * previous manifest (if it exists) are compared against; otherwise all files are considered new.
+   */
+  public InputFileManifest(Path previousManifest, boolean isIncremental, Path newManifest, Configuration conf) 
+      throws IOException {
+    
+    this.previousManifest = isIncremental ? previousManifest : null;
+    this.newManifest = newManifest;
+    this.unsortedManifest = newManifest.suffix(".unsorted");
+    this.fs = newManifest.getFileSystem(conf);
+    this.conf = conf;
+    this.writer = SequenceFile.createWriter(fs, conf, unsortedManifest, Text.class, Text.class);
+  }
+  
+  /** Adds the given input file line to the new manifest */
+  public void add(String line) throws IOException {
+    key.set(InputFileLine.getPath(line));
+    value.set(line);
+    writer.append(key, value);
+    numAdded++;
+  }
+  
+  /**
+   * Sorts and writes the new manifest, and passes each input file line that needs to be indexed
+   * because the file is new or has changed since the previous run to the given listener, in path
+   * order. Must be called after all input files have been added. Returns the number of files
+   * passed to the listener.
+   */
+  public long close(Listener listener) throws IOException {
+    writer.close();
+    Path sortedManifest = newManifest.suffix(".sorted");
+    LineReader current = sort(fs, unsortedManifest, sortedManifest, numAdded);
+    LineReader previous = null;
+    Path sortedPreviousManifest = newManifest.suffix(".previous.sorted");
+    Writer out = new BufferedWriter(new OutputStreamWriter(fs.create(newManifest), "UTF-8"));
+    long numNewOrModified = 0;
+    long numPrevious = 0;
+    try {
+      previous = openPrevious(sortedPreviousManifest);
+      String previousLine = previous.readEntry();
+      Text previousPath = previousLine == null ? null : new Text(InputFileLine.getPath(previousLine));
+      Text path = new Text();
+      Text lastPath = null;
+      String line;
+      while ((line = current.readLine()) != null) {
+        path.set(InputFileLine.getPath(line));
+        if (path.equals(lastPath)) {
+          continue; // the same file was listed more than once
+        }
+        lastPath = new Text(path);
+        out.write(line + "\n");
+        while (previousPath != null && previousPath.compareTo(path) < 0) {
+          deletedOrModifiedFiles.add(previousPath.toString()); // deleted file
+          numPrevious++;
+          previousLine = previous.readEntry();
+          previousPath = previousLine == null ? null : new Text(InputFileLine.getPath(previousLine));
+        }
+        boolean isChanged = true;
+        if (previousPath != null && previousPath.equals(path)) {
+          FileStatus stats = InputFileLine.getFileStatus(line);
+          FileStatus previousStats = InputFileLine.getFileStatus(previousLine);
+          if (stats != null && stats.getLen() == previousStats.getLen() 
+              && stats.getModificationTime() == previousStats.getModificationTime()) {
+            isChanged = false;
+          } else {
+            deletedOrModifiedFiles.add(path.toString()); // modified file
+          }
+          numPrevious++;
+          previousLine = previous.readEntry();
+          previousPath = previousLine == null ? null : new Text(InputFileLine.getPath(previousLine));
+        }
+        if (isChanged) {
+          listener.add(line);
+          numNewOrModified++;
+        }
+      }
+      while (previousPath != null) {
+        deletedOrModifiedFiles.add(previousPath.toString()); // deleted file
+        numPrevious++;
+        previousLine = previous.readEntry();
+        previousPath = previousLine == null ? null : new Text(InputFileLine.getPath(previousLine));
+      }
+    } finally {
+      out.close();
+      current.close();
+      if (previous != null) {
+        previous.close();
+      }
+      fs.delete(sortedManifest, false);
+      fs.delete(sortedPreviousManifest, false);
+    }
+    if (previousManifest != null) {
+      LOG.info("Merged previous manifest with {} files into new manifest {} with {} files", 
+          new Object[] {numPrevious, newManifest, numAdded});
+    }
+    return numNewOrModified;
+  }
+  
+  /** Opens the previous manifest for reading in path order, sorting it if required */
+  private LineReader openPrevious(Path sortedPreviousManifest) throws IOException {
+    if (previousManifest == null) {
+      return new LineReader();
+    }
+    FileSystem previousFs = previousManifest.getFileSystem(conf);
+    Path manifest = previousManifest;
+    if (!previousFs.exists(manifest)) {
+      Path backup = previousManifest.suffix(BACKUP_SUFFIX);
+      if (!previousFs.exists(backup)) {
+        LOG.info("No previous manifest found at {} - indexing all input files", previousManifest);
+        return new LineReader();
+      }
+      LOG.warn("Using backup of previous manifest left behind by an interrupted run: {}", backup);
+      manifest = backup;
+    }
+    if (isSorted(previousFs, manifest)) {
+      return new LineReader(open(previousFs, manifest));
+    }
+    
+    LOG.info("Sorting previous manifest written by an older version: {}", manifest);
+    Path unsortedPreviousManifest = sortedPreviousManifest.suffix(".unsorted");
+    SequenceFile.Writer unsorted = SequenceFile.createWriter(fs, conf, unsortedPreviousManifest, Text.class, Text.class);
+    long numLines = 0;
+    BufferedReader reader = open(previousFs, manifest);
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        key.set(InputFileLine.getPath(line));
+        value.set(line);
+        unsorted.append(key, value);
+        numLines++;
+      }
+    } finally {
+      reader.close();
+      unsorted.close();
+    }
+    return sort(fs, unsortedPreviousManifest, sortedPreviousManifest, numLines);
+  }
+  
+  private static boolean isSorted(FileSystem fs, Path manifest) throws IOException {
+    BufferedReader reader = open(fs, manifest);
+    try {
+      Text lastPath = null;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        Text path = new Text(InputFileLine.getPath(line));
+        if (lastPath != null && lastPath.compareTo(path) > 0) {
+          return false;
+        }
+        lastPath = path;
+      }
+      return true;
+    } finally {
+      reader.close();
+    }
+  }
+  
+  /** Sorts the given SequenceFile by path, deletes it, and opens the sorted result for reading */
+  private LineReader sort(FileSystem fs, Path unsorted, Path sorted, long numLines) throws IOException {
+    if (numLines == 0) {
+      fs.delete(unsorted, false);
+      return new LineReader();
+    }
+    fs.delete(sorted, false);
+    new SequenceFile.Sorter(fs, Text.class, Text.class, conf).sort(new Path[] {unsorted}, sorted, true);
+    return new LineReader(new SequenceFile.Reader(fs, sorted, conf));
+  }
+  
+  private static BufferedReader open(FileSystem fs, Path manifest) throws IOException {
+    return new BufferedReader(new InputStreamReader(fs.open(manifest), "UTF-8"));
+  }
+  
+  /**
+   * Returns the files whose previously indexed documents are obsolete, i.e. the files that were
+   * deleted or modified since the previous run, in path order.
+   */
+  public List<String> getDeletedOrModifiedFiles() {
+    return deletedOrModifiedFiles;
+  }
+  
+  /**
+   * Replaces the given previous manifest with the new manifest. The previous manifest is first
+   * renamed to a backup, which is deleted once the new manifest is in place. If the process dies
+   * in between, the next incremental run falls back to the backup.
+   */
+  public boolean publish(Path previousManifest) throws IOException {
+    FileSystem previousFs = previousManifest.getFileSystem(conf);
+    Path backup = previousManifest.suffix(BACKUP_SUFFIX);
+    if (previousFs.exists(previousManifest)) {
+      if (previousFs.exists(backup) && !previousFs.delete(backup, false)) {
+        LOG.error("Cannot delete stale backup of previous manifest: {}", backup);
+        return false;
+      }
+      if (!previousFs.rename(previousManifest, backup)) {
+        LOG.error("Cannot rename previous manifest {} to {}", previousManifest, backup);
+        return false;
+      }
+    }
+    boolean success;
+    if (previousFs.equals(fs)) {
+      success = fs.rename(newManifest, previousManifest);
+    } else { 
+      success = FileUtil.copy(fs, newManifest, previousFs, previousManifest, false, conf);
+    }
+    if (!success) {
+      LOG.error("Cannot publish new manifest {} to {}", newManifest, previousManifest);
+      return false;
+    }
+    if (previousFs.exists(backup) && !previousFs.delete(backup, false)) {
+      LOG.warn("Cannot delete backup of previous manifest: {}", backup);
+    }
+    return true;
+  }
+  
+  
+  ///////////////////////////////////////////////////////////////////////////////
+  // Nested classes:
+  ///////////////////////////////////////////////////////////////////////////////
+  /** Receives the input files that need to be indexed */
+  static interface Listener {
+    
+    void add(String line) throws IOException;
+  }
+  
+  
+  /** Reads manifest lines from a sorted text file, a sorted SequenceFile, or nothing */
+  private static final class LineReader {
+    
+    private final BufferedReader textReader;
+    private final SequenceFile.Reader sequenceFileReader;
+    private final Text key = new Text();
+    private final Text value = new Text();
+    private final Text lastPath = new Text();
+    
+    public LineReader() {
+      this.textReader = null;
+      this.sequenceFileReader = null;
+    }
+    
+    public LineReader(BufferedReader textReader) {
+      this.textReader = textReader;
+      this.sequenceFileReader = null;
+    }
+    
+    public LineReader(SequenceFile.Reader sequenceFileReader) {
+      this.textReader = null;
+      this.sequenceFileReader = sequenceFileReader;
+    }
+    
+    /** Returns the next line, or null at the end */
+    public String readLine() throws IOException {
+      if (textReader != null) {
+        return textReader.readLine();
+      } else if (sequenceFileReader != null) {
+        return sequenceFileReader.next(key, value) ? value.toString() : null;
+      } else {
+        return null;
+      }
+    }
+    
+    /** Returns the next line that carries metadata and a path other than the previous one, or null at the end */
+    public String readEntry() throws IOException {
+      String line;
+      while ((line = readLine()) != null) {
+        if (InputFileLine.getFileStatus(line) != null && !lastPath.equals(new Text(InputFileLine.getPath(line)))) {
+          lastPath.set(InputFileLine.getPath(line));
+          return line;
+        }
+      }
+      return null;
+    }
+    
+    public void close() throws IOException {
+      if (textReader != null) {
+        textReader.close();
+      } else if (sequenceFileReader != null) {
+        sequenceFileReader.close();
+      }
+    }
+  }
+
+}
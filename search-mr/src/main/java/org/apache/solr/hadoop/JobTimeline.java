@@ -0,0 +1,462 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.Counters;
+import org.apache.hadoop.mapred.JobClient;
+import org.apache.hadoop.mapred.JobID;
+import org.apache.hadoop.mapred.TaskReport;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.CounterGroup;
+import org.apache.hadoop.mapreduce.Job;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the start and finish times of each phase of a MapReduceIndexerTool run, along with the
+ * counters and task reports of the MR job run by the phase, if any, and writes them as a JSON and
+ * an HTML timeline.
+ * 
+ * For each stage (map or reduce) of a job the timeline reports the distribution of task durations,
+ * the slowest tasks with their status (which for indexing mappers names the input split) and
+ * counters, and the task that finished last, i.e. the task on the critical path of the phase.
+ */
+final class JobTimeline {
+
+  public static final String TIMELINE_JSON = "timeline.json";
+  public static final String TIMELINE_HTML = "timeline.html";
+  
+  static final String MAP = "map";
+  static final String REDUCE = "reduce";
+  
+  private static final int NUM_SLOWEST_TASKS = 5;
+  
+  private final long startTime;
+  private final List<Phase> phases = new ArrayList<Phase>();
+  
+  private static final Logger LOG = LoggerFactory.getLogger(JobTimeline.class);
+
+  public JobTimeline(long startTime) {
+    this.startTime = startTime;
+  }
+  
+  /** Adds a phase that ran in the client only, for example listing the input files */
+  public Phase addPhase(String name, long startTime, long finishTime) {
+    Phase phase = new Phase(name, startTime, finishTime);
+    phases.add(phase);
+    return phase;
+  }
+  
+  /**
+   * Adds a phase that ran the given completed job, along with the job counters and task reports.
+   * Failure to fetch the latter is logged but otherwise ignored, as the timeline is informational.
+   */
+  public Phase addJob(String name, Job job, long startTime, long finishTime) {
+    Phase phase = addPhase(name, startTime, finishTime);
+    phase.jobId = job.getJobID() == null ? null : job.getJobID().toString();
+    phase.jobName = job.getJobName();
+    try {
+      addJobDetails(phase, job);
+    } catch (IOException e) {
+      LOG.warn("Cannot fetch counters and task reports of job " + phase.jobId + " for timeline", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOG.warn("Interrupted while fetching counters of job " + phase.jobId + " for timeline", e);
+    }
+    return phase;
+  }
+  
+  private void addJobDetails(Phase phase, Job job) throws IOException, InterruptedException {
+    for (CounterGroup group : job.getCounters()) {
+      for (Counter counter : group) {
+        phase.addCounter(group.getName(), counter.getName(), counter.getValue());
+      }
+    }
+    JobClient client = new JobClient(job.getConfiguration());
+    try {
+      JobID jobId = JobID.downgrade(job.getJobID());
+      addTasks(phase, MAP, client.getMapTaskReports(jobId));
+      addTasks(phase, REDUCE, client.getReduceTaskReports(jobId));
+    } finally {
+      client.close();
+    }
+  }
+  
+  private void addTasks(Phase phase, String type, TaskReport[] reports) {
+    for (TaskReport report : reports) {
+      Task task = phase.addTask(type, report.getTaskID().toString(), report.getStartTime(), report.getFinishTime(),
+          report.getCurrentStatus().toString(), report.getState());
+      Counters counters = report.getCounters();
+      if (counters != null) {
+        for (Counters.Group group : counters) {
+          for (Counters.Counter counter : group) {
+            task.addCounter(group.getName(), counter.getName(), counter.getValue());
+          }
+        }
+      }
+    }
+  }
+  
+  public List<Phase> getPhases() {
+    return phases;
+  }
+  
+  /** Writes the timeline into the given directory as JSON and HTML files */
+  public void write(Path dir, Configuration conf) throws IOException {
+    FileSystem fs = dir.getFileSystem(conf);
+    Writer writer = new BufferedWriter(new OutputStreamWriter(fs.create(new Path(dir, TIMELINE_JSON)), "UTF-8"));
+    try {
+      writeJson(writer);
+    } finally {
+      writer.close();
+    }
+    writer = new BufferedWriter(new OutputStreamWriter(fs.create(new Path(dir, TIMELINE_HTML)), "UTF-8"));
+    try {
+      writeHtml(writer);
+    } finally {
+      writer.close();
+    }
+  }
+  
+  void writeJson(Writer writer) throws IOException {
+    long finishTime = getFinishTime();
+    writer.write("{\n");
+    writer.write("  \"startTime\" : " + startTime + ",\n");
+    writer.write("  \"finishTime\" : " + finishTime + ",\n");
+    writer.write("  \"millis\" : " + (finishTime - startTime) + ",\n");
+    writer.write("  \"phases\" : [");
+    String phaseSep = "";
+    for (Phase phase : phases) {
+      writer.write(phaseSep + "\n    {\n");
+      writer.write("      \"name\" : " + quote(phase.name) + ",\n");
+      if (phase.jobId != null) {
+        writer.write("      \"jobId\" : " + quote(phase.jobId) + ",\n");
+        writer.write("      \"jobName\" : " + quote(phase.jobName) + ",\n");
+      }
+      writer.write("      \"startTime\" : " + phase.startTime + ",\n");
+      writer.write("      \"finishTime\" : " + phase.finishTime + ",\n");
+      writer.write("      \"millis\" : " + phase.getMillis() + ",\n");
+      writer.write("      \"stages\" : {");
+      String stageSep = "";
+      for (String type : new String[] {MAP, REDUCE}) {
+        List<Task> tasks = phase.getTasks(type);
+        if (tasks.isEmpty()) {
+          continue;
+        }
+        List<Task> slowest = getSlowestTasks(tasks);
+        writer.write(stageSep + "\n        " + quote(type) + " : {\n");
+        writer.write("          \"tasks\" : " + tasks.size() + ",\n");
+        writer.write("          \"minMillis\" : " + getPercentile(tasks, 0) + ",\n");
+        writer.write("          \"medianMillis\" : " + getPercentile(tasks, 50) + ",\n");
+        writer.write("          \"maxMillis\" : " + getPercentile(tasks, 100) + ",\n");
+        writer.write("          \"skew\" : " + String.format(Locale.ROOT, "%.2f", getSkew(tasks)) + ",\n");
+        writer.write("          \"criticalTask\" : " + quote(getCriticalTask(tasks).id) + ",\n");
+        writer.write("          \"slowestTasks\" : [");
+        String taskSep = "";
+        for (Task task : slowest) {
+          writer.write(taskSep + "\n            { \"id\" : " + quote(task.id) 
+              + ", \"millis\" : " + task.getMillis() 
+              + ", \"status\" : " + quote(task.status) 
+              + ", \"counters\" : ");
+          writeCounters(task.counters, writer);
+          writer.write(" }");
+          taskSep = ",";
+        }
+        writer.write("\n          ],\n");
+        writer.write("          \"allTasks\" : [");
+        taskSep = "";
+        for (Task task : tasks) {
+          writer.write(taskSep + "\n            { \"id\" : " + quote(task.id) 
+              + ", \"startTime\" : " + task.startTime 
+              + ", \"finishTime\" : " + task.finishTime 
+              + ", \"millis\" : " + task.getMillis() 
+              + ", \"state\" : " + quote(task.state) 
+              + ", \"status\" : " + quote(task.status) + " }");
+          taskSep = ",";
+        }
+        writer.write("\n          ]\n");
+        writer.write("        }");
+        stageSep = ",";
+      }
+      writer.write(stageSep.length() == 0 ? "},\n" : "\n      },\n");
+      writer.write("      \"counters\" : ");
+      writeCounters(phase.counters, writer);
+      writer.write("\n    }");
+      phaseSep = ",";
+    }
+    writer.write("\n  ]\n}\n");
+  }
+  
+  private void writeCounters(Map<String, Map<String, Long>> counters, Writer writer) throws IOException {
+    writer.write("{");
+    String groupSep = "";
+    for (Map.Entry<String, Map<String, Long>> group : counters.entrySet()) {
+      writer.write(groupSep + " " + quote(group.getKey()) + " : {");
+      String sep = "";
+      for (Map.Entry<String, Long> counter : group.getValue().entrySet()) {
+        writer.write(sep + " " + quote(counter.getKey()) + " : " + counter.getValue());
+        sep = ",";
+      }
+      writer.write(" }");
+      groupSep = ",";
+    }
+    writer.write(" }");
+  }
+  
+  void writeHtml(Writer writer) throws IOException {
+    long finishTime = getFinishTime();
+    double scale = 100.0 / Math.max(1, finishTime - startTime); // percent of total width per milli
+    writer.write("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n");
+    writer.write("<title>MapReduceIndexerTool timeline</title>\n");
+    writer.write("<style>\n");
+    writer.write("body { font-family: sans-serif; font-size: 12px; }\n");
+    writer.write("table { border-collapse: collapse; width: 100%; }\n");
+    writer.write("td, th { padding: 2px 6px; text-align: left; white-space: nowrap; }\n");
+    writer.write("td.bar { width: 60%; position: relative; }\n");
+    writer.write("div.bar { position: absolute; top: 3px; height: 10px; background: #4a7ebb; }\n");
+    writer.write("tr.phase { background: #eee; font-weight: bold; }\n");
+    writer.write("tr.critical div.bar { background: #c0504d; }\n");
+    writer.write("tr.critical td { color: #c0504d; }\n");
+    writer.write("</style>\n</head>\n<body>\n");
+    writer.write(String.format(Locale.ROOT, "<h1>MapReduceIndexerTool timeline: %.3f secs</h1>\n", 
+        (finishTime - startTime) / 1000.0));
+    writer.write("<p>Shows each phase, and for each stage of a job the task duration distribution and the " 
+        + NUM_SLOWEST_TASKS + " slowest tasks. The task that finished last, and thus was on the critical path, " 
+        + "is highlighted.</p>\n");
+    writer.write("<table>\n<tr><th>Phase / task</th><th>Secs</th><th>Details</th><th></th></tr>\n");
+    for (Phase phase : phases) {
+      String details = phase.jobId == null ? "" : phase.jobId + " " + phase.jobName;
+      writeHtmlRow("phase", phase.name, phase.startTime, phase.finishTime, details, scale, writer);
+      for (String type : new String[] {MAP, REDUCE}) {
+        List<Task> tasks = phase.getTasks(type);
+        if (tasks.isEmpty()) {
+          continue;
+        }
+        Task critical = getCriticalTask(tasks);
+        writer.write(String.format(Locale.ROOT, 
+            "<tr><td>&nbsp;&nbsp;%s: %d tasks</td><td></td><td>min %.3f, median %.3f, max %.3f secs, skew %.2f</td><td></td></tr>\n", 
+            type, tasks.size(), getPercentile(tasks, 0) / 1000.0, getPercentile(tasks, 50) / 1000.0, 
+            getPercentile(tasks, 100) / 1000.0, getSkew(tasks)));
+        List<Task> slowest = getSlowestTasks(tasks);
+        if (!slowest.contains(critical)) {
+          slowest.add(critical);
+        }
+        for (Task task : slowest) {
+          writeHtmlRow(task == critical ? "critical" : "task", "&nbsp;&nbsp;&nbsp;&nbsp;" + escapeHtml(task.id), 
+              task.startTime, task.finishTime, task.status, scale, writer);
+        }
+      }
+    }
+    writer.write("</table>\n</body>\n</html>\n");
+  }
+  
+  private void writeHtmlRow(String cssClass, String name, long start, long finish, String details, double scale, 
+      Writer writer) throws IOException {
+    writer.write(String.format(Locale.ROOT, 
+        "<tr class=\"%s\"><td>%s</td><td>%.3f</td><td>%s</td>" 
+        + "<td class=\"bar\"><div class=\"bar\" style=\"left: %.2f%%; width: %.2f%%\"></div></td></tr>\n",
+        cssClass, name, (finish - start) / 1000.0, escapeHtml(details), 
+        (start - startTime) * scale, Math.max(0.1, (finish - start) * scale)));
+  }
+  
+  private long getFinishTime() {
+    long finishTime = startTime;
+    for (Phase phase : phases) {
+      finishTime = Math.max(finishTime, phase.finishTime);
+    }
+    return finishTime;
+  }
+  
+  /** Returns the tasks with the longest durations, longest first */
+  private List<Task> getSlowestTasks(List<Task> tasks) {
+    List<Task> sorted = new ArrayList<Task>(tasks);
+    Collections.sort(sorted, new Comparator<Task>() {
+      @Override
+      public int compare(Task t1, Task t2) {
+        long m1 = t1.getMillis();
+        long m2 = t2.getMillis();
+        return m1 > m2 ? -1 : (m1 < m2 ? 1 : t1.id.compareTo(t2.id)); // descending
+      }
+    });
+    return new ArrayList<Task>(sorted.subList(0, Math.min(NUM_SLOWEST_TASKS, sorted.size())));
+  }
+  
+  /** Returns the task that finished last, i.e. the task that determined the end of the stage */
+  private Task getCriticalTask(List<Task> tasks) {
+    Task critical = tasks.get(0);
+    for (Task task : tasks) {
+      if (task.finishTime > critical.finishTime) {
+        critical = task;
+      }
+    }
+    return critical;
+  }
+  
+  private long getPercentile(List<Task> tasks, int percentile) {
+    long[] millis = new long[tasks.size()];
+    for (int i = 0; i < millis.length; i++) {
+      millis[i] = tasks.get(i).getMillis();
+    }
+    Arrays.sort(millis);
+    return millis[(int) Math.round((millis.length - 1) * percentile / 100.0)];
+  }
+  
+  /** Returns the ratio of the slowest to the median task duration; 1.0 means perfectly balanced */
+  private double getSkew(List<Task> tasks) {
+    return getPercentile(tasks, 100) / (double) Math.max(1, getPercentile(tasks, 50));
+  }
+  
+  static String quote(String str) {
+    if (str == null) {
+      return "null";
+    }
+    StringBuilder buf = new StringBuilder(str.length() + 2);
+    buf.append('"');
+    for (int i = 0; i < str.length(); i++) {
+      char c = str.charAt(i);
+      switch (c) {
+        case '"' : buf.append("\\\""); break;
+        case '\\': buf.append("\\\\"); break;
+        case '\n': buf.append("\\n"); break;
+        case '\r': buf.append("\\r"); break;
+        case '\t': buf.append("\\t"); break;
+        default:
+          if (c < 0x20) {
+            buf.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+          } else {
+            buf.append(c);
+          }
+      }
+    }
+    buf.append('"');
+    return buf.toString();
+  }
+  
+  private static void addCounter(Map<String, Map<String, Long>> counters, String group, String name, long value) {
+    Map<String, Long> values = counters.get(group);
+    if (values == null) {
+      values = new LinkedHashMap<String, Long>();
+      counters.put(group, values);
+    }
+    values.put(name, value);
+  }
+  
+  private static String escapeHtml(String str) {
+    if (str == null) {
+      return "";
+    }
+    return str.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+  }
+  
+  
+  ///////////////////////////////////////////////////////////////////////////////
+  // Nested classes:
+  ///////////////////////////////////////////////////////////////////////////////
+  static final class Phase {
+    
+    private final String name;
+    private final long startTime;
+    private final long finishTime;
+    private String jobId;
+    private String jobName;
+    private final Map<String, Map<String, Long>> counters = new LinkedHashMap<String, Map<String, Long>>();
+    private final List<Task> tasks = new ArrayList<Task>();
+    
+    private Phase(String name, long startTime, long finishTime) {
+      this.name = name;
+      this.startTime = startTime;
+      this.finishTime = finishTime;
+    }
+    
+    public String getName() {
+      return name;
+    }
+    
+    public long getMillis() {
+      return finishTime - startTime;
+    }
+    
+    void addCounter(String group, String name, long value) {
+      JobTimeline.addCounter(counters, group, name, value);
+    }
+    
+    Task addTask(String type, String id, long startTime, long finishTime, String state, String status) {
+      Task task = new Task(type, id, startTime, finishTime, state, status);
+      tasks.add(task);
+      return task;
+    }
+    
+    List<Task> getTasks(String type) {
+      List<Task> results = new ArrayList<Task>();
+      for (Task task : tasks) {
+        if (task.type.equals(type) && task.finishTime > 0) { // ignore tasks that never ran
+          results.add(task);
+        }
+      }
+      return results;
+    }
+  }
+  
+  
+  ///////////////////////////////////////////////////////////////////////////////
+  // Nested classes:
+  ///////////////////////////////////////////////////////////////////////////////
+  static final class Task {
+    
+    private final String type;
+    private final String id;
+    private final long startTime;
+    private final long finishTime;
+    private final String state;
+    private final String status;
+    private final Map<String, Map<String, Long>> counters = new LinkedHashMap<String, Map<String, Long>>();
+    
+    private Task(String type, String id, long startTime, long finishTime, String state, String status) {
+      this.type = type;
+      this.id = id;
+      this.startTime = startTime;
+      this.finishTime = finishTime;
+      this.state = state;
+      this.status = status;
+    }
+    
+    public long getMillis() {
+      return finishTime - startTime;
+    }
+    
+    void addCounter(String group, String name, long value) {
+      JobTimeline.addCounter(counters, group, name, value);
+    }
+  }
+  
+}
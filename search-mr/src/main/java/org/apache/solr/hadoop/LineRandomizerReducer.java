@@ -19,7 +19,6 @@ package org.apache.solr.hadoop;
 import java.io.IOException;
 
 import org.apache.hadoop.io.LongWritable;
-import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.slf4j.Logger;
@@ -31,17 +30,21 @@ import org.slf4j.LoggerFactory;
  * Reducer input is (randomPosition, URL) pairs. Each such pair indicates a file
  * to index.
  * 
- * Reducer output is a list of URLs, each URL in a random position.
+ * Reducer output is a list of (position, URL) pairs, each URL in a random position,
+ * in the format written by {@link InputFileListWriter}.
  */
-public class LineRandomizerReducer extends Reducer<LongWritable, Text, Text, NullWritable> {
+public class LineRandomizerReducer extends Reducer<LongWritable, Text, LongWritable, Text> {
 
+  private final LongWritable position = new LongWritable(0);
+  
   private static final Logger LOGGER = LoggerFactory.getLogger(LineRandomizerReducer.class);
 
   @Override
   protected void reduce(LongWritable key, Iterable<Text> values, Context context) throws IOException, InterruptedException {
     for (Text value : values) {
       LOGGER.debug("reduce key: {}, value: {}", key, value);
-      context.write(value, NullWritable.get());
+      context.write(position, value);
+      position.set(position.get() + 1);
     }
   }
 }
\ No newline at end of file
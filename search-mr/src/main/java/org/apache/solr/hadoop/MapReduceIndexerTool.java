@@ -35,9 +35,9 @@ import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 
 import net.sourceforge.argparse4j.ArgumentParsers;
 import net.sourceforge.argparse4j.impl.Arguments;
@@ -60,19 +60,24 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.PathFilter;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.input.NLineInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
-import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.apache.hadoop.util.GenericOptionsParser;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.PropertyConfigurator;
 import org.apache.solr.common.cloud.SolrZkClient;
 import org.apache.solr.hadoop.dedup.RetainMostRecentUpdateConflictResolver;
+import org.apache.solr.hadoop.morphline.MetricsReport;
 import org.apache.solr.hadoop.morphline.MorphlineMapRunner;
 import org.apache.solr.hadoop.morphline.MorphlineMapper;
 import org.slf4j.Logger;
@@ -90,6 +95,9 @@ import com.cloudera.cdk.morphline.base.Fields;
 public class MapReduceIndexerTool extends Configured implements Tool {
   
   Job job; // visible for testing only
+  Job indexingJob; // visible for testing only
+  JobTimeline timeline; // visible for testing only
+  final Map<String, Long> phaseTimes = new LinkedHashMap<String, Long>(); // elapsed millis per phase; visible for testing only
   
   public static final String RESULTS_DIR = "results";
 
@@ -97,6 +105,11 @@ public class MapReduceIndexerTool extends Configured implements Tool {
       MapReduceIndexerTool.class.getName() + ".mainMemoryRandomizationThreshold";
   
   private static final String FULL_INPUT_LIST = "full-input-list.txt";
+  private static final String FULL_INPUT_LIST_SEQ = "full-input-list.seq";
+  private static final String MANIFEST = "manifest.txt";
+  private static final String OBSOLETE_IDS = "obsolete-ids.txt";
+  private static final String METRICS_DIR = "metrics";
+  private static final String METRICS_REPORT = "metrics-report.txt";
   
   private static final Logger LOG = LoggerFactory.getLogger(MapReduceIndexerTool.class);
 
@@ -131,8 +144,11 @@ public class MapReduceIndexerTool extends Configured implements Tool {
           "It also supports merging the output shards into a set of live customer facing Solr servers, " +
           "typically a SolrCloud. The program proceeds in several consecutive MapReduce based phases, as follows:" +
           "\n\n" +
-          "1) Randomization phase: This (parallel) phase randomizes the list of input files in order to spread " +
-          "indexing load more evenly among the mappers of the subsequent phase." +  
+          "1) Randomization phase: This phase distributes the list of input files across the mappers of the subsequent " +
+          "phase in order to spread indexing load evenly among them. If there are few input files, files are assigned " +
+          "in main memory such that each mapper receives roughly the same number of bytes (largest files first). " +
+          "Otherwise, a parallel MapReduce job randomizes the order of the input files and writes one list of " +
+          "input files per mapper." +  
           "\n\n" +
           "2) Mapper phase: This (parallel) phase takes the input files, extracts the relevant content, transforms it " +
           "and hands SolrInputDocuments to a set of reducers. " +
@@ -276,8 +292,34 @@ public class MapReduceIndexerTool extends Configured implements Tool {
         .type(Path.class)
         .help("Local URI or HDFS URI of a UTF-8 encoded file containing a list of HDFS URIs to index, " +
               "one URI per line in the file. If '-' is specified, URIs are read from the standard input. " + 
+              "If an HDFS URI of a directory is specified, all files in the directory are read, except for hidden files " +
+              "and files starting with '_', for example the part files written by the -mapreduce option of " + 
+              HdfsFindTool.class.getSimpleName() + ". " + 
+              "Optionally, a URI can be followed by tab separated metadata of the file, in the form " +
+              "'URI<TAB>length<TAB>modificationTime<TAB>owner<TAB>group<TAB>octalPermission', in which case mappers " +
+              "don't need to fetch this metadata from the NameNode. " +
               "Multiple --input-list arguments can be specified.");
         
+      Argument manifestArg = parser.addArgument("--manifest")
+        .metavar("HDFS_URI")
+        .type(new PathArgumentType(conf).verifyHasScheme().verifyIsAbsolute().verifyCanWriteParent())
+        .help("HDFS URI of a file that records the input files (along with their length and modification time) " +
+              "indexed by this run. The file is written at the end of each successful run, replacing the previous " +
+              "version. Also see --incremental. Example: hdfs://c2202.mycompany.com/user/$USER/manifest.txt");
+      
+      Argument incrementalArg = parser.addArgument("--incremental")
+        .action(Arguments.storeTrue())
+        .help("Only index input files that are new or whose length or modification time has changed since the " +
+              "run that wrote the --manifest file. The unique keys of documents stemming from files that have been " +
+              "deleted or modified since then are written to a file in the output directory, and deleted from the " +
+              "live Solr cluster if --go-live is specified. If there are such deletes and --go-live is not " +
+              "specified, the --manifest file is left unchanged so the next run reports the same deletes again, " +
+              "and indexes the same new or modified files again. " +
+              "These deletes assume that each input file maps to a " +
+              "single document whose unique key is derived from the file URI, which is the default unless the " +
+              "morphline specifies a different unique key. Input files without metadata (e.g. plain URIs from an " +
+              "--input-list) are always indexed. Requires --manifest.");
+        
       Argument morphlineFileArg = requiredGroup.addArgument("--morphline-file")
         .metavar("FILE")
         .type(new FileArgumentType().verifyExists().verifyIsFile().verifyCanRead())
@@ -518,6 +560,13 @@ public class MapReduceIndexerTool extends Configured implements Tool {
       opts.goLive = ns.getBoolean(goLiveArg.getDest());
       opts.goLiveThreads = ns.getInt(goLiveThreadsArg.getDest());
       opts.collection = ns.getString(collectionArg.getDest());
+      opts.manifest = (Path) ns.get(manifestArg.getDest());
+      opts.isIncremental = ns.getBoolean(incrementalArg.getDest());
+      
+      if (opts.isIncremental && opts.manifest == null) {
+        parser.handleError(new ArgumentParserException("--incremental requires that you also pass --manifest", parser));
+        return 1;
+      }
 
       try {
         verifyGoLiveArgs(opts, parser);
@@ -582,6 +631,8 @@ public class MapReduceIndexerTool extends Configured implements Tool {
     boolean isDryRun;
     File log4jConfigFile;
     boolean isVerbose;
+    Path manifest;
+    boolean isIncremental;
   }
   // END OF INNER CLASS  
 
@@ -614,6 +665,7 @@ public class MapReduceIndexerTool extends Configured implements Tool {
     }
 
     long programStartTime = System.currentTimeMillis();
+    timeline = new JobTimeline(programStartTime);
     if (options.fairSchedulerPool != null) {
       getConf().set("mapred.fairscheduler.pool", options.fairSchedulerPool);
     }
@@ -661,12 +713,37 @@ public class MapReduceIndexerTool extends Configured implements Tool {
     Path outputStep1Dir = new Path(options.outputDir, "tmp1");    
     Path outputStep2Dir = new Path(options.outputDir, "tmp2");    
     Path outputTreeMergeStep = new Path(options.outputDir, "mtree-merge-output");
-    Path fullInputList = new Path(outputStep1Dir, FULL_INPUT_LIST);
+    Path fullInputList = new Path(outputStep1Dir, FULL_INPUT_LIST_SEQ);
     
     LOG.debug("Creating list of input files for mappers: {}", fullInputList);
-    long numFiles = addInputFiles(options.inputFiles, options.inputLists, fullInputList, job.getConfiguration());
+    long startTime = System.currentTimeMillis();
+    InputFileBalancer balancer = new InputFileBalancer(
+        job.getConfiguration().getInt(MAIN_MEMORY_RANDOMIZATION_THRESHOLD, 100001) - 1);
+    InputFileManifest manifest = null;
+    if (options.manifest != null) {
+      manifest = new InputFileManifest(
+          options.manifest, options.isIncremental, new Path(options.outputDir, MANIFEST), job.getConfiguration());
+    }
+    long numFiles = addInputFiles(
+        options.inputFiles, options.inputLists, fullInputList, balancer, manifest, job.getConfiguration());
+    addPhaseTime("listing", startTime);
+    List<String> obsoleteIds = Collections.emptyList();
+    if (manifest != null) {
+      obsoleteIds = writeObsoleteIds(manifest.getDeletedOrModifiedFiles(), new Path(options.outputDir, OBSOLETE_IDS), fs);
+      LOG.info("Found {} new or modified input files, and {} obsolete documents from deleted or modified input files", 
+          numFiles, obsoleteIds.size());
+    }
     if (numFiles == 0) {
       LOG.info("No input files found - nothing to process");
+      if (obsoleteIds.size() > 0 && !isDeletePending(obsoleteIds, options)) {
+        if (!new GoLive().goLive(options, new FileStatus[0], obsoleteIds)) {
+          return -1;
+        }
+      }
+      if (!publishManifest(manifest, obsoleteIds, options)) {
+        return -1;
+      }
+      writeTimeline(options.outputDir);
       return 0;
     }
     int numLinesPerSplit = (int) ceilDivide(numFiles, mappers);
@@ -684,27 +761,27 @@ public class MapReduceIndexerTool extends Configured implements Tool {
         
     
     LOG.info("Randomizing list of {} input files to spread indexing load more evenly among mappers", numFiles);
-    long startTime = System.currentTimeMillis();      
-    if (numFiles < job.getConfiguration().getInt(MAIN_MEMORY_RANDOMIZATION_THRESHOLD, 100001)) {
-      // If there are few input files reduce latency by directly running main memory randomization 
-      // instead of launching a high latency MapReduce job
-      randomizeFewInputFiles(fs, outputStep2Dir, fullInputList);
+    startTime = System.currentTimeMillis();      
+    Job randomizerJob = null;
+    if (!balancer.isOverflowed()) {
+      // If there are few input files reduce latency by directly assigning files to mappers in main memory 
+      // instead of launching a high latency MapReduce job. Each split gets its own file, and thus its own mapper.
+      balanceFewInputFiles(fs, outputStep2Dir, balancer, realMappers);
     } else {
       // Randomize using a MapReduce job. Use sequential algorithm below a certain threshold because there's no
-      // benefit in using many parallel mapper tasks just to randomize the order of a few lines each
-      int numLinesPerRandomizerSplit = Math.max(10 * 1000 * 1000, numLinesPerSplit);
-      Job randomizerJob = randomizeManyInputFiles(getConf(), fullInputList, outputStep2Dir, numLinesPerRandomizerSplit);
+      // benefit in using many parallel mapper tasks just to randomize the order of a few lines each.
+      // Each randomizer reducer writes one part file, and thus feeds one indexing mapper.
+      randomizerJob = randomizeManyInputFiles(getConf(), fullInputList, outputStep2Dir, realMappers);
       if (!waitForCompletion(randomizerJob, options.isVerbose)) {
         return -1; // job failed
       }
     }
-    float secs = (System.currentTimeMillis() - startTime) / 1000.0f;
+    float secs = addPhaseTime("randomization", startTime, randomizerJob) / 1000.0f;
     LOG.info("Done. Randomizing list of {} input files took {} secs", numFiles, secs);
     
     
-    job.setInputFormatClass(NLineInputFormat.class);
-    NLineInputFormat.addInputPath(job, outputStep2Dir);
-    NLineInputFormat.setNumLinesPerSplit(job, numLinesPerSplit);    
+    job.setInputFormatClass(UnsplittableSequenceFileInputFormat.class);
+    FileInputFormat.addInputPath(job, outputStep2Dir);
     FileOutputFormat.setOutputPath(job, outputReduceDir);
     
     String mapperClass = job.getConfiguration().get(JobContext.MAP_CLASS_ATTR);
@@ -774,17 +851,31 @@ public class MapReduceIndexerTool extends Configured implements Tool {
     }          
     job.getConfiguration().set(MorphlineMapRunner.MORPHLINE_FILE_PARAM, options.morphlineFile.getName());
 
+    // snapshots are side files of the mappers, so only the ones of committed task attempts are merged
+    String taskMetricsDir = "_" + METRICS_DIR;
+    job.getConfiguration().set(MetricsReport.METRICS_DIR, taskMetricsDir);
     job.setNumReduceTasks(reducers);  
     job.setOutputKeyClass(Text.class);
     job.setOutputValueClass(SolrInputDocumentWritable.class);
     LOG.info("Indexing {} files using {} real mappers into {} reducers", new Object[] {numFiles, realMappers, reducers});
     startTime = System.currentTimeMillis();
+    indexingJob = job;
     if (!waitForCompletion(job, options.isVerbose)) {
       return -1; // job failed
     }
 
-    secs = (System.currentTimeMillis() - startTime) / 1000.0f;
+    secs = addPhaseTime("indexing", startTime, job) / 1000.0f;
     LOG.info("Done. Indexing {} files using {} real mappers into {} reducers took {} secs", new Object[] {numFiles, realMappers, reducers, secs});
+    
+    Path metricsReport = new Path(options.outputDir, METRICS_REPORT);
+    Path committedMetricsDir = new Path(outputReduceDir, taskMetricsDir);
+    int numSnapshots = MetricsReport.aggregate(committedMetricsDir, metricsReport, job.getConfiguration());
+    if (numSnapshots > 0) {
+      LOG.info("Merged morphline metrics of {} mappers into {}", numSnapshots, metricsReport);
+      if (!rename(committedMetricsDir, new Path(options.outputDir, METRICS_DIR), fs)) {
+        return -1;
+      }
+    }
 
     int mtreeMergeIterations = 0;
     if (reducers > options.shards) {
@@ -820,7 +911,7 @@ public class MapReduceIndexerTool extends Configured implements Tool {
       if (!waitForCompletion(job, options.isVerbose)) {
         return -1; // job failed
       }
-      secs = (System.currentTimeMillis() - startTime) / 1000.0f;
+      secs = addPhaseTime("treeMerge", startTime, job) / 1000.0f;
       LOG.info("MTree merge iteration {}/{}: Done. Merging {} shards into {} shards using fanout {} took {} secs",
           new Object[] {mtreeMergeIteration, mtreeMergeIterations, reducers, (reducers / options.fanout), options.fanout, secs});
       
@@ -856,10 +947,18 @@ public class MapReduceIndexerTool extends Configured implements Tool {
       return -1;
     }
 
-    if (options.goLive && !new GoLive().goLive(options, listSortedOutputShardDirs(outputResultsDir, fs))) {
+    if (options.goLive) {
+      startTime = System.currentTimeMillis();
+      if (!new GoLive().goLive(options, listSortedOutputShardDirs(outputResultsDir, fs), obsoleteIds)) {
+        return -1;
+      }
+      addPhaseTime("goLive", startTime);
+    }
+    if (!publishManifest(manifest, obsoleteIds, options)) {
       return -1;
     }
     
+    writeTimeline(options.outputDir);
     goodbye(job, programStartTime);    
     return 0;
   }
@@ -906,14 +1005,13 @@ public class MapReduceIndexerTool extends Configured implements Tool {
     options.reducers = reducers;
   }
   
-  private long addInputFiles(List<Path> inputFiles, List<Path> inputLists, Path fullInputList, Configuration conf) 
-      throws IOException {
+  private long addInputFiles(List<Path> inputFiles, List<Path> inputLists, Path fullInputList, 
+      final InputFileBalancer balancer, InputFileManifest manifest, Configuration conf) throws IOException {
     
     long numFiles = 0;
     FileSystem fs = fullInputList.getFileSystem(conf);
-    FSDataOutputStream out = fs.create(fullInputList);
+    final InputFileListWriter writer = new InputFileListWriter(fs, fullInputList, conf);
     try {
-      Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
       
       for (Path inputFile : inputFiles) {
         FileSystem inputFileFs = inputFile.getFileSystem(conf);
@@ -924,80 +1022,168 @@ public class MapReduceIndexerTool extends Configured implements Tool {
               return !path.getName().startsWith("."); // ignore "hidden" files and dirs
             }
           };
-          numFiles += addInputFilesRecursively(inputFile, writer, inputFileFs, pathFilter);
+          numFiles += addInputFilesRecursively(inputFile, writer, balancer, manifest, inputFileFs, pathFilter);
         }
       }
 
       for (Path inputList : inputLists) {
-        InputStream in;
         if (inputList.toString().equals("-")) {
-          in = System.in;
+          numFiles += addInputList(System.in, writer, balancer, manifest);
         } else if (inputList.isAbsoluteAndSchemeAuthorityNull()) {
-          in = new BufferedInputStream(new FileInputStream(inputList.toString()));
+          numFiles += addInputList(new BufferedInputStream(new FileInputStream(inputList.toString())), writer, balancer, manifest);
         } else {
-          in = inputList.getFileSystem(conf).open(inputList);
-        }
-        try {
-          BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
-          String line;
-          while ((line = reader.readLine()) != null) {
-            writer.write(line + "\n");
-            numFiles++;
+          FileSystem inputListFs = inputList.getFileSystem(conf);
+          FileStatus[] parts;
+          if (inputListFs.getFileStatus(inputList).isDirectory()) {
+            // e.g. the part files written by the -mapreduce expression of HdfsFindTool
+            parts = inputListFs.listStatus(inputList, new PathFilter() {      
+              @Override
+              public boolean accept(Path path) {
+                return !path.getName().startsWith(".") && !path.getName().startsWith("_"); // ignore hidden files and _SUCCESS
+              }
+            });
+            Arrays.sort(parts); // by path, for reproducability
+          } else {
+            parts = new FileStatus[] { inputListFs.getFileStatus(inputList) };
+          }
+          for (FileStatus part : parts) {
+            numFiles += addInputList(inputListFs.open(part.getPath()), writer, balancer, manifest);
           }
-          reader.close();
-        } finally {
-          in.close();
         }
       }
       
-      writer.close();
+      if (manifest != null) { // only pass on files that are new or modified since the previous run
+        numFiles = manifest.close(new InputFileManifest.Listener() {
+          @Override
+          public void add(String line) throws IOException {
+            addInputFile(line, writer, balancer, null);
+          }
+        });
+      }
     } finally {
-      out.close();
+      writer.close();
     }    
     return numFiles;
   }
   
+  /** Adds the input files listed in the given stream, one per line, and closes the stream */
+  private long addInputList(InputStream in, InputFileListWriter writer, InputFileBalancer balancer, 
+      InputFileManifest manifest) throws IOException {
+    long numFiles = 0;
+    try {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+      String line;
+      while ((line = reader.readLine()) != null) {
+        addInputFile(line, writer, balancer, manifest);
+        numFiles++;
+      }
+      reader.close();
+    } finally {
+      in.close();
+    }
+    return numFiles;
+  }
+  
   /**
    * Add the specified file to the input set, if path is a directory then
    * add the files contained therein.
    */
-  private long addInputFilesRecursively(Path path, Writer writer, FileSystem fs, PathFilter pathFilter) throws IOException {
+  private long addInputFilesRecursively(Path path, InputFileListWriter writer, InputFileBalancer balancer, 
+      InputFileManifest manifest, FileSystem fs, PathFilter pathFilter) throws IOException {
     long numFiles = 0;
     for (FileStatus stat : fs.listStatus(path, pathFilter)) {
       LOG.debug("Adding path {}", stat.getPath());
       if (stat.isDirectory()) {
-        numFiles += addInputFilesRecursively(stat.getPath(), writer, fs, pathFilter);
+        numFiles += addInputFilesRecursively(stat.getPath(), writer, balancer, manifest, fs, pathFilter);
       } else {
-        writer.write(stat.getPath().toString() + "\n");
+        String line = InputFileLine.format(stat); // spare mappers from refetching metadata from the NameNode
+        addInputFile(line, writer, balancer, manifest);
         numFiles++;
       }
     }
     return numFiles;
   }
   
-  private void randomizeFewInputFiles(FileSystem fs, Path outputStep2Dir, Path fullInputList) throws IOException {    
-    List<String> lines = new ArrayList();
-    BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(fullInputList), "UTF-8"));
-    try {
-      String line;
-      while ((line = reader.readLine()) != null) {
-        lines.add(line);
-      }
-    } finally {
-      reader.close();
+  /**
+   * Adds the given input file to the manifest if there is one, which later passes it on if it needs
+   * to be indexed, or else directly to the list of input files.
+   */
+  private void addInputFile(String line, InputFileListWriter writer, InputFileBalancer balancer, 
+      InputFileManifest manifest) throws IOException {
+    if (manifest != null) {
+      manifest.add(line);
+    } else {
+      writer.append(line);
+      balancer.add(line, InputFileLine.getLength(line)); // -1 if unknown
     }
+  }
+  
+  /** Returns true if the given obsolete documents are not deleted from the live Solr cluster by this run */
+  static boolean isDeletePending(List<String> obsoleteIds, Options options) {
+    return obsoleteIds.size() > 0 && (!options.goLive || options.isDryRun);
+  }
+  
+  /**
+   * Publishes the given manifest, if any, unless obsolete documents are still pending deletion, in
+   * which case the previous manifest is kept so the next run reports the same obsolete documents again.
+   * Returns false if publishing failed.
+   */
+  static boolean publishManifest(InputFileManifest manifest, List<String> obsoleteIds, Options options) 
+      throws IOException {
     
-    Collections.shuffle(lines, new Random(421439783L)); // constant seed for reproducability
-    
-    FSDataOutputStream out = fs.create(new Path(outputStep2Dir, FULL_INPUT_LIST));
-    Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+    if (isDeletePending(obsoleteIds, options)) {
+      LOG.warn("Documents listed in {} are obsolete and need to be deleted from the live Solr cluster", 
+          new Path(options.outputDir, OBSOLETE_IDS));
+      return true;
+    }
+    return manifest == null || options.isDryRun || manifest.publish(options.manifest);
+  }
+  
+  /**
+   * Converts the given deleted or modified input files into the unique keys of the documents that
+   * were generated from them, and writes these keys into the given file, one per line.
+   */
+  private List<String> writeObsoleteIds(List<String> files, Path obsoleteIdsFile, FileSystem fs) throws IOException {
+    List<String> ids = new ArrayList<String>(files.size());
+    if (files.size() == 0) {
+      return ids;
+    }
+    Writer writer = new BufferedWriter(new OutputStreamWriter(fs.create(obsoleteIdsFile), "UTF-8"));
     try {
-      for (String line : lines) {
-        writer.write(line + "\n");
-      } 
+      for (String file : files) {
+        String id = new PathParts(file, getConf()).getId();
+        ids.add(id);
+        writer.write(id + "\n");
+      }
     } finally {
       writer.close();
     }
+    return ids;
+  }
+  
+  /**
+   * Writes each split computed by the given balancer into a separate file, which is subsequently
+   * processed by exactly one mapper.
+   */
+  private void balanceFewInputFiles(FileSystem fs, Path outputStep2Dir, InputFileBalancer balancer, int numSplits) 
+      throws IOException {
+    
+    List<List<String>> splits = balancer.assign(numSplits);
+    for (int i = 0; i < splits.size(); i++) {
+      List<String> lines = splits.get(i);
+      if (lines.size() == 0) {
+        continue;
+      }
+      Path part = new Path(outputStep2Dir, String.format("part-%05d", i));
+      InputFileListWriter writer = new InputFileListWriter(fs, part, job.getConfiguration());
+      try {
+        for (String line : lines) {
+          writer.append(line);
+        } 
+      } finally {
+        writer.close();
+      }
+    }
   }
 
   /**
@@ -1023,21 +1209,26 @@ public class MapReduceIndexerTool extends Configured implements Tool {
    * B
    * 
    * The implementation sorts the list of lines by randomly generated numbers.
+   * 
+   * The job uses one reducer per indexing mapper, and each reducer writes a
+   * separate part file. As the random numbers are generated with fixed seeds
+   * and partitioned by hash, the output is deterministic across runs.
    */
-  private Job randomizeManyInputFiles(Configuration baseConfig, Path fullInputList, Path outputStep2Dir, int numLinesPerSplit) 
-      throws IOException {
+  private Job randomizeManyInputFiles(Configuration baseConfig, Path fullInputList, Path outputStep2Dir, 
+      int numReducers) throws IOException {
     
     Job job2 = Job.getInstance(baseConfig);
     job2.setJarByClass(getClass());
     job2.setJobName(getClass().getName() + "/" + Utils.getShortClassName(LineRandomizerMapper.class));
-    job2.setInputFormatClass(NLineInputFormat.class);
-    NLineInputFormat.addInputPath(job2, fullInputList);
-    NLineInputFormat.setNumLinesPerSplit(job2, numLinesPerSplit);          
+    job2.setInputFormatClass(SequenceFileInputFormat.class);
+    SequenceFileInputFormat.addInputPath(job2, fullInputList);
     job2.setMapperClass(LineRandomizerMapper.class);
     job2.setReducerClass(LineRandomizerReducer.class);
-    job2.setOutputFormatClass(TextOutputFormat.class);
+    job2.setOutputFormatClass(SequenceFileOutputFormat.class);
+    SequenceFileOutputFormat.setCompressOutput(job2, true);
+    SequenceFileOutputFormat.setOutputCompressionType(job2, CompressionType.BLOCK);
     FileOutputFormat.setOutputPath(job2, outputStep2Dir);
-    job2.setNumReduceTasks(1);
+    job2.setNumReduceTasks(numReducers);
     job2.setOutputKeyClass(LongWritable.class);
     job2.setOutputValueClass(Text.class);
     return job2;
@@ -1124,11 +1315,12 @@ public class MapReduceIndexerTool extends Configured implements Tool {
    * turnaround during trial & debug sessions
    */
   private void dryRun(MorphlineMapRunner runner, FileSystem fs, Path fullInputList) throws IOException {    
-    BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(fullInputList), "UTF-8"));
+    SequenceFile.Reader reader = new SequenceFile.Reader(fs, fullInputList, job.getConfiguration());
     try {
-      String line;
-      while ((line = reader.readLine()) != null) {
-        runner.map(line, job.getConfiguration(), null);
+      LongWritable key = new LongWritable();
+      Text line = new Text();
+      while (reader.next(key, line)) {
+        runner.map(line.toString(), job.getConfiguration(), null);
       }
       runner.cleanup();
     } finally {
@@ -1252,6 +1444,39 @@ public class MapReduceIndexerTool extends Configured implements Tool {
       LOG.info("Succeeded with job: " + getJobInfo(job));
     }
     LOG.info("Success. Done. Program took {} secs. Goodbye.", secs);
+    LOG.info("Elapsed time per phase [ms]: {}", phaseTimes);
+  }
+
+  /** Adds the time elapsed since the given start time to the given phase, and returns the elapsed millis */
+  private long addPhaseTime(String phase, long startTime) {
+    return addPhaseTime(phase, startTime, null);
+  }
+
+  /**
+   * Adds the time elapsed since the given start time to the given phase, adds the phase along with
+   * the job it ran, if any, to the timeline, and returns the elapsed millis
+   */
+  private long addPhaseTime(String phase, long startTime, Job phaseJob) {
+    long finishTime = System.currentTimeMillis();
+    long millis = finishTime - startTime;
+    Long total = phaseTimes.get(phase);
+    phaseTimes.put(phase, total == null ? millis : total + millis);
+    if (phaseJob == null) {
+      timeline.addPhase(phase, startTime, finishTime);
+    } else {
+      timeline.addJob(phase, phaseJob, startTime, finishTime);
+    }
+    return millis;
+  }
+
+  /** Writes the timeline of all phases so far into the output dir; failures are logged only */
+  private void writeTimeline(Path outputDir) {
+    try {
+      timeline.write(outputDir, getConf());
+      LOG.info("Wrote timeline of all phases to {}", new Path(outputDir, JobTimeline.TIMELINE_HTML));
+    } catch (IOException e) {
+      LOG.warn("Cannot write timeline to " + outputDir, e);
+    }
   }
 
   private String getJobInfo(Job job) {
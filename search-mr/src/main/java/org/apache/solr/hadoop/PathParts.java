@@ -37,6 +37,15 @@ public final class PathParts {
   private FileStatus stats;
 
   public PathParts(String uploadURL, Configuration conf) throws IOException {
+    this(uploadURL, conf, null, null);
+  }
+  
+  /**
+   * Creates an instance that reuses the given file system (if not null) instead of looking it up,
+   * and that returns the given file metadata (if not null) instead of fetching it from the file
+   * system.
+   */
+  public PathParts(String uploadURL, Configuration conf, FileSystem fs, FileStatus stats) throws IOException {
     if (uploadURL == null) {
       throw new IllegalArgumentException("Path must not be null: " + uploadURL);    
     }
@@ -46,11 +55,11 @@ public final class PathParts {
     }
     this.conf = conf;
     URI uri = stringToUri(uploadURL);
-    this.fs = FileSystem.get(uri, conf);
-    if (fs == null) {
+    this.fs = fs != null ? fs : FileSystem.get(uri, conf);
+    if (this.fs == null) {
       throw new IllegalArgumentException("File system must not be null: " + uploadURL);    
     }
-    this.normalizedPath = fs.makeQualified(new Path(uri));
+    this.normalizedPath = this.fs.makeQualified(new Path(uri));
     if (!normalizedPath.isAbsolute()) {
       throw new IllegalArgumentException("Path must be absolute: " + uploadURL);    
     }
@@ -63,6 +72,7 @@ public final class PathParts {
     if (getPort() < 0) {
       throw new IllegalArgumentException("Port must not be negative: " + uploadURL);    
     }
+    this.stats = stats;
   }
   
   public String getUploadURL() {
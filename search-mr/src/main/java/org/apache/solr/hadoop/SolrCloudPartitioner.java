@@ -65,7 +65,7 @@ public class SolrCloudPartitioner extends Partitioner<Text, SolrInputDocumentWri
   @Override
   public void setConf(Configuration conf) {
     this.conf = conf;    
-    this.shards = conf.getInt(SHARDS, -1);
+    int shards = conf.getInt(SHARDS, -1);
     if (shards <= 0) {
       throw new IllegalArgumentException("Illegal shards: " + shards);
     }
@@ -78,10 +78,19 @@ public class SolrCloudPartitioner extends Partitioner<Text, SolrInputDocumentWri
       throw new IllegalArgumentException("collection must not be null");
     }    
     LOG.info("Using SolrCloud zkHost: {}, collection: {}", zkHost, collection);
-    docCollection = new ZooKeeperInspector().extractDocCollection(zkHost, collection);
+    setDocCollection(new ZooKeeperInspector().extractDocCollection(zkHost, collection), shards);
+  }
+
+  /** Initializes the partitioner with the given collection, as fetched from ZooKeeper by {@link #setConf} */
+  void setDocCollection(DocCollection docCollection, int shards) {
+    if (shards <= 0) {
+      throw new IllegalArgumentException("Illegal shards: " + shards);
+    }
     if (docCollection == null) {
       throw new IllegalArgumentException("docCollection must not be null");
     }
+    this.shards = shards;
+    this.docCollection = docCollection;
     if (docCollection.getSlicesMap().size() != shards) {
       throw new IllegalArgumentException("Incompatible shards: + " + shards + " for docCollection: " + docCollection);
     }    
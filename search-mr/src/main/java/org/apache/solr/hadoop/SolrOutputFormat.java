@@ -16,22 +16,22 @@
  */
 package org.apache.solr.hadoop;
 
-import java.io.BufferedWriter;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.filecache.DistributedCache;
 import org.apache.hadoop.fs.FileSystem;
@@ -61,8 +61,8 @@ public class SolrOutputFormat<K, V> extends FileOutputFormat<K, V> {
 
   /**
    * The base name of the zip file containing the configuration information.
-   * This file is passed via the distributed cache using a unique name, obtained
-   * via {@link #getZipName(Configuration jobConf)}.
+   * This file is passed via the distributed cache using a name derived from its
+   * content hash, obtained via {@link #getZipName(Configuration jobConf)}.
    */
   public static final String ZIP_FILE_BASE_NAME = "solr.zip";
 
@@ -72,6 +72,10 @@ public class SolrOutputFormat<K, V> extends FileOutputFormat<K, V> {
    */
   public static final String OUTPUT_ZIP_FILE = "solr.output.zip.format";
 
+  private static final String REPLACEMENT_SOLR_CONFIG_SITE = "<dataDir></dataDir>";
+  
+  private static final long ZIP_ENTRY_TIME = 315619200000L; // 1980-01-02, close to the earliest time a zip can represent
+
   static int defaultSolrWriterThreadCount = 0;
 
   public static final String SOLR_WRITER_THREAD_COUNT = "solr.record.writer.num.threads";
@@ -168,62 +172,65 @@ public class SolrOutputFormat<K, V> extends FileOutputFormat<K, V> {
 
   public static void setupSolrHomeCache(File solrHomeDir, Job job) throws IOException{
     File solrHomeZip = createSolrHomeZip(solrHomeDir);
-    addSolrConfToDistributedCache(job, solrHomeZip);
+    try {
+      addSolrConfToDistributedCache(job, solrHomeZip);
+    } finally {
+      solrHomeZip.delete();
+    }
   }
 
+  /**
+   * Zips the conf/ and lib/ dirs of the given Solr home into a local temp file. The zip is
+   * deterministic, i.e. the same config always yields the same bytes, so it can be identified by
+   * its content hash.
+   */
   public static File createSolrHomeZip(File solrHomeDir) throws IOException {
-    return createSolrHomeZip(solrHomeDir, false);
-  }
-
-  private static void writeReplacementSolrConfigSite(File solrconfigsite) throws IOException {
-    BufferedWriter bw = new BufferedWriter(new FileWriter(solrconfigsite));
-    bw.write("<dataDir></dataDir>");
-    bw.close();
-  }
-
-  private static File createSolrHomeZip(File solrHomeDir, boolean safeToModify) throws IOException {
     if (solrHomeDir == null || !(solrHomeDir.exists() && solrHomeDir.isDirectory())) {
       throw new IOException("Invalid solr home: " + solrHomeDir);
     }
-    // solrconfig-site.xml may have an unneeded variable with no default value ${solr.host},
-    // which will cause the job to fail.  Replace it.
-    File solrConfigSite = new File(solrHomeDir, "conf" + File.separator + "solrconfig-site.xml");
-    if (solrConfigSite.isFile()) {
-      if (!safeToModify) {
-        // not safe to modify, let's copy the contents over to a temp directory
-        File newTmpDir = Files.createTempDir();
-        newTmpDir.deleteOnExit();
-        LOG.debug("Creating temporary copy of solr home dir at: " + newTmpDir.getAbsolutePath());
-        FileUtils.copyDirectory(solrHomeDir, newTmpDir);
-        return createSolrHomeZip(newTmpDir, true);
-      }
-      // find a suitable backup name
-      File backup = new File(solrHomeDir, solrConfigSite.getName() + ".bak");
-      while (backup.exists()) {
-        backup = new File(solrHomeDir, backup.getName() + ".bak");
-      }
-      LOG.debug("Moving existing " + solrConfigSite.getName() + " to " + backup.getName());
-      Files.move(solrConfigSite, backup);
-      writeReplacementSolrConfigSite(solrConfigSite);
-    }
-
     File solrHomeZip = File.createTempFile("solr", ".zip");
     createZip(solrHomeDir, solrHomeZip);
     return solrHomeZip;
   }
 
+  /**
+   * Uploads the given Solr home zip to /tmp in HDFS, under a name derived from its content hash,
+   * unless a zip with the same content is already there, and adds it to the distributed cache of
+   * the job. Because the HDFS file is reused across jobs and runs, task trackers can also reuse
+   * their localized copy of it.
+   */
   public static void addSolrConfToDistributedCache(Job job, File solrHomeZip)
       throws IOException {
-    // Make a reasonably unique name for the zip file in the distributed cache
-    // to avoid collisions if multiple jobs are running.
-    String hdfsZipName = UUID.randomUUID().toString() + '.'
-        + ZIP_FILE_BASE_NAME;
+    String hdfsZipName = getContentHash(solrHomeZip) + '.' + ZIP_FILE_BASE_NAME;
     Configuration jobConf = job.getConfiguration();
     jobConf.set(ZIP_NAME, hdfsZipName);
 
     Path zipPath = new Path("/tmp", getZipName(jobConf));
     FileSystem fs = FileSystem.get(jobConf);
-    fs.copyFromLocalFile(new Path(solrHomeZip.toString()), zipPath);
+    // The zip name contains the SHA-1 hash of the content, and zips only ever appear under that name
+    // by a rename of a complete upload, so an existing zip of that name has the same content. The
+    // length check merely guards against a different file having been put there by other means.
+    if (fs.exists(zipPath) && fs.getFileStatus(zipPath).getLen() == solrHomeZip.length()) {
+      LOG.debug("Reusing Solr home zip with same content: {}", zipPath);
+    } else {
+      // Upload under a unique name, then rename, so concurrent jobs never see a partial zip. An
+      // existing zip is never deleted or replaced, as running jobs may have it in their distributed
+      // cache, and a changed modification time would fail their localization.
+      Path tmpZipPath = new Path("/tmp", getZipName(jobConf) + "." + UUID.randomUUID().toString() + ".tmp");
+      fs.copyFromLocalFile(new Path(solrHomeZip.toString()), tmpZipPath);
+      if (fs.rename(tmpZipPath, zipPath)) {
+        LOG.debug("Uploaded Solr home zip: {}", zipPath);
+      } else {
+        fs.delete(tmpZipPath, false);
+        if (!fs.exists(zipPath)) {
+          throw new IOException("Cannot rename " + tmpZipPath + " to " + zipPath);
+        }
+        if (fs.getFileStatus(zipPath).getLen() != solrHomeZip.length()) {
+          throw new IOException("Unexpected content in " + zipPath + ", please remove it");
+        }
+        LOG.debug("Reusing Solr home zip uploaded concurrently with same content: {}", zipPath);
+      }
+    }
     final URI baseZipUrl = fs.getUri().resolve(
         zipPath.toString() + '#' + getZipName(jobConf));
 
@@ -234,8 +241,33 @@ public class SolrOutputFormat<K, V> extends FileOutputFormat<K, V> {
     jobConf.set(SETUP_OK, zipPath.toString());
   }
 
+  /** Returns the hex encoded SHA-1 digest of the given file */
+  private static String getContentHash(File file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+    InputStream in = new FileInputStream(file);
+    try {
+      byte[] buf = new byte[8192];
+      int cnt;
+      while ((cnt = in.read(buf)) >= 0) {
+        digest.update(buf, 0, cnt);
+      }
+    } finally {
+      in.close();
+    }
+    StringBuilder hex = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
   private static void createZip(File dir, File out) throws IOException {
-    HashSet<File> files = new HashSet<File>();
+    TreeSet<File> files = new TreeSet<File>(); // sorted for a deterministic zip
     // take only conf/ and lib/
     for (String allowedDirectory : SolrRecordWriter
         .getAllowedConfigDirectories()) {
@@ -256,23 +288,29 @@ public class SolrOutputFormat<K, V> extends FileOutputFormat<K, V> {
                                    // to store in the zip file
     }
 
+    // solrconfig-site.xml may have an unneeded variable with no default value ${solr.host},
+    // which will cause the job to fail. Replace it in the zip, leaving the solr home dir untouched.
+    File solrConfigSite = new File(dir, "conf" + File.separator + "solrconfig-site.xml");
+    
     out.delete();
     int subst = dir.toString().length();
-    ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(out));
-    byte[] buf = new byte[1024];
-    for (File f : files) {
-      ZipEntry ze = new ZipEntry(f.toString().substring(subst));
-      zos.putNextEntry(ze);
-      InputStream is = new FileInputStream(f);
-      int cnt;
-      while ((cnt = is.read(buf)) >= 0) {
-        zos.write(buf, 0, cnt);
+    ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(out)));
+    try {
+      for (File f : files) {
+        ZipEntry ze = new ZipEntry(f.toString().substring(subst));
+        ze.setTime(ZIP_ENTRY_TIME); // file mtimes would change the content hash
+        zos.putNextEntry(ze);
+        if (f.equals(solrConfigSite)) {
+          LOG.debug("Replacing {} in Solr home zip", solrConfigSite);
+          zos.write(REPLACEMENT_SOLR_CONFIG_SITE.getBytes("UTF-8"));
+        } else {
+          Files.copy(f, zos);
+        }
+        zos.closeEntry();
       }
-      is.close();
-      zos.flush();
-      zos.closeEntry();
+    } finally {
+      zos.close();
     }
-    zos.close();
   }
 
   private static void listFiles(File dir, Set<File> files) throws IOException {
@@ -16,32 +16,34 @@
  */
 package org.apache.solr.hadoop;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.filecache.DistributedCache;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.mapreduce.RecordWriter;
-import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.apache.hadoop.mapreduce.TaskID;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.core.CoreContainer;
 import org.apache.solr.core.CoreDescriptor;
+import org.apache.solr.core.SolrConfig;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrResourceLoader;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.IndexSchemaFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -120,8 +122,6 @@ class SolrRecordWriter<K, V> extends RecordWriter<K, V> {
   private long numDocsWritten = 0;
   private long nextLogTime = System.currentTimeMillis();
 
-  private static HashMap<TaskID, Reducer<?,?,?,?>.Context> contextMap = new HashMap<TaskID, Reducer<?,?,?,?>.Context>();
-  
   public SolrRecordWriter(TaskAttemptContext context, Path outputShardDir, int batchSize) {
     this.batchSize = batchSize;
     this.batch = new ArrayList(batchSize);
@@ -137,8 +137,7 @@ class SolrRecordWriter<K, V> extends RecordWriter<K, V> {
       Path solrHomeDir = SolrRecordWriter.findSolrConfig(conf);
       FileSystem fs = outputShardDir.getFileSystem(conf);
       EmbeddedSolrServer solr = createEmbeddedSolrServer(solrHomeDir, fs, outputShardDir);
-      batchWriter = new BatchWriter(solr, batchSize,
-          context.getTaskAttemptID().getTaskID(),
+      batchWriter = new BatchWriter(solr, batchSize, context,
           SolrOutputFormat.getSolrWriterThreadCount(conf),
           SolrOutputFormat.getSolrWriterQueueSize(conf));
 
@@ -187,7 +186,17 @@ class SolrRecordWriter<K, V> extends RecordWriter<K, V> {
     
     descr.setDataDir(dataDirStr);
     descr.setCoreProperties(props);
-    SolrCore core = container.create(descr);
+    
+    // same as container.create(descr), except that the schema is shared with prior cores of this JVM
+    SolrResourceLoader coreLoader = new SolrResourceLoader(solrHomeDir.toString(), null, props);
+    SolrConfig config;
+    try {
+      config = new SolrConfig(coreLoader, descr.getConfigName(), null);
+    } catch (Exception e) {
+      throw new IOException("Cannot load " + descr.getConfigName() + " from " + solrHomeDir, e);
+    }
+    IndexSchema schema = getIndexSchema(descr.getSchemaName(), config);
+    SolrCore core = new SolrCore(descr.getName(), dataDirStr, config, schema, descr);
     container.register(core, false);
     
     System.setProperty("solr.hdfs.nrtcachingdirectory", "false");
@@ -198,23 +207,23 @@ class SolrRecordWriter<K, V> extends RecordWriter<K, V> {
     return solr;
   }
 
-  public static void incrementCounter(TaskID taskId, String groupName, String counterName, long incr) {
-    Reducer<?,?,?,?>.Context context = contextMap.get(taskId);
-    if (context != null) {
-      context.getCounter(groupName, counterName).increment(incr);
-    }
-  }
-
-  public static void incrementCounter(TaskID taskId, Enum counterName, long incr) {
-    Reducer<?,?,?,?>.Context context = contextMap.get(taskId);
-    if (context != null) {
-      context.getCounter(counterName).increment(incr);
-    }
-  }
-
-  public static void addReducerContext(Reducer<?,?,?,?>.Context context) {
-    TaskID taskID = context.getTaskAttemptID().getTaskID();
-    contextMap.put(taskID, context);
+  /**
+   * Returns the parsed schema of the given Solr home, reusing the schema parsed by a prior task of
+   * the same JVM where possible; see {@link IndexSchemaCache}.
+   * 
+   * The SolrConfig is deliberately parsed anew for each core because the SolrCoreAware plugins that
+   * its resource loader instantiates are informed of the first core only.
+   */
+  private static IndexSchema getIndexSchema(final String schemaName, final SolrConfig config) throws IOException {
+    SolrResourceLoader loader = config.getResourceLoader();
+    File schemaFile = new File(loader.getConfigDir(), schemaName);
+    File libDir = new File(loader.getInstanceDir(), "lib");
+    return IndexSchemaCache.getIndexSchema(schemaFile, libDir, new Callable<IndexSchema>() {
+      @Override
+      public IndexSchema call() {
+        return IndexSchemaFactory.buildIndexSchema(schemaName, config);
+      }
+    });
   }
 
   public static Path findSolrConfig(Configuration conf) throws IOException {
@@ -54,7 +54,6 @@ public class SolrReducer extends Reducer<Text, SolrInputDocumentWritable, Text,
   
   @Override
   protected void setup(Context context) throws IOException, InterruptedException {
-    SolrRecordWriter.addReducerContext(context);
     Class<? extends UpdateConflictResolver> resolverClass = context.getConfiguration().getClass(
         UPDATE_CONFLICT_RESOLVER, RetainMostRecentUpdateConflictResolver.class, UpdateConflictResolver.class);
     
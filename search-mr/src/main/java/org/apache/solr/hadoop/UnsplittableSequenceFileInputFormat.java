@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+
+/**
+ * A SequenceFileInputFormat that never splits a file, i.e. each input file is processed by exactly
+ * one mapper. This is used to feed the indexing job with the part files of the randomization phase,
+ * where each part file already contains the list of input files for one mapper, as written by
+ * {@link InputFileListWriter}.
+ * 
+ * Unlike NLineInputFormat, computing the splits doesn't require the client to read the entire
+ * list of input files.
+ */
+public class UnsplittableSequenceFileInputFormat extends SequenceFileInputFormat<LongWritable, Text> {
+
+  @Override
+  protected boolean isSplitable(JobContext context, Path file) {
+    return false;
+  }
+
+}
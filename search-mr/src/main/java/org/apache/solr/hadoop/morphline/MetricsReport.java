@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop.morphline;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+/**
+ * Exports the full metrics of a morphline (counts, latency distributions and rates) from each MR
+ * task into a metrics directory, and merges these per-task snapshots into a job-wide report on the
+ * client. Tasks write their snapshots as side files into the metrics directory below their work
+ * output path, so that only the snapshots of committed task attempts end up in the job output.
+ * 
+ * Snapshots and reports are tab separated UTF-8 text files with one line per metric and the
+ * following columns: type, name, count, min, max, mean, p50, p95, p99, meanRate, m1Rate. Times are
+ * given in milliseconds, and rates in events per second.
+ * 
+ * When merging, counts are summed up, min and max are taken over all tasks, and the latency columns
+ * are averaged, weighted by the per-task count. Merged percentiles are thus an approximation. Rates
+ * are summed up as well, since tasks run concurrently, so the merged rates approximate the
+ * throughput of the job as a whole (exactly so if all tasks run at the same time).
+ */
+public final class MetricsReport {
+
+  /**
+   * The directory, relative to the work output path of a task attempt, that MR tasks write their
+   * metrics snapshots to, if any
+   */
+  public static final String METRICS_DIR = MetricsReport.class.getName() + ".metricsDir";
+  
+  private static final String HEADER = "#type\tname\tcount\tmin\tmax\tmean\tp50\tp95\tp99\tmeanRate\tm1Rate";
+  private static final String COUNTER = "counter";
+  private static final String HISTOGRAM = "histogram";
+  private static final String METER = "meter";
+  private static final String TIMER = "timer";
+  private static final int NUM_COLUMNS = 11;
+  
+  private static final Logger LOG = LoggerFactory.getLogger(MetricsReport.class);
+
+  private MetricsReport() {}
+  
+  /** Writes a snapshot of all metrics of the given registry into the given file */
+  public static void writeSnapshot(MetricRegistry registry, Path file, Configuration conf) throws IOException {
+    FileSystem fs = file.getFileSystem(conf);
+    Writer writer = new BufferedWriter(new OutputStreamWriter(fs.create(file), "UTF-8"));
+    try {
+      writer.write(HEADER + "\n");
+      for (Map.Entry<String, Counter> entry : registry.getCounters().entrySet()) {
+        long count = entry.getValue().getCount();
+        write(writer, COUNTER, entry.getKey(), count, 0, 0, 0, 0, 0, 0, 0, 0);
+      }
+      for (Map.Entry<String, Histogram> entry : registry.getHistograms().entrySet()) {
+        Histogram histogram = entry.getValue();
+        Snapshot s = histogram.getSnapshot();
+        write(writer, HISTOGRAM, entry.getKey(), histogram.getCount(), s.getMin(), s.getMax(), s.getMean(), 
+            s.getMedian(), s.get95thPercentile(), s.get99thPercentile(), 0, 0);
+      }
+      for (Map.Entry<String, Meter> entry : registry.getMeters().entrySet()) {
+        Meter meter = entry.getValue();
+        write(writer, METER, entry.getKey(), meter.getCount(), 0, 0, 0, 0, 0, 0, 
+            meter.getMeanRate(), meter.getOneMinuteRate());
+      }
+      double nanosPerMilliSec = TimeUnit.MILLISECONDS.toNanos(1);
+      for (Map.Entry<String, Timer> entry : registry.getTimers().entrySet()) {
+        Timer timer = entry.getValue();
+        Snapshot s = timer.getSnapshot();
+        write(writer, TIMER, entry.getKey(), timer.getCount(), 
+            s.getMin() / nanosPerMilliSec, s.getMax() / nanosPerMilliSec, s.getMean() / nanosPerMilliSec, 
+            s.getMedian() / nanosPerMilliSec, s.get95thPercentile() / nanosPerMilliSec, 
+            s.get99thPercentile() / nanosPerMilliSec, timer.getMeanRate(), timer.getOneMinuteRate());
+      }
+    } finally {
+      writer.close();
+    }
+  }
+  
+  private static void write(Writer writer, String type, String name, long count, double min, double max, double mean,
+      double p50, double p95, double p99, double meanRate, double m1Rate) throws IOException {
+    
+    writer.write(type + "\t" + name.replace('\t', ' ') + "\t" + count + "\t" + min + "\t" + max + "\t" + mean + "\t" 
+        + p50 + "\t" + p95 + "\t" + p99 + "\t" + meanRate + "\t" + m1Rate + "\n");
+  }
+  
+  /**
+   * Merges all snapshots found in the given metrics directory into a job-wide report, written to the
+   * given file. Timers are listed first, ordered by descending total time, such that the most
+   * expensive morphline commands come first. Returns the number of snapshots merged.
+   */
+  public static int aggregate(Path metricsDir, Path reportFile, Configuration conf) throws IOException {
+    FileSystem fs = metricsDir.getFileSystem(conf);
+    if (!fs.exists(metricsDir)) {
+      return 0;
+    }
+    Map<String, Aggregate> aggregates = new TreeMap<String, Aggregate>();
+    FileStatus[] snapshots = fs.listStatus(metricsDir, new PathFilter() {      
+      @Override
+      public boolean accept(Path path) {
+        return !path.getName().startsWith(".") && !path.getName().startsWith("_"); // ignore "hidden" files
+      }
+    });
+    for (FileStatus snapshot : snapshots) {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(snapshot.getPath()), "UTF-8"));
+      try {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.startsWith("#")) {
+            continue;
+          }
+          String[] columns = line.split("\t", -1);
+          if (columns.length != NUM_COLUMNS) {
+            LOG.warn("Ignoring malformed line in metrics snapshot {}: {}", snapshot.getPath(), line);
+            continue;
+          }
+          String key = columns[0] + "\t" + columns[1];
+          Aggregate aggregate = aggregates.get(key);
+          if (aggregate == null) {
+            aggregate = new Aggregate(columns[0], columns[1]);
+            aggregates.put(key, aggregate);
+          }
+          aggregate.add(columns);
+        }
+      } finally {
+        reader.close();
+      }
+    }
+    
+    List<Aggregate> sorted = new ArrayList<Aggregate>(aggregates.values());
+    Collections.sort(sorted, new Comparator<Aggregate>() {
+      @Override
+      public int compare(Aggregate a1, Aggregate a2) {
+        boolean isTimer1 = TIMER.equals(a1.type);
+        boolean isTimer2 = TIMER.equals(a2.type);
+        if (isTimer1 != isTimer2) {
+          return isTimer1 ? -1 : 1;
+        }
+        return Double.compare(a2.getTotal(), a1.getTotal()); // descending; stable sort retains name order
+      }
+    });
+    
+    Writer writer = new BufferedWriter(new OutputStreamWriter(fs.create(reportFile), "UTF-8"));
+    try {
+      writer.write(HEADER + "\n");
+      for (Aggregate a : sorted) {
+        double w = Math.max(1, a.count);
+        write(writer, a.type, a.name, a.count, a.min == Double.MAX_VALUE ? 0 : a.min, a.max, a.sumMean / w, 
+            a.sumP50 / w, a.sumP95 / w, a.sumP99 / w, a.sumMeanRate, a.sumM1Rate);
+      }
+    } finally {
+      writer.close();
+    }
+    return snapshots.length;
+  }
+  
+  
+  ///////////////////////////////////////////////////////////////////////////////
+  // Nested classes:
+  ///////////////////////////////////////////////////////////////////////////////
+  private static final class Aggregate {
+    
+    private final String type;
+    private final String name;
+    private long count = 0;
+    private double min = Double.MAX_VALUE;
+    private double max = 0;
+    private double sumMean = 0; // weighted by count
+    private double sumP50 = 0;
+    private double sumP95 = 0;
+    private double sumP99 = 0;
+    private double sumMeanRate = 0; // not weighted, as the rates of concurrent tasks add up
+    private double sumM1Rate = 0;
+    
+    public Aggregate(String type, String name) {
+      this.type = type;
+      this.name = name;
+    }
+    
+    public void add(String[] columns) {
+      long n = Long.parseLong(columns[2]);
+      count += n;
+      min = Math.min(min, Double.parseDouble(columns[3]));
+      max = Math.max(max, Double.parseDouble(columns[4]));
+      sumMean += n * Double.parseDouble(columns[5]);
+      sumP50 += n * Double.parseDouble(columns[6]);
+      sumP95 += n * Double.parseDouble(columns[7]);
+      sumP99 += n * Double.parseDouble(columns[8]);
+      sumMeanRate += Double.parseDouble(columns[9]);
+      sumM1Rate += Double.parseDouble(columns[10]);
+    }
+    
+    /** Returns the total time spent, in case of a timer */
+    public double getTotal() {
+      return sumMean;
+    }
+  }
+
+}
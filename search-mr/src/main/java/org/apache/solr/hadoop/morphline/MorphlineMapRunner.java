@@ -19,17 +19,30 @@ package org.apache.solr.hadoop.morphline;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.mapreduce.Mapper.Context;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.SolrPingResponse;
+import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.hadoop.HdfsFileFieldNames;
+import org.apache.solr.hadoop.IndexSchemaCache;
+import org.apache.solr.hadoop.InputFileLine;
 import org.apache.solr.hadoop.PathParts;
 import org.apache.solr.hadoop.Utils;
 import org.apache.solr.schema.IndexSchema;
@@ -48,6 +61,7 @@ import com.cloudera.cdk.morphline.base.Notifications;
 import com.cloudera.cdk.morphline.solr.DocumentLoader;
 import com.cloudera.cdk.morphline.solr.SolrLocator;
 import com.cloudera.cdk.morphline.solr.SolrMorphlineContext;
+import com.codahale.metrics.Counting;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.google.common.annotations.Beta;
@@ -69,6 +83,22 @@ public final class MorphlineMapRunner {
   private boolean disableFileOpen;
   private String morphlineFileAndId;
   private final Timer elapsedTime;   
+  private final Map<String, FileSystem> fileSystems = new HashMap<String, FileSystem>(); // keyed by scheme and authority
+  private final Set<String> documentTypes = new HashSet<String>();
+  private final int maxDocumentTypes;
+  private long numDocumentsLoaded = 0;
+  private CachedMorphline cachedMorphline; // null unless shared with other tasks of this JVM
+  private final Map<String, Long> initialMetricCounts = new HashMap<String, Long>();
+  
+  /**
+   * Compiled morphlines by file, id, variables and Solr home, shared by the tasks of a JVM with JVM
+   * reuse. These are shut down by a shutdown hook when the JVM exits.
+   */
+  private static final Map<String, CachedMorphline> MORPHLINE_CACHE = new HashMap<String, CachedMorphline>();
+  
+  private static boolean isShutdownHookRegistered = false; // guarded by MORPHLINE_CACHE
+  
+  private static final String JVM_REUSE = "mapred.job.reuse.jvm.num.tasks";
   
   public static final String MORPHLINE_FILE_PARAM = "morphlineFile";
   public static final String MORPHLINE_ID_PARAM = "morphlineId";
@@ -91,6 +121,15 @@ public final class MorphlineMapRunner {
    */
   public static final String DISABLE_FILE_OPEN = "morphlineDisableFileOpen";
   
+  /**
+   * The maximum number of distinct MIME types to maintain separate counters and metrics for. 
+   * Files of any additional MIME types are accounted for under {@link #OTHER_DOCUMENT_TYPE}.
+   */
+  public static final String MAX_DOCUMENT_TYPES = "morphlineMaxDocumentTypes";
+  
+  static final String OTHER_DOCUMENT_TYPE = "other";
+  private static final String UNKNOWN_DOCUMENT_TYPE = "unknown";
+  
   private static final Logger LOG = LoggerFactory.getLogger(MorphlineMapRunner.class);
   
   MorphlineContext getMorphlineContext() {
@@ -102,6 +141,7 @@ public final class MorphlineMapRunner {
   }
 
   public MorphlineMapRunner(Configuration configuration, DocumentLoader loader, String solrHomeDir) throws IOException {
+    loader = new CountingDocumentLoader(loader);
     if (LOG.isTraceEnabled()) {
       LOG.trace("CWD is {}", new File(".").getCanonicalPath());
       TreeMap map = new TreeMap();
@@ -117,46 +157,75 @@ public final class MorphlineMapRunner {
         configuration.get(FaultTolerance.RECOVERABLE_EXCEPTION_CLASSES, SolrServerException.class.getName())        
         );
     
-    morphlineContext = new SolrMorphlineContext.Builder()
-      .setDocumentLoader(loader)
-      .setExceptionHandler(faultTolerance)
-      .setMetricRegistry(new MetricRegistry())
-      .build();
-
-    class MySolrLocator extends SolrLocator { // trick to access protected ctor
-      public MySolrLocator(MorphlineContext ctx) {
-        super(ctx);
-      }
-    }
-
-    SolrLocator locator = new MySolrLocator(morphlineContext);
-    locator.setSolrHomeDir(solrHomeDir);
-    schema = locator.getIndexSchema();
-
-    // rebuild context, now with schema
-    morphlineContext = new SolrMorphlineContext.Builder()
-      .setIndexSchema(schema)
-      .setDocumentLoader(loader)
-      .setExceptionHandler(faultTolerance)
-      .setMetricRegistry(morphlineContext.getMetricRegistry())
-      .build();
-
     String morphlineFile = configuration.get(MORPHLINE_FILE_PARAM);
     String morphlineId = configuration.get(MORPHLINE_ID_PARAM);
     if (morphlineFile == null || morphlineFile.trim().length() == 0) {
       throw new MorphlineCompilationException("Missing parameter: " + MORPHLINE_FILE_PARAM, null);
     }
-    Map morphlineVariables = new HashMap();
+    Map morphlineVariables = new TreeMap();
     for (Map.Entry<String, String> entry : configuration) {
       String variablePrefix = MORPHLINE_VARIABLE_PARAM + ".";
       if (entry.getKey().startsWith(variablePrefix)) {
         morphlineVariables.put(entry.getKey().substring(variablePrefix.length()), entry.getValue());
       }
     }
-    Config override = ConfigFactory.parseMap(morphlineVariables);
-    morphline = new Compiler().compile(new File(morphlineFile), morphlineId, morphlineContext, null, override);
     morphlineFileAndId = morphlineFile + "@" + morphlineId;
     
+    // with JVM reuse, subsequent tasks of the same JVM can reuse the morphline compiled by a prior task
+    boolean isCacheable = configuration.getInt(JVM_REUSE, 1) != 1;
+    String cacheKey = Joiner.on('\n').useForNull("").join(morphlineFileAndId, morphlineVariables, solrHomeDir, 
+        configuration.get(FaultTolerance.IS_PRODUCTION_MODE), 
+        configuration.get(FaultTolerance.IS_IGNORING_RECOVERABLE_EXCEPTIONS),
+        configuration.get(FaultTolerance.RECOVERABLE_EXCEPTION_CLASSES));
+    cachedMorphline = isCacheable ? checkoutCachedMorphline(cacheKey) : null;
+    if (cachedMorphline != null) {
+      LOG.info("Reusing morphline compiled by a prior task of this JVM: {}", morphlineFileAndId);
+      cachedMorphline.loader.setDelegate(loader);
+      morphlineContext = cachedMorphline.context;
+      morphline = cachedMorphline.morphline;
+      schema = ((SolrMorphlineContext) morphlineContext).getIndexSchema();
+      MetricRegistry registry = morphlineContext.getMetricRegistry();
+      for (Map.Entry<String, ? extends Counting> entry : registry.getCounters().entrySet()) {
+        initialMetricCounts.put(entry.getKey(), entry.getValue().getCount());
+      }
+      for (Map.Entry<String, ? extends Counting> entry : registry.getHistograms().entrySet()) {
+        initialMetricCounts.put(entry.getKey(), entry.getValue().getCount());
+      }
+      for (Map.Entry<String, ? extends Counting> entry : registry.getMeters().entrySet()) {
+        initialMetricCounts.put(entry.getKey(), entry.getValue().getCount());
+      }
+      for (Map.Entry<String, ? extends Counting> entry : registry.getTimers().entrySet()) {
+        initialMetricCounts.put(entry.getKey(), entry.getValue().getCount());
+      }
+    } else {
+      schema = getIndexSchema(solrHomeDir);
+      DelegatingDocumentLoader delegatingLoader = null;
+      if (isCacheable) {
+        delegatingLoader = new DelegatingDocumentLoader();
+        delegatingLoader.setDelegate(loader);
+        loader = delegatingLoader;
+      }
+      morphlineContext = new SolrMorphlineContext.Builder()
+        .setIndexSchema(schema)
+        .setDocumentLoader(loader)
+        .setExceptionHandler(faultTolerance)
+        .setMetricRegistry(new MetricRegistry())
+        .build();
+      Config override = ConfigFactory.parseMap(morphlineVariables);
+      morphline = new Compiler().compile(new File(morphlineFile), morphlineId, morphlineContext, null, override);
+      if (isCacheable) {
+        cachedMorphline = new CachedMorphline(morphline, morphlineContext, delegatingLoader);
+        synchronized (MORPHLINE_CACHE) {
+          if (!MORPHLINE_CACHE.containsKey(cacheKey)) {
+            MORPHLINE_CACHE.put(cacheKey, cachedMorphline);
+            registerShutdownHook();
+          } else {
+            cachedMorphline = null; // a concurrent task cached its own, so this one is shut down on cleanup
+          }
+        }
+      }
+    }
+    
     disableFileOpen = configuration.getBoolean(DISABLE_FILE_OPEN, false);
     LOG.debug("disableFileOpen: {}", disableFileOpen);
         
@@ -170,6 +239,7 @@ public final class MorphlineMapRunner {
 
     String metricName = MetricRegistry.name(Utils.getShortClassName(getClass()), Metrics.ELAPSED_TIME);
     this.elapsedTime = morphlineContext.getMetricRegistry().timer(metricName);
+    this.maxDocumentTypes = configuration.getInt(MAX_DOCUMENT_TYPES, 8);
     Notifications.notifyBeginTransaction(morphline);
   }
 
@@ -177,12 +247,19 @@ public final class MorphlineMapRunner {
    * Extract content from the path specified in the value. Key is useless.
    */
   public void map(String value, Configuration configuration, Context context) throws IOException {
-    LOG.info("Processing file {}", value);
+    LOG.info("Processing file {}", InputFileLine.getPath(value));
     InputStream in = null;
     Record record = null;
+    PathParts parts = null;
+    boolean isOpen = false;
+    boolean isFailure = false;
+    long numDocumentsBefore = numDocumentsLoaded;
+    long startTime = System.nanoTime();
     Timer.Context timerContext = elapsedTime.time();
     try {
-      PathParts parts = new PathParts(value.toString(), configuration);
+      // use the file metadata of the input list, if present, instead of asking the NameNode again
+      String path = InputFileLine.getPath(value);
+      parts = new PathParts(path, configuration, getFileSystem(path, configuration), InputFileLine.getFileStatus(value));
       record = getRecord(parts);
       if (record == null) {
         return; // ignore
@@ -194,11 +271,19 @@ public final class MorphlineMapRunner {
       if (disableFileOpen) {
         in = new ByteArrayInputStream(new byte[0]);
       } else {
-        in = new BufferedInputStream(parts.getFileSystem().open(parts.getUploadPath()));
+        try {
+          in = new BufferedInputStream(parts.getFileSystem().open(parts.getUploadPath()));
+        } catch (FileNotFoundException e) {
+          LOG.warn("Ignoring file that somehow has become unavailable since the job was submitted: {}",
+              parts.getUploadURL());
+          return;
+        }
       }
+      isOpen = true;
       record.put(Fields.ATTACHMENT_BODY, in);
       Notifications.notifyStartSession(morphline);
       if (!morphline.process(record)) {
+        isFailure = true;
         LOG.warn("Morphline {} failed to process record: {}", morphlineFileAndId, record);
       }
       if (context != null) {
@@ -206,6 +291,7 @@ public final class MorphlineMapRunner {
         context.getCounter(MorphlineCounters.class.getName(), MorphlineCounters.FILE_BYTES_READ.toString()).increment(fileLength);
       }
     } catch (Exception e) {
+      isFailure = true;
       LOG.error("Unable to process file " + value, e);
       if (context != null) {
         context.getCounter(getClass().getName() + ".errors", e.getClass().getName()).increment(1);
@@ -213,12 +299,81 @@ public final class MorphlineMapRunner {
       morphlineContext.getExceptionHandler().handleException(e, record);
     } finally {
       timerContext.stop();
+      if (isOpen) {
+        updateDocumentTypeStats(getDocumentType(record, parts), parts.getFileStatus().getLen(), 
+            numDocumentsLoaded - numDocumentsBefore, System.nanoTime() - startTime, isFailure, context);
+      } else if (isFailure) {
+        // the file failed before its type was known; count it anyway so the per-type totals add up
+        updateDocumentTypeStats(UNKNOWN_DOCUMENT_TYPE, 0, 0, System.nanoTime() - startTime, isFailure, context);
+      }
       if (in != null) {
         in.close();
       }
     }
   }
   
+  /**
+   * Returns the MIME type of the given record, as forced from the CLI or as detected by the morphline,
+   * or else the file name extension, or else "unknown". Rare types are folded into "other".
+   */
+  private String getDocumentType(Record record, PathParts parts) {
+    String type = null;
+    Object mimeType = record.getFirstValue(Fields.ATTACHMENT_MIME_TYPE);
+    if (mimeType != null) {
+      type = mimeType.toString();
+      int i = type.indexOf(';'); // strip parameters such as "; charset=UTF-8"
+      if (i >= 0) {
+        type = type.substring(0, i);
+      }
+      type = type.trim().toLowerCase(Locale.ROOT);
+    }
+    if (type == null || type.length() == 0) {
+      String name = parts.getName();
+      int i = name.lastIndexOf('.');
+      if (i >= 0 && i < name.length() - 1) {
+        type = name.substring(i).toLowerCase(Locale.ROOT);
+      } else {
+        type = UNKNOWN_DOCUMENT_TYPE;
+      }
+    }
+    if (!documentTypes.contains(type)) {
+      if (documentTypes.size() >= maxDocumentTypes) {
+        return OTHER_DOCUMENT_TYPE; // protect against blowing the MR counter limit
+      }
+      documentTypes.add(type);
+    }
+    return type;
+  }
+  
+  private void updateDocumentTypeStats(String type, long fileLength, long numDocuments, long nanos, boolean isFailure, 
+      Context context) {
+    
+    String prefix = getClass().getName();
+    String metricName = MetricRegistry.name(Utils.getShortClassName(getClass()), "mimeType", type, Metrics.ELAPSED_TIME);
+    morphlineContext.getMetricRegistry().timer(metricName).update(nanos, TimeUnit.NANOSECONDS);
+    if (context != null) {
+      context.getCounter(prefix + ".filesByMimeType", type).increment(1);
+      context.getCounter(prefix + ".fileBytesByMimeType", type).increment(fileLength);
+      context.getCounter(prefix + ".docsByMimeType", type).increment(numDocuments);
+      context.getCounter(prefix + ".millisByMimeType", type).increment(TimeUnit.NANOSECONDS.toMillis(nanos));
+      if (isFailure) {
+        context.getCounter(prefix + ".failuresByMimeType", type).increment(1);
+      }
+    }
+  }
+  
+  /** Returns a cached file system for the scheme and authority of the given path */
+  private FileSystem getFileSystem(String path, Configuration configuration) throws IOException {
+    URI uri = URI.create(path).normalize();
+    String key = uri.getScheme() + "://" + uri.getAuthority();
+    FileSystem fs = fileSystems.get(key);
+    if (fs == null) {
+      fs = FileSystem.get(uri, configuration);
+      fileSystems.put(key, fs);
+    }
+    return fs;
+  }
+  
   protected Record getRecord(PathParts parts) {
     FileStatus stats;
     try {
@@ -260,7 +415,207 @@ public final class MorphlineMapRunner {
 
   public void cleanup() {
     Notifications.notifyCommitTransaction(morphline);
-    Notifications.notifyShutdown(morphline);
+    if (cachedMorphline != null) {
+      synchronized (MORPHLINE_CACHE) {
+        cachedMorphline.isInUse = false; // keep open for the next task of this JVM
+      }
+    } else {
+      Notifications.notifyShutdown(morphline);
+    }
+  }
+
+  /**
+   * Returns the number of events the given metric has counted since this runner was created. Tasks that
+   * reuse a cached morphline also reuse its metrics, which then include the events of prior tasks.
+   */
+  long getMetricCountSinceStart(String metricName, Counting metric) {
+    Long initialCount = initialMetricCounts.get(metricName);
+    return metric.getCount() - (initialCount == null ? 0 : initialCount);
+  }
+
+  /**
+   * Returns the name under which to export the metrics snapshot of the given task. Tasks that reuse a
+   * cached morphline also reuse its cumulative metrics, so they all write the snapshot of the
+   * first of these tasks. As the output committer replaces the snapshot of an earlier task with
+   * that of a later one, the committed snapshot ends up holding the metrics of all of them.
+   */
+  String getMetricsSnapshotName(String taskName) {
+    if (cachedMorphline == null) {
+      return taskName;
+    }
+    synchronized (MORPHLINE_CACHE) {
+      if (cachedMorphline.metricsSnapshotName == null) {
+        cachedMorphline.metricsSnapshotName = taskName;
+      }
+      return cachedMorphline.metricsSnapshotName;
+    }
+  }
+
+  /** Returns a cached morphline for the given key and marks it as in use, or null if there is none available */
+  private static CachedMorphline checkoutCachedMorphline(String cacheKey) {
+    synchronized (MORPHLINE_CACHE) {
+      CachedMorphline cached = MORPHLINE_CACHE.get(cacheKey);
+      if (cached == null || cached.isInUse) {
+        return null;
+      }
+      cached.isInUse = true;
+      return cached;
+    }
+  }
+
+  /**
+   * Registers a shutdown hook that shuts down the cached morphlines when the JVM exits, unless that
+   * has already been done. Must be called while holding the lock of {@link #MORPHLINE_CACHE}.
+   */
+  private static void registerShutdownHook() {
+    if (isShutdownHookRegistered) {
+      return;
+    }
+    Runtime.getRuntime().addShutdownHook(new Thread(MorphlineMapRunner.class.getSimpleName() + "-shutdown") {
+      @Override
+      public void run() {
+        synchronized (MORPHLINE_CACHE) {
+          for (CachedMorphline cached : MORPHLINE_CACHE.values()) {
+            try {
+              Notifications.notifyShutdown(cached.morphline);
+            } catch (Throwable t) { // shut down the others anyway
+              LOG.warn("Cannot shut down cached morphline", t);
+            }
+          }
+          MORPHLINE_CACHE.clear();
+        }
+      }
+    });
+    isShutdownHookRegistered = true;
+  }
+
+  /** Returns the schema of the given Solr home, sharing it with prior runners of this JVM where possible */
+  private static IndexSchema getIndexSchema(final String solrHomeDir) throws IOException {
+    File schemaFile = new File(solrHomeDir, "conf" + File.separator + "schema.xml");
+    return IndexSchemaCache.getIndexSchema(schemaFile, new File(solrHomeDir, "lib"), new Callable<IndexSchema>() {
+      @Override
+      public IndexSchema call() {
+        class MySolrLocator extends SolrLocator { // trick to access protected ctor
+          public MySolrLocator(MorphlineContext ctx) {
+            super(ctx);
+          }
+        }
+        SolrLocator locator = new MySolrLocator(new MorphlineContext.Builder().build());
+        locator.setSolrHomeDir(solrHomeDir);
+        return locator.getIndexSchema();
+      }
+    });
+  }
+
+  
+  ///////////////////////////////////////////////////////////////////////////////
+  // Nested classes:
+  ///////////////////////////////////////////////////////////////////////////////
+  /** A compiled morphline along with its context, for reuse by subsequent tasks of the same JVM */
+  private static final class CachedMorphline {
+    
+    private final Command morphline;
+    private final MorphlineContext context;
+    private final DelegatingDocumentLoader loader;
+    private boolean isInUse = true;
+    private String metricsSnapshotName;
+    
+    public CachedMorphline(Command morphline, MorphlineContext context, DelegatingDocumentLoader loader) {
+      this.morphline = morphline;
+      this.context = context;
+      this.loader = loader;
+    }
+  }
+  
+  
+  ///////////////////////////////////////////////////////////////////////////////
+  // Nested classes:
+  ///////////////////////////////////////////////////////////////////////////////
+  /** Forwards to the document loader of the task that currently uses a cached morphline */
+  private static final class DelegatingDocumentLoader implements DocumentLoader {
+    
+    private volatile DocumentLoader delegate;
+    
+    public void setDelegate(DocumentLoader delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void beginTransaction() throws IOException, SolrServerException {
+      delegate.beginTransaction();
+    }
+
+    @Override
+    public void load(SolrInputDocument doc) throws IOException, SolrServerException {
+      delegate.load(doc);
+    }
+
+    @Override
+    public void commitTransaction() throws IOException, SolrServerException {
+      delegate.commitTransaction();
+    }
+
+    @Override
+    public UpdateResponse rollbackTransaction() throws IOException, SolrServerException {
+      return delegate.rollbackTransaction();
+    }
+
+    @Override
+    public void shutdown() throws IOException, SolrServerException {
+      delegate.shutdown();
+    }
+
+    @Override
+    public SolrPingResponse ping() throws IOException, SolrServerException {
+      return delegate.ping();
+    }
+    
+  }
+  
+  
+  ///////////////////////////////////////////////////////////////////////////////
+  // Nested classes:
+  ///////////////////////////////////////////////////////////////////////////////
+  /** Counts the documents loaded, in order to attribute them to the MIME type of the current file */
+  private final class CountingDocumentLoader implements DocumentLoader {
+    
+    private final DocumentLoader delegate;
+    
+    public CountingDocumentLoader(DocumentLoader delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void beginTransaction() throws IOException, SolrServerException {
+      delegate.beginTransaction();
+    }
+
+    @Override
+    public void load(SolrInputDocument doc) throws IOException, SolrServerException {
+      delegate.load(doc);
+      numDocumentsLoaded++;
+    }
+
+    @Override
+    public void commitTransaction() throws IOException, SolrServerException {
+      delegate.commitTransaction();
+    }
+
+    @Override
+    public UpdateResponse rollbackTransaction() throws IOException, SolrServerException {
+      return delegate.rollbackTransaction();
+    }
+
+    @Override
+    public void shutdown() throws IOException, SolrServerException {
+      delegate.shutdown();
+    }
+
+    @Override
+    public SolrPingResponse ping() throws IOException, SolrServerException {
+      return delegate.ping();
+    }
+    
   }
 
 }
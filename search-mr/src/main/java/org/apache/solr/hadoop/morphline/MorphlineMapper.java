@@ -20,8 +20,10 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.Map;
 
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.response.SolrPingResponse;
 import org.apache.solr.client.solrj.response.UpdateResponse;
@@ -71,6 +73,7 @@ public class MorphlineMapper extends SolrMapper<LongWritable, Text> {
   protected void setup(Context context) throws IOException, InterruptedException {
     super.setup(context);
     this.context = context;
+    context.setStatus("Indexing input split " + context.getInputSplit()); // shown in job timeline for stragglers
     heartBeater = new HeartBeater(context);
     this.runner = new MorphlineMapRunner(
         context.getConfiguration(), new MyDocumentLoader(), getSolrHomeDir().toString());
@@ -93,7 +96,15 @@ public class MorphlineMapper extends SolrMapper<LongWritable, Text> {
   protected void cleanup(Context context) throws IOException, InterruptedException {
     heartBeater.close();
     runner.cleanup();
-    addMetricsToMRCounters(runner.getMorphlineContext().getMetricRegistry(), context);
+    MetricRegistry metricRegistry = runner.getMorphlineContext().getMetricRegistry();
+    addMetricsToMRCounters(metricRegistry, context);
+    String metricsDir = context.getConfiguration().get(MetricsReport.METRICS_DIR);
+    if (metricsDir != null && context.getTaskAttemptID() != null) { // MRUnit returns null
+      // a side file of this task attempt, which only becomes part of the job output if the attempt is committed
+      Path snapshotDir = new Path(FileOutputFormat.getWorkOutputPath(context), metricsDir);
+      Path snapshot = new Path(snapshotDir, runner.getMetricsSnapshotName(context.getTaskAttemptID().getTaskID().toString()));
+      MetricsReport.writeSnapshot(metricRegistry, snapshot, context.getConfiguration());
+    }
     super.cleanup(context);
   }
 
@@ -108,13 +119,12 @@ public class MorphlineMapper extends SolrMapper<LongWritable, Text> {
       addCounting(entry.getKey(), entry.getValue(), 1);
     }
     for (Map.Entry<String, Timer> entry : metricRegistry.getTimers().entrySet()) {
-      long nanosPerMilliSec = 1000 * 1000;
-      addCounting(entry.getKey(), entry.getValue(), nanosPerMilliSec);
+      addCounting(entry.getKey(), entry.getValue(), 1); // the count of a timer is the number of events, not nanos
     }
   }
   
   private void addCounting(String metricName, Counting value, long scale) {
-    context.getCounter("morphline", metricName).increment(value.getCount() / scale);
+    context.getCounter("morphline", metricName).increment(runner.getMetricCountSinceStart(metricName, value) / scale);
   }
   
   ///////////////////////////////////////////////////////////////////////////////
@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.shell;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestFind {
+  private Configuration conf;
+  private File root;
+  private File checkpoint;
+
+  @Before
+  public void setUp() throws IOException {
+    conf = new Configuration();
+    root = new File(System.getProperty("java.io.tmpdir"), "TestFind-" + System.nanoTime());
+    checkpoint = new File(root.getPath() + ".checkpoint");
+    for(int i = 0; i < 3; i++) {
+      createFile(new File(root, "file" + i));
+      for(int j = 0; j < 3; j++) {
+        File dir = new File(root, "dir" + i + "/sub" + j);
+        assertTrue(dir.mkdirs());
+        for(int k = 0; k < 3; k++) {
+          createFile(new File(dir, "file" + k));
+        }
+      }
+    }
+  }
+  
+  @After
+  public void tearDown() {
+    FileUtil.fullyDelete(root);
+    checkpoint.delete();
+  }
+  
+  @Test
+  public void resumeAfterMaxRuntime() throws IOException {
+    assertResumedOutput();
+  }
+  
+  @Test
+  public void resumeAfterMaxRuntimeDepth() throws IOException {
+    assertResumedOutput("-depth");
+  }
+  
+  @Test
+  public void threadsMatchSequential() throws IOException {
+    assertEquals(run(new Find()), run(new Find(), "-threads", "4"));
+    assertEquals(run(new Find(), "-depth"), run(new Find(), "-threads", "4", "-depth"));
+    assertEquals(run(new Find(), "-name", "sub1", "-prune", "-o", "-print"), 
+        run(new Find(), "-threads", "4", "-name", "sub1", "-prune", "-o", "-print"));
+  }
+  
+  @Test
+  public void unorderedFindsSamePaths() throws IOException {
+    assertEquals(sortLines(run(new Find())), sortLines(run(new Find(), "-threads", "4", "-unordered")));
+  }
+  
+  private static List<String> sortLines(String output) {
+    List<String> lines = new ArrayList<String>(Arrays.asList(output.split("\n")));
+    Collections.sort(lines);
+    return lines;
+  }
+  
+  /**
+   * Checks that a traversal stopped repeatedly by -maxruntime and continued with -resume writes
+   * the same output as a single run.
+   */
+  private void assertResumedOutput(String... expression) throws IOException {
+    String expected = run(new Find(), expression);
+    assertEquals(43, expected.split("\n").length); // root, 3 files, 3 dirs, 9 subdirs, 27 files
+    
+    List<String> resumable = new ArrayList<String>(Arrays.asList(expression));
+    resumable.addAll(Arrays.asList("-checkpoint", checkpoint.getPath(), "-resume", "-maxruntime", "5"));
+    StringBuilder output = new StringBuilder();
+    int runs = 0;
+    do {
+      output.append(run(new SteppingClockFind(), resumable.toArray(new String[resumable.size()])));
+      runs++;
+      assertTrue("Traversal doesn't progress", runs < 100);
+    } while(checkpoint.exists());
+    assertTrue(runs > 1);
+    assertEquals(expected, output.toString());
+  }
+  
+  /** Runs the given find command on the test tree and returns its output. */
+  private String run(Find find, String... expression) throws IOException {
+    List<String> args = new ArrayList<String>();
+    args.add(root.getAbsolutePath());
+    args.addAll(Arrays.asList(expression));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    find.out = new PrintStream(bytes, true, "UTF-8");
+    find.err = new PrintStream(new ByteArrayOutputStream(), true);
+    find.setConf(conf);
+    assertEquals(0, find.run(args.toArray(new String[args.size()])));
+    return bytes.toString("UTF-8");
+  }
+  
+  private static void createFile(File file) throws IOException {
+    file.getParentFile().mkdirs();
+    assertTrue(file.createNewFile());
+  }
+  
+  /** Find whose clock advances by a second whenever it is read, so -maxruntime stops it after a few items. */
+  private static class SteppingClockFind extends Find {
+    private long time = 0;
+    
+    @Override
+    long getCurrentTime() {
+      time += 1000;
+      return time;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.shell.find;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.shell.PathData;
+import org.apache.hadoop.fs.shell.find.FindOptions;
+import org.apache.hadoop.fs.shell.find.CountExpression;
+import org.apache.hadoop.fs.shell.find.Result;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCountExpression extends TestExpression {
+  private MockFileSystem fs;
+  private Configuration conf;
+  private ByteArrayOutputStream bytes;
+  private FindOptions options;
+
+  @Before
+  public void resetMock() throws IOException {
+    MockFileSystem.reset();
+    fs = new MockFileSystem();
+    conf = fs.getConf();
+    bytes = new ByteArrayOutputStream();
+    options = new FindOptions();
+    options.setOut(new PrintStream(bytes, true));
+  }
+  
+  private PathData createItem(String pathname, boolean isDirectory, long length) throws IOException {
+    FileStatus fileStatus = mock(FileStatus.class);
+    when(fileStatus.getPath()).thenReturn(new Path(pathname));
+    when(fileStatus.isDirectory()).thenReturn(isDirectory);
+    when(fileStatus.isFile()).thenReturn(!isDirectory);
+    when(fileStatus.getLen()).thenReturn(length);
+    when(fileStatus.getReplication()).thenReturn((short) 3);
+    fs.setFileStatus(new Path(pathname).getName(), fileStatus);
+    return new PathData(pathname, conf);
+  }
+
+  @Test
+  public void apply() throws IOException {
+    CountExpression count = new CountExpression();
+    count.initialise(options);
+    assertEquals(Result.PASS, count.apply(createItem("/dir", true, 0)));
+    assertEquals(Result.PASS, count.apply(createItem("/dir/one.gz", false, 100)));
+    assertEquals(Result.PASS, count.apply(createItem("/dir/two.gz", false, 23)));
+    count.finish();
+    assertEquals(String.format("%12d %12d %18d", 1, 2, 123) + System.getProperty("line.separator"), bytes.toString());
+  }
+
+  @Test
+  public void addTotals() throws IOException {
+    FindOptions taskOptions = new FindOptions();
+    taskOptions.setOut(options.getOut());
+    taskOptions.setDeferTotals(true);
+    CountExpression taskCount = new CountExpression();
+    taskCount.initialise(taskOptions);
+    taskCount.apply(createItem("/dir/sub", true, 0));
+    taskCount.apply(createItem("/dir/sub/one.gz", false, 100));
+    taskCount.finish();
+    assertEquals(0, bytes.size());
+    ByteArrayOutputStream totals = new ByteArrayOutputStream();
+    taskCount.writeTotals(new DataOutputStream(totals));
+    
+    CountExpression count = new CountExpression();
+    count.initialise(options);
+    count.apply(createItem("/dir", true, 0));
+    count.apply(createItem("/dir/two.gz", false, 23));
+    count.addTotals(new DataInputStream(new ByteArrayInputStream(totals.toByteArray())));
+    count.finish();
+    assertEquals(String.format("%12d %12d %18d", 2, 2, 123) + System.getProperty("line.separator"), bytes.toString());
+  }
+
+  @Test
+  public void isAction() {
+    assertTrue(new CountExpression().isAction());
+  }
+}
@@ -24,6 +24,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.LinkedList;
@@ -265,10 +266,122 @@ public class TestExec extends TestExpression {
     verifyNoMoreInteractions(err);
   }
   
+  @Test
+  public void applyBatchedConcurrently() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    options.setOut(new PrintStream(bytes, true));
+    options.setErr(err);
+    options.setExecThreads(2);
+    Exec exec = new Exec();
+    exec.addArguments(getArgs("-testCommand {} +"));
+    exec.initialise(options);
+    exec.setMaxArgs(2);
+    
+    StringBuilder expected = new StringBuilder();
+    for(int i = 1; i <= 7; i++) {
+      FileStatus fstat = mock(FileStatus.class);
+      when(fstat.getPath()).thenReturn(new Path("test" + i));
+      when(fstat.toString()).thenReturn("test" + i);
+      fs.setFileStatus("test" + i, fstat);
+      fs.setGlobStatus("test" + i, new FileStatus[]{fstat});
+      PathData batchItem = new PathData("test" + i, fs.getConf());
+      assertEquals(Result.PASS, exec.apply(batchItem));
+      expected.append("TestCommand.processPath:" + batchItem.toString()).append(System.getProperty("line.separator"));
+    }
+    exec.finish();
+    
+    assertEquals(expected.toString(), bytes.toString());
+    verifyNoMoreInteractions(out);
+    verifyNoMoreInteractions(err);
+  }
+  
+  @Test
+  public void execThreadsAfterExec() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    options.setOut(new PrintStream(bytes, true));
+    options.setErr(err);
+    Exec exec = new Exec();
+    exec.addArguments(getArgs("-testCommand {} +"));
+    Execthreads execThreads = new Execthreads();
+    addArgument(execThreads, "2");
+    // as for -exec -testCommand {} + -execthreads 2, which are initialised in that order
+    exec.initialise(options);
+    execThreads.initialise(options);
+    
+    FileStatus fstat = mock(FileStatus.class);
+    when(fstat.getPath()).thenReturn(new Path("test1"));
+    when(fstat.toString()).thenReturn("test1");
+    fs.setFileStatus("test1", fstat);
+    fs.setGlobStatus("test1", new FileStatus[]{fstat});
+    PathData item1 = new PathData("test1", fs.getConf());
+    assertEquals(Result.PASS, exec.apply(item1));
+    exec.finish();
+    
+    assertEquals("TestCommand.processPath:" + item1.toString() + System.getProperty("line.separator"), bytes.toString());
+    assertTrue(TestCommand.lastThreadName.startsWith("find-exec-"));
+    verifyNoMoreInteractions(err);
+  }
+  
+  @Test
+  public void flushRunsPartialBatch() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    options.setOut(new PrintStream(bytes, true));
+    options.setErr(err);
+    options.setExecThreads(2);
+    Exec exec = new Exec();
+    exec.addArguments(getArgs("-testCommand {} +"));
+    exec.initialise(options);
+    
+    FileStatus fstat = mock(FileStatus.class);
+    when(fstat.getPath()).thenReturn(new Path("test1"));
+    when(fstat.toString()).thenReturn("test1");
+    fs.setFileStatus("test1", fstat);
+    fs.setGlobStatus("test1", new FileStatus[]{fstat});
+    PathData item1 = new PathData("test1", fs.getConf());
+    assertEquals(Result.PASS, exec.apply(item1));
+    assertEquals(0, bytes.size());
+    
+    exec.flush();
+    assertEquals("TestCommand.processPath:" + item1.toString() + System.getProperty("line.separator"), bytes.toString());
+    exec.finish();
+    assertEquals("TestCommand.processPath:" + item1.toString() + System.getProperty("line.separator"), bytes.toString());
+    verifyNoMoreInteractions(err);
+  }
+  
+  @Test
+  public void crashOfConcurrentBatchFailsFinish() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    options.setOut(new PrintStream(bytes, true));
+    options.setErr(err);
+    options.setExecThreads(2);
+    Exec exec = new Exec();
+    exec.addArguments(getArgs("-testCommand -crash {} +"));
+    exec.initialise(options);
+    
+    FileStatus fstat = mock(FileStatus.class);
+    when(fstat.getPath()).thenReturn(new Path("test1"));
+    when(fstat.toString()).thenReturn("test1");
+    fs.setFileStatus("test1", fstat);
+    fs.setGlobStatus("test1", new FileStatus[]{fstat});
+    PathData item1 = new PathData("test1", fs.getConf());
+    assertEquals(Result.PASS, exec.apply(item1));
+    try {
+      exec.finish();
+      fail("expected the crash of the command to fail finish");
+    }
+    catch(IOException e) {
+      assertEquals("crashed", e.getCause().getMessage());
+    }
+    String newLine = System.getProperty("line.separator");
+    assertEquals("TestCommand.processOptions:-crash" + newLine + "TestCommand.processPath:" + item1.toString() + newLine,
+        bytes.toString());
+  }
+  
   public static class TestCommand extends Command {
     static PrintStream testOut;
     static PrintStream testErr;
     static Configuration testConf;
+    static volatile String lastThreadName;
     protected TestCommand() {
       this.out = testOut;
       this.err = testErr;
@@ -276,6 +389,7 @@ public class TestExec extends TestExpression {
     }
 
     private boolean fail = false;
+    private boolean crash = false;
     public static void registerCommands(CommandFactory factory) {
       factory.addClass(TestCommand.class, "-testCommand");
     }
@@ -297,15 +411,22 @@ public class TestExec extends TestExpression {
         if("-fail".equals(arg)) {
           fail = true;
         }
+        if("-crash".equals(arg)) {
+          crash = true;
+        }
         out.println("TestCommand.processOptions:" + arg);
         args.pop();
       }
     }
     protected void processPath(PathData item) throws IOException {
+      lastThreadName = Thread.currentThread().getName();
       out.println("TestCommand.processPath:"+item.toString());
       if(fail) {
         throw new IOException("failed");
       }
+      if(crash) {
+        throw new RuntimeException("crashed");
+      }
     }
   }
 }
@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.shell.find;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.shell.PathData;
+import org.apache.hadoop.fs.shell.find.FindOptions;
+import org.apache.hadoop.fs.shell.find.Result;
+import org.apache.hadoop.fs.shell.find.Execthreads;
+import org.junit.Test;
+
+public class TestExecthreads extends TestExpression {
+  @Test
+  public void initialise() throws IOException{
+    FindOptions options = new FindOptions();
+    Execthreads threads = new Execthreads();
+    addArgument(threads, "8");
+    
+    assertEquals(1, options.getExecThreads());
+    threads.initialise(options);
+    assertEquals(8, options.getExecThreads());
+  }
+
+  @Test(expected = IOException.class)
+  public void initialiseInvalid() throws IOException{
+    Execthreads threads = new Execthreads();
+    addArgument(threads, "0");
+    threads.initialise(new FindOptions());
+  }
+
+  @Test(expected = IOException.class)
+  public void initialiseNotNumber() throws IOException{
+    Execthreads threads = new Execthreads();
+    addArgument(threads, "many");
+    threads.initialise(new FindOptions());
+  }
+
+  @Test
+  public void apply() throws IOException{
+    Execthreads threads = new Execthreads();
+    addArgument(threads, "2");
+    threads.initialise(new FindOptions());
+    assertEquals(Result.PASS, threads.apply(new PathData("anything", new Configuration())));
+  }
+}
@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.shell.find;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestGlobMatcher {
+  @Test
+  public void exact() {
+    GlobMatcher matcher = GlobMatcher.compile("name.txt", true);
+    assertTrue(matcher.matches("name.txt"));
+    assertTrue(matcher.matches("/dir/name.txt", 5));
+    assertFalse(matcher.matches("nameXtxt"));
+    assertFalse(matcher.matches("name.txt2"));
+    assertFalse(matcher.matches("Name.txt"));
+  }
+
+  @Test
+  public void prefix() {
+    GlobMatcher matcher = GlobMatcher.compile("part-*", true);
+    assertTrue(matcher.matches("part-"));
+    assertTrue(matcher.matches("part-00000"));
+    assertTrue(matcher.matches("/out/part-00000", 5));
+    assertFalse(matcher.matches("/out/part-00000", 4));
+    assertFalse(matcher.matches("part"));
+  }
+
+  @Test
+  public void suffix() {
+    GlobMatcher matcher = GlobMatcher.compile("*.gz", true);
+    assertTrue(matcher.matches(".gz"));
+    assertTrue(matcher.matches("file.gz"));
+    assertFalse(matcher.matches("file.gzip"));
+    assertFalse(matcher.matches("/a.gz/b", 7));
+  }
+
+  @Test
+  public void contains() {
+    GlobMatcher matcher = GlobMatcher.compile("*2013*", true);
+    assertTrue(matcher.matches("2013"));
+    assertTrue(matcher.matches("log-2013-10.gz"));
+    assertFalse(matcher.matches("/2013/log", 6));
+    assertTrue(GlobMatcher.compile("*", true).matches(""));
+    assertTrue(GlobMatcher.compile("**", true).matches("anything"));
+  }
+
+  @Test
+  public void regex() {
+    GlobMatcher matcher = GlobMatcher.compile("log-*-1?.gz", true);
+    assertTrue(matcher.matches("log-2013-10.gz"));
+    assertTrue(matcher.matches("/logs/log-2013-10.gz", 6));
+    assertFalse(matcher.matches("log-2013-09.gz"));
+    assertTrue(GlobMatcher.compile("*.{gz,bz2}", true).matches("file.bz2"));
+  }
+
+  @Test
+  public void ignoreCase() {
+    assertTrue(GlobMatcher.compile("NaMe", false).matches("name"));
+    assertTrue(GlobMatcher.compile("PART-*", false).matches("part-00000"));
+    assertTrue(GlobMatcher.compile("*.GZ", false).matches("file.gz"));
+    assertTrue(GlobMatcher.compile("*Statuses*", false).matches("sample-STATUSES.avro"));
+    assertTrue(GlobMatcher.compile("log-*-1?.GZ", false).matches("LOG-2013-10.gz"));
+    assertFalse(GlobMatcher.compile("*.GZ", false).matches("file.bz2"));
+  }
+}
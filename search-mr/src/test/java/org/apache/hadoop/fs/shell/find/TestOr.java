@@ -18,6 +18,7 @@
 package org.apache.hadoop.fs.shell.find;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
@@ -28,11 +29,13 @@ import java.util.Deque;
 import java.util.LinkedList;
 
 import org.apache.hadoop.fs.shell.PathData;
+import org.apache.hadoop.fs.shell.find.Cost;
 import org.apache.hadoop.fs.shell.find.Expression;
 import org.apache.hadoop.fs.shell.find.FindOptions;
 import org.apache.hadoop.fs.shell.find.Or;
 import org.apache.hadoop.fs.shell.find.Result;
 import org.junit.Test;
+import org.mockito.InOrder;
 
 public class TestOr extends TestExpression {
 
@@ -216,4 +219,112 @@ public class TestOr extends TestExpression {
     verifyNoMoreInteractions(first);
     verifyNoMoreInteractions(second);
   }
+
+  @Test
+  public void testOptimiseCheapestFirst() throws IOException {
+    Or or = new Or();
+    PathData pathData = mock(PathData.class);
+    FindOptions options = new FindOptions();
+    
+    Expression first = mock(Expression.class);
+    when(first.getCost(options)).thenReturn(Cost.RPC);
+    when(first.apply(pathData)).thenReturn(Result.FAIL);
+    
+    Expression second = mock(Expression.class);
+    when(second.getCost(options)).thenReturn(Cost.PATH);
+    when(second.apply(pathData)).thenReturn(Result.FAIL);
+    
+    Deque<Expression> children = new LinkedList<Expression>();
+    children.add(second);
+    children.add(first);
+    or.addChildren(children);
+    or.optimise(options);
+    
+    assertEquals(Result.FAIL, or.apply(pathData));
+    InOrder order = inOrder(first, second);
+    order.verify(second).apply(pathData);
+    order.verify(first).apply(pathData);
+  }
+
+  @Test
+  public void testOptimiseNested() throws IOException {
+    Or or = new Or();
+    PathData pathData = mock(PathData.class);
+    FindOptions options = new FindOptions();
+    
+    Expression first = mock(Expression.class);
+    when(first.getCost(options)).thenReturn(Cost.RPC);
+    when(first.apply(pathData)).thenReturn(Result.FAIL);
+    
+    Expression second = mock(Expression.class);
+    when(second.getCost(options)).thenReturn(Cost.STATUS);
+    when(second.apply(pathData)).thenReturn(Result.FAIL);
+    
+    Expression third = mock(Expression.class);
+    when(third.getCost(options)).thenReturn(Cost.PATH);
+    when(third.apply(pathData)).thenReturn(Result.FAIL);
+    
+    Or nested = new Or();
+    Deque<Expression> children = new LinkedList<Expression>();
+    children.add(second);
+    children.add(first);
+    nested.addChildren(children);
+    children.add(third);
+    children.add(nested);
+    or.addChildren(children);
+    or.optimise(options);
+    
+    assertEquals(Result.FAIL, or.apply(pathData));
+    InOrder order = inOrder(first, second, third);
+    order.verify(third).apply(pathData);
+    order.verify(second).apply(pathData);
+    order.verify(first).apply(pathData);
+  }
+
+  @Test
+  public void testOptimiseRetainsActions() throws IOException {
+    Or or = new Or();
+    PathData pathData = mock(PathData.class);
+    FindOptions options = new FindOptions();
+    
+    Expression first = mock(Expression.class);
+    when(first.getCost(options)).thenReturn(Cost.RPC);
+    when(first.apply(pathData)).thenReturn(Result.FAIL);
+    
+    Expression second = mock(Expression.class);
+    when(second.getCost(options)).thenReturn(Cost.ACTION);
+    when(second.apply(pathData)).thenReturn(Result.FAIL);
+    
+    Deque<Expression> children = new LinkedList<Expression>();
+    children.add(second);
+    children.add(first);
+    or.addChildren(children);
+    or.optimise(options);
+    
+    assertEquals(Result.FAIL, or.apply(pathData));
+    InOrder order = inOrder(first, second);
+    order.verify(first).apply(pathData);
+    order.verify(second).apply(pathData);
+  }
+
+  @Test
+  public void testCanMatchDescendants() throws IOException {
+    Or or = new Or();
+    PathData dir = mock(PathData.class);
+    
+    Expression first = mock(Expression.class);
+    when(first.canMatchDescendants(dir)).thenReturn(false);
+    
+    Expression second = mock(Expression.class);
+    when(second.canMatchDescendants(dir)).thenReturn(false);
+    
+    Deque<Expression> children = new LinkedList<Expression>();
+    children.add(second);
+    children.add(first);
+    or.addChildren(children);
+    assertFalse(or.canMatchDescendants(dir));
+    
+    when(second.canMatchDescendants(dir)).thenReturn(true);
+    assertTrue(or.canMatchDescendants(dir));
+  }
 }
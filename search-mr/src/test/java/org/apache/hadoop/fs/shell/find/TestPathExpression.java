@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.shell.find;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.shell.PathData;
+import org.apache.hadoop.fs.shell.find.FindOptions;
+import org.apache.hadoop.fs.shell.find.PathExpression;
+import org.apache.hadoop.fs.shell.find.Result;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestPathExpression extends TestExpression {
+  private static FileSystem fs;
+  private static Configuration conf;
+  private PathExpression path;
+
+  @Before
+  public void setUp() throws IOException {
+    MockFileSystem.reset();
+    fs = new MockFileSystem();
+    conf = fs.getConf();
+
+    path = new PathExpression();
+    addArgument(path, "/data/2013/1?/*.gz");
+    path.initialise(new FindOptions());
+  }
+  
+  @Test
+  public void applyPass() throws IOException{
+    PathData item = new PathData("/data/2013/10/01/part.gz", conf);
+    assertEquals(Result.PASS, path.apply(item));
+  }
+
+  @Test
+  public void applyFail() throws IOException{
+    PathData item = new PathData("/data/2013/09/01/part.gz", conf);
+    assertEquals(Result.FAIL, path.apply(item));
+  }
+
+  @Test
+  public void applyMixedCase() throws IOException{
+    PathData item = new PathData("/DATA/2013/10/01/part.gz", conf);
+    assertEquals(Result.FAIL, path.apply(item));
+  }
+
+  @Test
+  public void canMatchDescendants() throws IOException{
+    assertTrue(path.canMatchDescendants(new PathData("/", conf)));
+    assertTrue(path.canMatchDescendants(new PathData("/data", conf)));
+    assertTrue(path.canMatchDescendants(new PathData("/data/2013", conf)));
+    assertTrue(path.canMatchDescendants(new PathData("/data/2013/11", conf)));
+    assertTrue(path.canMatchDescendants(new PathData("/data/2013/11/30", conf)));
+  }
+
+  @Test
+  public void cannotMatchDescendants() throws IOException{
+    assertFalse(path.canMatchDescendants(new PathData("/user", conf)));
+    assertFalse(path.canMatchDescendants(new PathData("/data/2012", conf)));
+    assertFalse(path.canMatchDescendants(new PathData("/data/2013/09", conf)));
+    assertFalse(path.canMatchDescendants(new PathData("/data/2013/100", conf)));
+  }
+
+  @Test
+  public void ipath() throws IOException{
+    PathExpression.Ipath ipath = new PathExpression.Ipath();
+    addArgument(ipath, "/data/2013/*");
+    ipath.initialise(new FindOptions());
+    assertEquals(Result.PASS, ipath.apply(new PathData("/DATA/2013/10", conf)));
+    assertTrue(ipath.canMatchDescendants(new PathData("/Data", conf)));
+    assertFalse(ipath.canMatchDescendants(new PathData("/Data/2012", conf)));
+  }
+}
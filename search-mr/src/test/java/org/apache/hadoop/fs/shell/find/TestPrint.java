@@ -21,6 +21,7 @@ import static org.junit.Assert.*;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 
@@ -30,10 +31,14 @@ import org.apache.hadoop.fs.shell.find.Print;
 import org.apache.hadoop.fs.shell.find.Result;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
 import org.junit.Before;
 
 public class TestPrint extends TestExpression {
@@ -61,4 +66,29 @@ public class TestPrint extends TestExpression {
     verify(out).println(filename);
     verifyNoMoreInteractions(out);
   }
+
+  @Test
+  public void testPrintstat() throws IOException{
+    Print.Printstat print = new Print.Printstat();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    FindOptions options = new FindOptions();
+    options.setOut(new PrintStream(bytes, false, "UTF-8"));
+    print.initialise(options);
+    
+    String filename = "/one/two/test";
+    FileStatus stat = mock(FileStatus.class);
+    when(stat.getPath()).thenReturn(new Path(filename));
+    when(stat.getLen()).thenReturn(1234L);
+    when(stat.getModificationTime()).thenReturn(1380000000000L);
+    when(stat.getOwner()).thenReturn("user");
+    when(stat.getGroup()).thenReturn("group");
+    when(stat.getPermission()).thenReturn(new FsPermission((short) 0644));
+    ((MockFileSystem) fs).setFileStatus("test", stat);
+    
+    PathData item = new PathData(filename, conf);
+    assertEquals(Result.PASS, print.apply(item));
+    print.finish();
+    assertEquals(filename + "\t1234\t1380000000000\tuser\tgroup\t644" + System.getProperty("line.separator"),
+        bytes.toString("UTF-8"));
+  }
 }
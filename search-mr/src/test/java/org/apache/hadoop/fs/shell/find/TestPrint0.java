@@ -58,7 +58,8 @@ public class TestPrint0 extends TestExpression {
     String filename = "/one/two/test";
     PathData item = new PathData(filename, conf);
     assertEquals(Result.PASS, print.apply(item));
-    verify(out).println(filename + '\0');
+    verify(out).print(filename);
+    verify(out).println('\0');
     verifyNoMoreInteractions(out);
   }
 }
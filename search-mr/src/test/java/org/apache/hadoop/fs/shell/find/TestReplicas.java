@@ -24,6 +24,7 @@ import static org.mockito.Mockito.when;
 import java.io.IOException;
 
 import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.shell.PathData;
 import org.apache.hadoop.fs.shell.find.FindOptions;
 import org.apache.hadoop.fs.shell.find.Replicas;
@@ -110,4 +111,36 @@ public class TestReplicas extends TestExpression {
     assertEquals(Result.FAIL, rep.apply(four));
     assertEquals(Result.FAIL, rep.apply(five));
   }
+
+  @Test
+  public void applyFollowLinkResolvedOnce() throws IOException {
+    FileStatus linkStatus = mock(FileStatus.class);
+    when(linkStatus.isSymlink()).thenReturn(true);
+    when(linkStatus.getSymlink()).thenReturn(new Path("/target"));
+    fs.setFileStatus("link", linkStatus);
+    PathData link = new PathData("link", fs.getConf());
+    FileStatus targetStatus = mock(FileStatus.class);
+    when(targetStatus.getReplication()).thenReturn((short)3);
+    fs.setFileStatus("target", targetStatus);
+
+    FindOptions options = new FindOptions();
+    options.setFollowLink(true);
+    Replicas rep = new Replicas();
+    addArgument(rep, "3");
+    rep.initialise(options);
+    assertEquals(Result.PASS, rep.apply(link));
+
+    // the target has changed, but its status is cached for the rest of the traversal
+    targetStatus = mock(FileStatus.class);
+    when(targetStatus.getReplication()).thenReturn((short)1);
+    fs.setFileStatus("target", targetStatus);
+    assertEquals(Result.PASS, rep.apply(link));
+    
+    Replicas other = new Replicas();
+    addArgument(other, "3");
+    options = new FindOptions();
+    options.setFollowLink(true);
+    other.initialise(options);
+    assertEquals(Result.FAIL, other.apply(link));
+  }
 }
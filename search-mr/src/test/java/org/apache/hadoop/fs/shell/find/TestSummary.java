@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.shell.find;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.shell.PathData;
+import org.apache.hadoop.fs.shell.find.FindOptions;
+import org.apache.hadoop.fs.shell.find.Summary;
+import org.apache.hadoop.fs.shell.find.Result;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSummary extends TestExpression {
+  private MockFileSystem fs;
+  private Configuration conf;
+  private ByteArrayOutputStream bytes;
+  private FindOptions options;
+
+  @Before
+  public void resetMock() throws IOException {
+    MockFileSystem.reset();
+    fs = new MockFileSystem();
+    conf = fs.getConf();
+    bytes = new ByteArrayOutputStream();
+    options = new FindOptions();
+    options.setOut(new PrintStream(bytes, true));
+  }
+  
+  private PathData createItem(String pathname, boolean isDirectory, long length) throws IOException {
+    FileStatus fileStatus = mock(FileStatus.class);
+    when(fileStatus.getPath()).thenReturn(new Path(pathname));
+    when(fileStatus.isDirectory()).thenReturn(isDirectory);
+    when(fileStatus.isFile()).thenReturn(!isDirectory);
+    when(fileStatus.getLen()).thenReturn(length);
+    when(fileStatus.getReplication()).thenReturn((short) 3);
+    fs.setFileStatus(new Path(pathname).getName(), fileStatus);
+    return new PathData(pathname, conf);
+  }
+
+  @Test
+  public void apply() throws IOException {
+    Summary summary = new Summary();
+    summary.initialise(options);
+    assertEquals(Result.PASS, summary.apply(createItem("/dir", true, 0)));
+    assertEquals(Result.PASS, summary.apply(createItem("/dir/one.GZ", false, 100)));
+    assertEquals(Result.PASS, summary.apply(createItem("/dir/two.gz", false, 2000000)));
+    assertEquals(Result.PASS, summary.apply(createItem("/dir/README", false, 0)));
+    summary.finish();
+    
+    String[] lines = bytes.toString().split(System.getProperty("line.separator"));
+    assertEquals(5, lines.length);
+    assertTrue(lines[0].startsWith("TYPE"));
+    assertEquals("(dir) 1 0 0 0 0 0 0 0 0 0", lines[1].replaceAll(" +", " "));
+    assertEquals("(none) 1 0 1 0 0 0 0 0 0 0", lines[2].replaceAll(" +", " "));
+    assertEquals("gz 2 2000100 0 1 0 0 1 0 0 0", lines[3].replaceAll(" +", " "));
+    assertEquals("TOTAL 4 2000100 1 1 0 0 1 0 0 0", lines[4].replaceAll(" +", " "));
+  }
+
+  @Test
+  public void addTotals() throws IOException {
+    FindOptions taskOptions = new FindOptions();
+    taskOptions.setOut(options.getOut());
+    taskOptions.setDeferTotals(true);
+    Summary taskSummary = new Summary();
+    taskSummary.initialise(taskOptions);
+    taskSummary.apply(createItem("/dir/two.gz", false, 2000000));
+    taskSummary.apply(createItem("/dir/README", false, 0));
+    taskSummary.finish();
+    assertEquals(0, bytes.size());
+    ByteArrayOutputStream totals = new ByteArrayOutputStream();
+    taskSummary.writeTotals(new DataOutputStream(totals));
+    
+    Summary summary = new Summary();
+    summary.initialise(options);
+    summary.apply(createItem("/dir", true, 0));
+    summary.apply(createItem("/dir/one.GZ", false, 100));
+    summary.addTotals(new DataInputStream(new ByteArrayInputStream(totals.toByteArray())));
+    summary.finish();
+    
+    String[] lines = bytes.toString().split(System.getProperty("line.separator"));
+    assertEquals(5, lines.length);
+    assertEquals("(dir) 1 0 0 0 0 0 0 0 0 0", lines[1].replaceAll(" +", " "));
+    assertEquals("(none) 1 0 1 0 0 0 0 0 0 0", lines[2].replaceAll(" +", " "));
+    assertEquals("gz 2 2000100 0 1 0 0 1 0 0 0", lines[3].replaceAll(" +", " "));
+    assertEquals("TOTAL 4 2000100 1 1 0 0 1 0 0 0", lines[4].replaceAll(" +", " "));
+  }
+}
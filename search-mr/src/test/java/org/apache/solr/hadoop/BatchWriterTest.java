@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
+import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class BatchWriterTest extends Assert {
+
+  private EmbeddedSolrServer solr;
+  private TaskAttemptContext context;
+  private Counters counters;
+  
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() throws Exception {
+    solr = mock(EmbeddedSolrServer.class);
+    when(solr.add(any(Collection.class))).thenReturn(new UpdateResponse());
+    counters = new Counters();
+    context = mock(TaskAttemptContext.class);
+    when(context.getConfiguration()).thenReturn(new Configuration());
+    when(context.getCounter(anyString(), anyString())).thenAnswer(new Answer<Counter>() {
+      @Override
+      public Counter answer(InvocationOnMock invocation) {
+        Object[] args = invocation.getArguments();
+        return counters.findCounter((String) args[0], (String) args[1]);
+      }
+    });
+  }
+  
+  @Test
+  public void testCloseFlushesCounters() throws Exception {
+    BatchWriter writer = new BatchWriter(solr, 3, context, 0, 10);
+    writer.queueBatch(createDocuments(3));
+    writer.queueBatch(createDocuments(2));
+    assertEquals(0, getCount(SolrCounters.BATCHES_WRITTEN)); // well within the flush interval
+    
+    writer.close(context);
+    assertEquals(2, getCount(SolrCounters.BATCHES_WRITTEN));
+    assertEquals(5, getCount(SolrCounters.DOCUMENTS_WRITTEN));
+  }
+  
+  @Test
+  public void testCloseFlushesCountersOfWriterThreads() throws Exception {
+    BatchWriter writer = new BatchWriter(solr, 3, context, 2, 10);
+    for (int i = 0; i < 10; i++) {
+      writer.queueBatch(createDocuments(3));
+    }
+    
+    writer.close(context); // waits for the writer threads before the final flush
+    assertEquals(10, getCount(SolrCounters.BATCHES_WRITTEN));
+    assertEquals(30, getCount(SolrCounters.DOCUMENTS_WRITTEN));
+  }
+  
+  private long getCount(SolrCounters counter) {
+    return counters.findCounter(SolrCounters.class.getName(), counter.toString()).getValue();
+  }
+  
+  private List<SolrInputDocument> createDocuments(int count) {
+    List<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
+    for (int i = 0; i < count; i++) {
+      SolrInputDocument doc = new SolrInputDocument();
+      doc.addField("id", "doc" + i);
+      docs.add(doc);
+    }
+    return docs;
+  }
+  
+}
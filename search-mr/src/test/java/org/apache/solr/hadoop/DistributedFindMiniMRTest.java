@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.shell.Find;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.util.JarFinder;
+import org.apache.hadoop.util.ToolRunner;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Runs the -mapreduce expression of the find command, and indexes its output with
+ * MapReduceIndexerTool --input-list.
+ */
+public class DistributedFindMiniMRTest extends Assert {
+  
+  private static final String RESOURCES_DIR = "target/test-classes";
+  private static final String DOCUMENTS_DIR = RESOURCES_DIR + "/test-documents";
+  private static final File MINIMR_CONF_DIR = new File(RESOURCES_DIR + "/solr/minimr");
+  
+  private static MiniClusters clusters = null;
+
+  @BeforeClass
+  public static void setupClass() throws Exception {
+    System.setProperty("solr.hdfs.blockcache.enabled", "false");
+    clusters = new MiniClusters(2, 2);
+  }
+
+  @AfterClass
+  public static void teardownClass() throws Exception {
+    System.clearProperty("solr.hdfs.blockcache.enabled");
+    if (clusters != null) {
+      clusters.shutdown();
+      clusters = null;
+    }
+  }
+  
+  @Test
+  public void testFindAndIndex() throws Exception {
+    FileSystem fs = clusters.getDfsCluster().getFileSystem();
+    Path inputDir = fs.makeQualified(new Path("/user/testing/testDistributedFind/input"));
+    Path findDir = fs.makeQualified(new Path("/user/testing/testDistributedFind/find"));
+    Path outDir = fs.makeQualified(new Path("/user/testing/testDistributedFind/output"));
+    fs.delete(inputDir, true);
+    fs.delete(findDir, true);
+    fs.delete(outDir, true);
+    
+    // the client lists two levels below the input dir by default, the map tasks list the rest
+    fs.copyFromLocalFile(new Path(DOCUMENTS_DIR, "sample-statuses-20120906-141433.avro"), 
+        new Path(inputDir, "a/sample-statuses-20120906-141433.avro"));
+    fs.copyFromLocalFile(new Path(DOCUMENTS_DIR, "sample-statuses-20120521-100919.avro"), 
+        new Path(inputDir, "a/b/c/sample-statuses-20120521-100919.avro"));
+    assertTrue(fs.mkdirs(new Path(inputDir, "x/y/z")));
+    fs.create(new Path(inputDir, "x/y/readme.txt")).close();
+    
+    JobConf jobConf = clusters.getMrCluster().createJobConf();
+    jobConf.setMaxMapAttempts(1);
+    jobConf.setJar(JarFinder.getJar(MapReduceIndexerTool.class)); // also holds the find mapper
+    
+    String[] expression = {inputDir.toString(), "-type", "f", "-name", "*.avro"};
+    Set<String> expected = new HashSet<String>(runFind(jobConf, expression));
+    assertEquals(2, expected.size());
+    
+    long bytes = 0;
+    for (String path : expected) {
+      bytes += fs.getFileStatus(new Path(path)).getLen();
+    }
+    
+    // the part files only hold paths, the totals of the client and the tasks are added up on stdout
+    List<String> args = new ArrayList<String>(Arrays.asList(expression));
+    args.addAll(Arrays.asList("-print", "-count", "-mapreduce", findDir.toString()));
+    assertEquals(Arrays.asList(String.format("%12d %12d %18d", 0, 2, bytes)), 
+        runFind(jobConf, args.toArray(new String[args.size()])));
+    assertTrue(fs.exists(new Path(findDir, "part-c-00000")));
+    Set<String> found = new HashSet<String>();
+    int numTaskParts = 0;
+    for (FileStatus part : fs.listStatus(findDir)) {
+      if (part.getPath().getName().startsWith("part-")) {
+        found.addAll(readLines(fs, part.getPath()));
+        if (part.getPath().getName().startsWith("part-m-")) {
+          numTaskParts++;
+        }
+      }
+    }
+    assertTrue(numTaskParts > 0);
+    assertEquals(expected, found);
+    
+    // the directory of part files is the input list of the indexer
+    int shards = 1;
+    String[] toolArgs = new String[] {
+        "--morphline-file=" + RESOURCES_DIR + "/test-morphlines/solrCellDocumentTypes.conf",
+        "--morphline-id=morphline1",
+        "--solr-home-dir=" + MINIMR_CONF_DIR.getAbsolutePath(),
+        "--output-dir=" + outDir.toString(),
+        "--shards=" + shards,
+        "--input-list=" + findDir.toString()
+    };
+    assertEquals(0, ToolRunner.run(jobConf, new MapReduceIndexerTool(), toolArgs));
+    TestUtils.validateSolrServerDocumentCount(
+        MINIMR_CONF_DIR, fs, new Path(outDir, MapReduceIndexerTool.RESULTS_DIR), 2 + 20, shards);
+  }
+  
+  /** Runs the find command with the given arguments and returns the lines it writes to stdout */
+  private List<String> runFind(Configuration conf, String... args) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Find find = new Find();
+    find.setConf(conf);
+    find.out = new PrintStream(bytes, true, "UTF-8");
+    assertEquals(0, find.run(args));
+    List<String> lines = new ArrayList<String>();
+    for (String line : bytes.toString("UTF-8").split("\n")) {
+      if (line.length() > 0) {
+        lines.add(line);
+      }
+    }
+    return lines;
+  }
+  
+  private List<String> readLines(FileSystem fs, Path file) throws IOException {
+    List<String> lines = new ArrayList<String>();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(file), "UTF-8"));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lines.add(line);
+      }
+    } finally {
+      reader.close();
+    }
+    return lines;
+  }
+  
+}
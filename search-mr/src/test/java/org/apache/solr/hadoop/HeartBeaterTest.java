@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.util.Progressable;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HeartBeaterTest extends Assert {
+
+  @Test
+  public void testBurstIssuesOneProgressPerInterval() throws Exception {
+    CountingProgressable progress = new CountingProgressable();
+    HeartBeater heartBeater = new HeartBeater(progress);
+    try {
+      Thread.sleep(500); // let the initial background check pass while no heart beat is needed
+      assertEquals(0, progress.count.get());
+      
+      for (int i = 0; i < 1000; i++) {
+        heartBeater.needHeartBeat();
+        heartBeater.cancelHeartBeat();
+      }
+      assertEquals(1, progress.count.get());
+      
+      Thread.sleep(1100);
+      for (int i = 0; i < 1000; i++) {
+        heartBeater.needHeartBeat();
+        heartBeater.cancelHeartBeat();
+      }
+      assertEquals(2, progress.count.get());
+    } finally {
+      heartBeater.close();
+    }
+  }
+  
+  @Test
+  public void testInstancesShareSchedulerThread() throws Exception {
+    List<HeartBeater> heartBeaters = new ArrayList<HeartBeater>();
+    try {
+      for (int i = 0; i < 10; i++) {
+        heartBeaters.add(new HeartBeater(new CountingProgressable()));
+      }
+      int threads = 0;
+      for (Thread thread : Thread.getAllStackTraces().keySet()) {
+        if (thread.getName().equals(HeartBeater.class.getSimpleName())) {
+          assertTrue(thread.isDaemon());
+          threads++;
+        }
+      }
+      assertEquals(1, threads);
+    } finally {
+      for (HeartBeater heartBeater : heartBeaters) {
+        heartBeater.close();
+      }
+    }
+  }
+  
+  @Test
+  public void testExtraCancelIsIgnored() throws Exception {
+    CountingProgressable progress = new CountingProgressable();
+    HeartBeater heartBeater = new HeartBeater(progress);
+    try {
+      Thread.sleep(500);
+      heartBeater.cancelHeartBeat(); // logs a warning, but must not make the count negative
+      heartBeater.needHeartBeat();
+      assertEquals(1, progress.count.get());
+      heartBeater.cancelHeartBeat();
+    } finally {
+      heartBeater.close();
+    }
+  }
+  
+
+  ///////////////////////////////////////////////////////////////////////////////
+  // Nested classes:
+  ///////////////////////////////////////////////////////////////////////////////
+  private static final class CountingProgressable implements Progressable {
+    
+    private final AtomicInteger count = new AtomicInteger();
+    
+    @Override
+    public void progress() {
+      count.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.solr.schema.IndexSchema;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IndexSchemaCacheTest extends Assert {
+
+  private File solrHomeDir;
+  private File schemaFile;
+  private File libDir;
+  
+  @Before
+  public void setUp() throws IOException {
+    solrHomeDir = new File(System.getProperty("java.io.tmpdir"), getClass().getName() + "-" + System.nanoTime());
+    schemaFile = new File(solrHomeDir, "conf" + File.separator + "schema.xml");
+    FileUtils.writeStringToFile(schemaFile, "<schema name='v1'/>", "UTF-8");
+    libDir = new File(solrHomeDir, "lib");
+    assertTrue(libDir.mkdirs());
+  }
+  
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(solrHomeDir);
+  }
+  
+  @Test
+  public void testSchemaIsParsedOnce() throws IOException {
+    CountingParser parser = new CountingParser();
+    IndexSchema schema = IndexSchemaCache.getIndexSchema(schemaFile, libDir, parser);
+    assertSame(schema, IndexSchemaCache.getIndexSchema(schemaFile, libDir, parser));
+    assertEquals(1, parser.count);
+  }
+  
+  @Test
+  public void testChangedSchemaIsParsedAgain() throws IOException {
+    CountingParser parser = new CountingParser();
+    IndexSchema schema = IndexSchemaCache.getIndexSchema(schemaFile, libDir, parser);
+    String key = IndexSchemaCache.getKey(schemaFile);
+    
+    FileUtils.writeStringToFile(schemaFile, "<schema name='version2'/>", "UTF-8");
+    assertTrue(schemaFile.setLastModified(schemaFile.lastModified() + 10000));
+    assertFalse(key.equals(IndexSchemaCache.getKey(schemaFile)));
+    assertNotSame(schema, IndexSchemaCache.getIndexSchema(schemaFile, libDir, parser));
+    assertEquals(2, parser.count);
+  }
+  
+  @Test
+  public void testSchemaWithPluginsIsNotShared() throws IOException {
+    FileUtils.writeStringToFile(new File(libDir, "plugin.jar"), "", "UTF-8");
+    CountingParser parser = new CountingParser();
+    IndexSchema schema = IndexSchemaCache.getIndexSchema(schemaFile, libDir, parser);
+    assertNotSame(schema, IndexSchemaCache.getIndexSchema(schemaFile, libDir, parser));
+    assertEquals(2, parser.count);
+  }
+  
+
+  ///////////////////////////////////////////////////////////////////////////////
+  // Nested classes:
+  ///////////////////////////////////////////////////////////////////////////////
+  private static final class CountingParser implements Callable<IndexSchema> {
+    
+    private int count = 0;
+    
+    @Override
+    public IndexSchema call() {
+      count++;
+      return mock(IndexSchema.class);
+    }
+  }
+}
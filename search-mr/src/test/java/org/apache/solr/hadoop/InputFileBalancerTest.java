@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InputFileBalancerTest extends Assert {
+
+  @Test
+  public void testLargestFilesFirst() {
+    InputFileBalancer balancer = new InputFileBalancer(100);
+    balancer.add("a", 1);
+    balancer.add("b", 7);
+    balancer.add("c", 3);
+    balancer.add("d", 4);
+    balancer.add("e", 5);
+    assertEquals(5, balancer.getNumFiles());
+    assertFalse(balancer.isOverflowed());
+    List<List<String>> splits = balancer.assign(2);
+    assertEquals(2, splits.size());
+    assertEquals(Arrays.asList("b", "c"), splits.get(0)); // 10 bytes
+    assertEquals(Arrays.asList("e", "d", "a"), splits.get(1)); // 10 bytes
+  }
+  
+  @Test
+  public void testUnknownLengthsDegenerateToRoundRobin() {
+    InputFileBalancer balancer = new InputFileBalancer(100);
+    for (String line : Arrays.asList("a", "b", "c", "d", "e")) {
+      balancer.add(line, -1);
+    }
+    List<List<String>> splits = balancer.assign(3);
+    assertEquals(Arrays.asList("a", "d"), splits.get(0));
+    assertEquals(Arrays.asList("b", "e"), splits.get(1));
+    assertEquals(Arrays.asList("c"), splits.get(2));
+  }
+  
+  @Test
+  public void testMoreSplitsThanFiles() {
+    InputFileBalancer balancer = new InputFileBalancer(100);
+    balancer.add("a", 10);
+    List<List<String>> splits = balancer.assign(3);
+    assertEquals(Arrays.asList("a"), splits.get(0));
+    assertEquals(0, splits.get(1).size());
+    assertEquals(0, splits.get(2).size());
+  }
+  
+  @Test
+  public void testOverflow() {
+    InputFileBalancer balancer = new InputFileBalancer(2);
+    balancer.add("a", 1);
+    balancer.add("b", 1);
+    assertFalse(balancer.isOverflowed());
+    balancer.add("c", 1);
+    assertTrue(balancer.isOverflowed());
+    assertEquals(3, balancer.getNumFiles());
+    try {
+      balancer.assign(2);
+      fail();
+    } catch (IllegalStateException e) {
+      ; // expected
+    }
+  }
+
+}
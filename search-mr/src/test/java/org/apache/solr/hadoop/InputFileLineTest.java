@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InputFileLineTest extends Assert {
+
+  @Test
+  public void testRoundTrip() {
+    FileStatus stats = new FileStatus(1234, false, 3, 64 * 1024 * 1024, 1371075600000L, 0, 
+        new FsPermission((short) 01644), "alice", "staff", new Path("hdfs://host:8020/user/alice/my\tfile.txt"));
+    String line = InputFileLine.format(stats);
+    assertEquals("hdfs://host:8020/user/alice/my\tfile.txt\t1234\t1371075600000\talice\tstaff\t1644", line);
+    assertEquals("hdfs://host:8020/user/alice/my\tfile.txt", InputFileLine.getPath(line));
+    assertEquals(1234, InputFileLine.getLength(line));
+    
+    FileStatus result = InputFileLine.getFileStatus(line);
+    assertEquals(stats.getLen(), result.getLen());
+    assertEquals(stats.getModificationTime(), result.getModificationTime());
+    assertEquals(stats.getOwner(), result.getOwner());
+    assertEquals(stats.getGroup(), result.getGroup());
+    assertEquals(stats.getPermission(), result.getPermission());
+    assertTrue(result.getPermission().getStickyBit());
+    assertEquals(stats.getPath(), result.getPath());
+  }
+  
+  @Test
+  public void testPlainURI() {
+    String line = "hdfs://host:8020/user/alice/file.txt";
+    assertEquals(line, InputFileLine.getPath(line));
+    assertNull(InputFileLine.getFileStatus(line));
+    assertEquals(-1, InputFileLine.getLength(line));
+  }
+  
+  @Test
+  public void testMalformedMetadata() {
+    String line = "hdfs://host:8020/user/alice/file.txt\tfoo\t1\talice\tstaff\t644";
+    assertEquals(line, InputFileLine.getPath(line));
+    assertNull(InputFileLine.getFileStatus(line));
+  }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InputFileManifestTest extends Assert {
+
+  private File tmpDir;
+  private Configuration conf;
+  
+  @Before
+  public void setUp() throws IOException {
+    tmpDir = new File(System.getProperty("java.io.tmpdir"), getClass().getName() + "-" + System.nanoTime());
+    assertTrue(tmpDir.mkdirs());
+    conf = new Configuration();
+  }
+  
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(tmpDir);
+  }
+  
+  @Test
+  public void testIncremental() throws IOException {
+    Path manifestPath = new Path(new File(tmpDir, "manifest.txt").toURI());
+    
+    // first run indexes everything, in path order
+    InputFileManifest manifest = new InputFileManifest(manifestPath, true, newManifestPath(), conf);
+    manifest.add("file:///c\t30\t300\talice\tstaff\t644");
+    manifest.add("file:///a\t10\t100\talice\tstaff\t644");
+    manifest.add("file:///b\t20\t200\talice\tstaff\t644");
+    assertEquals(Arrays.asList("file:///a", "file:///b", "file:///c"), close(manifest));
+    assertEquals(0, manifest.getDeletedOrModifiedFiles().size());
+    assertTrue(manifest.publish(manifestPath));
+    
+    // second run: a is unchanged, b is modified, c is deleted, d is new, e has no metadata
+    manifest = new InputFileManifest(manifestPath, true, newManifestPath(), conf);
+    manifest.add("file:///e");
+    manifest.add("file:///d\t40\t400\talice\tstaff\t644");
+    manifest.add("file:///b\t20\t201\talice\tstaff\t644");
+    manifest.add("file:///a\t10\t100\talice\tstaff\t644");
+    assertEquals(Arrays.asList("file:///b", "file:///d", "file:///e"), close(manifest));
+    assertEquals(Arrays.asList("file:///b", "file:///c"), manifest.getDeletedOrModifiedFiles());
+    assertTrue(manifest.publish(manifestPath));
+    assertFalse(new File(tmpDir, "manifest.txt.old").exists());
+    
+    // non-incremental run ignores the previous manifest
+    manifest = new InputFileManifest(manifestPath, false, newManifestPath(), conf);
+    manifest.add("file:///a\t10\t100\talice\tstaff\t644");
+    assertEquals(Arrays.asList("file:///a"), close(manifest));
+    assertEquals(0, manifest.getDeletedOrModifiedFiles().size());
+  }
+  
+  @Test
+  public void testUnsortedPreviousManifest() throws IOException {
+    File manifestFile = new File(tmpDir, "manifest.txt");
+    FileUtils.writeLines(manifestFile, "UTF-8", Arrays.asList(
+        "file:///b\t20\t200\talice\tstaff\t644", 
+        "file:///a\t10\t100\talice\tstaff\t644", 
+        "file:///c\t30\t300\talice\tstaff\t644"));
+    Path manifestPath = new Path(manifestFile.toURI());
+    InputFileManifest manifest = new InputFileManifest(manifestPath, true, newManifestPath(), conf);
+    manifest.add("file:///c\t30\t300\talice\tstaff\t644");
+    manifest.add("file:///a\t10\t101\talice\tstaff\t644");
+    assertEquals(Arrays.asList("file:///a"), close(manifest));
+    assertEquals(Arrays.asList("file:///a", "file:///b"), manifest.getDeletedOrModifiedFiles());
+    assertTrue(manifest.publish(manifestPath));
+    assertEquals(Arrays.asList(
+        "file:///a\t10\t101\talice\tstaff\t644", 
+        "file:///c\t30\t300\talice\tstaff\t644"), 
+        FileUtils.readLines(manifestFile, "UTF-8"));
+  }
+  
+  @Test
+  public void testBackupOfInterruptedPublish() throws IOException {
+    // the previous run died after moving its previous manifest aside
+    File backupFile = new File(tmpDir, "manifest.txt.old");
+    FileUtils.writeLines(backupFile, "UTF-8", Arrays.asList("file:///a\t10\t100\talice\tstaff\t644"));
+    Path manifestPath = new Path(new File(tmpDir, "manifest.txt").toURI());
+    InputFileManifest manifest = new InputFileManifest(manifestPath, true, newManifestPath(), conf);
+    manifest.add("file:///a\t10\t100\talice\tstaff\t644");
+    assertEquals(0, close(manifest).size());
+    assertEquals(0, manifest.getDeletedOrModifiedFiles().size());
+    assertTrue(manifest.publish(manifestPath));
+    assertTrue(new File(tmpDir, "manifest.txt").exists());
+    assertFalse(backupFile.exists());
+  }
+  
+  @Test
+  public void testManifestIsKeptWhileDeletesArePending() throws IOException {
+    File manifestFile = new File(tmpDir, "manifest.txt");
+    List<String> previousLines = Arrays.asList(
+        "file:///a\t10\t100\talice\tstaff\t644", 
+        "file:///b\t20\t200\talice\tstaff\t644");
+    FileUtils.writeLines(manifestFile, "UTF-8", previousLines);
+    MapReduceIndexerTool.Options options = new MapReduceIndexerTool.Options();
+    options.manifest = new Path(manifestFile.toURI());
+    options.outputDir = new Path(tmpDir.toURI());
+    
+    // b is deleted and c is new, but without --go-live nobody deletes the document of b
+    InputFileManifest manifest = new InputFileManifest(options.manifest, true, newManifestPath(), conf);
+    manifest.add("file:///a\t10\t100\talice\tstaff\t644");
+    manifest.add("file:///c\t30\t300\talice\tstaff\t644");
+    assertEquals(Arrays.asList("file:///c"), close(manifest));
+    List<String> obsoleteIds = manifest.getDeletedOrModifiedFiles();
+    assertEquals(Arrays.asList("file:///b"), obsoleteIds);
+    assertTrue(MapReduceIndexerTool.isDeletePending(obsoleteIds, options));
+    assertTrue(MapReduceIndexerTool.publishManifest(manifest, obsoleteIds, options));
+    assertEquals(previousLines, FileUtils.readLines(manifestFile, "UTF-8"));
+    
+    // a dry run doesn't delete either
+    options.goLive = true;
+    options.isDryRun = true;
+    assertTrue(MapReduceIndexerTool.isDeletePending(obsoleteIds, options));
+    assertTrue(MapReduceIndexerTool.publishManifest(manifest, obsoleteIds, options));
+    assertEquals(previousLines, FileUtils.readLines(manifestFile, "UTF-8"));
+    
+    // --go-live deletes the document of b, so the new manifest replaces the previous one
+    options.isDryRun = false;
+    assertFalse(MapReduceIndexerTool.isDeletePending(obsoleteIds, options));
+    assertTrue(MapReduceIndexerTool.publishManifest(manifest, obsoleteIds, options));
+    assertEquals(Arrays.asList(
+        "file:///a\t10\t100\talice\tstaff\t644", 
+        "file:///c\t30\t300\talice\tstaff\t644"), 
+        FileUtils.readLines(manifestFile, "UTF-8"));
+  }
+  
+  private List<String> close(InputFileManifest manifest) throws IOException {
+    final List<String> paths = new ArrayList<String>();
+    manifest.close(new InputFileManifest.Listener() {
+      @Override
+      public void add(String line) {
+        paths.add(InputFileLine.getPath(line));
+      }
+    });
+    return paths;
+  }
+  
+  private Path newManifestPath() {
+    return new Path(new File(tmpDir, "new-manifest-" + System.nanoTime() + ".txt").toURI());
+  }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JobTimelineTest extends Assert {
+
+  @Test
+  public void testCriticalAndSlowestTasks() throws IOException {
+    JobTimeline timeline = new JobTimeline(1000);
+    timeline.addPhase("listing", 1000, 1500);
+    JobTimeline.Phase phase = timeline.addPhase("indexing", 1500, 10000);
+    phase.addTask(JobTimeline.MAP, "task_m_000000", 1600, 2600, "COMPLETE", "Indexing input split part-r-00000");
+    phase.addTask(JobTimeline.MAP, "task_m_000001", 1600, 5600, "COMPLETE", "Indexing input split part-r-00001");
+    phase.addTask(JobTimeline.MAP, "task_m_000002", 1700, 3700, "COMPLETE", "Indexing input split part-r-00002");
+    phase.addTask(JobTimeline.MAP, "task_m_000003", 0, 0, "PENDING", ""); // never ran
+    phase.addTask(JobTimeline.REDUCE, "task_r_000000", 2000, 9900, "COMPLETE", "Done");
+    phase.addTask(JobTimeline.REDUCE, "task_r_000001", 2000, 8000, "COMPLETE", "Done").addCounter("g", "c", 7);
+    
+    StringWriter json = new StringWriter();
+    timeline.writeJson(json);
+    String str = json.toString();
+    assertTrue(str, str.contains("\"millis\" : 9000"));
+    assertTrue(str, str.contains("\"tasks\" : 3"));
+    assertTrue(str, str.contains("\"medianMillis\" : 2000"));
+    assertTrue(str, str.contains("\"maxMillis\" : 4000"));
+    assertTrue(str, str.contains("\"skew\" : 2.00"));
+    assertTrue(str, str.contains("\"criticalTask\" : \"task_m_000001\""));
+    assertTrue(str, str.contains("\"criticalTask\" : \"task_r_000000\""));
+    assertTrue(str, str.contains("\"counters\" : { \"g\" : { \"c\" : 7 } }"));
+    assertFalse(str, str.contains("task_m_000003"));
+    assertTrue(str, str.indexOf("{ \"id\" : \"task_m_000001\"") < str.indexOf("{ \"id\" : \"task_m_000002\""));
+    assertTrue(str, str.indexOf("{ \"id\" : \"task_m_000002\"") < str.indexOf("{ \"id\" : \"task_m_000000\""));
+    
+    StringWriter html = new StringWriter();
+    timeline.writeHtml(html);
+    str = html.toString();
+    assertTrue(str, str.contains("<tr class=\"critical\"><td>&nbsp;&nbsp;&nbsp;&nbsp;task_m_000001</td>"));
+    assertTrue(str, str.contains("Indexing input split part-r-00001"));
+  }
+  
+  @Test
+  public void testQuote() {
+    assertEquals("null", JobTimeline.quote(null));
+    assertEquals("\"a\\\"b\\\\c\\nd\\u0001\"", JobTimeline.quote("a\"b\\c\nd\u0001"));
+  }
+  
+}
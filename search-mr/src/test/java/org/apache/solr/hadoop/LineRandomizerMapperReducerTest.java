@@ -20,7 +20,6 @@ import java.io.IOException;
 import java.util.Arrays;
 
 import org.apache.hadoop.io.LongWritable;
-import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mrunit.mapreduce.MapReduceDriver;
 import org.apache.hadoop.mrunit.types.Pair;
@@ -30,7 +29,7 @@ import org.junit.Test;
 
 public class LineRandomizerMapperReducerTest extends Assert {
 
-  private MapReduceDriver<LongWritable, Text, LongWritable, Text, Text, NullWritable> mapReduceDriver;
+  private MapReduceDriver<LongWritable, Text, LongWritable, Text, LongWritable, Text> mapReduceDriver;
 
   @Before
   public void setUp() {
@@ -42,7 +41,7 @@ public class LineRandomizerMapperReducerTest extends Assert {
   @Test
   public void testMapReduce1Item() throws IOException {
     mapReduceDriver.withInput(new LongWritable(0), new Text("hello"));
-    mapReduceDriver.withOutput(new Text("hello"), NullWritable.get());
+    mapReduceDriver.withOutput(new LongWritable(0), new Text("hello"));
     mapReduceDriver.runTest();
   }
   
@@ -53,8 +52,8 @@ public class LineRandomizerMapperReducerTest extends Assert {
         new Pair<LongWritable, Text>(new LongWritable(1), new Text("world"))
         ));
     mapReduceDriver.withAllOutput(Arrays.asList(
-        new Pair<Text, NullWritable>(new Text("world"), NullWritable.get()),
-        new Pair<Text, NullWritable>(new Text("hello"), NullWritable.get())
+        new Pair<LongWritable, Text>(new LongWritable(0), new Text("world")),
+        new Pair<LongWritable, Text>(new LongWritable(1), new Text("hello"))
         ));
     mapReduceDriver.runTest();
   }
@@ -67,9 +66,9 @@ public class LineRandomizerMapperReducerTest extends Assert {
         new Pair<LongWritable, Text>(new LongWritable(2), new Text("nadja"))
         ));
     mapReduceDriver.withAllOutput(Arrays.asList(
-        new Pair<Text, NullWritable>(new Text("nadja"), NullWritable.get()),
-        new Pair<Text, NullWritable>(new Text("world"), NullWritable.get()),
-        new Pair<Text, NullWritable>(new Text("hello"), NullWritable.get())
+        new Pair<LongWritable, Text>(new LongWritable(0), new Text("nadja")),
+        new Pair<LongWritable, Text>(new LongWritable(1), new Text("world")),
+        new Pair<LongWritable, Text>(new LongWritable(2), new Text("hello"))
         ));
     mapReduceDriver.runTest();
   }
@@ -83,10 +82,10 @@ public class LineRandomizerMapperReducerTest extends Assert {
         new Pair<LongWritable, Text>(new LongWritable(3), new Text("basti"))
         ));
     mapReduceDriver.withAllOutput(Arrays.asList(
-        new Pair<Text, NullWritable>(new Text("nadja"), NullWritable.get()),
-        new Pair<Text, NullWritable>(new Text("world"), NullWritable.get()),
-        new Pair<Text, NullWritable>(new Text("basti"), NullWritable.get()),
-        new Pair<Text, NullWritable>(new Text("hello"), NullWritable.get())
+        new Pair<LongWritable, Text>(new LongWritable(0), new Text("nadja")),
+        new Pair<LongWritable, Text>(new LongWritable(1), new Text("world")),
+        new Pair<LongWritable, Text>(new LongWritable(2), new Text("basti")),
+        new Pair<LongWritable, Text>(new LongWritable(3), new Text("hello"))
         ));
     mapReduceDriver.runTest();
   }
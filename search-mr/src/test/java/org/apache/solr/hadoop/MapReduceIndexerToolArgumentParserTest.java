@@ -435,6 +435,36 @@ public class MapReduceIndexerToolArgumentParserTest extends Assert {
     assertEmptySystemErrAndEmptySystemOut();
   }
 
+  @Test
+  public void testArgsIncrementalWithManifestOk() {
+    String[] args = new String[] {
+        "--input-list", "file:///tmp",
+        "--morphline-file", MORPHLINE_FILE,
+        "--output-dir", "file:/tmp/foo",
+        "--solr-home-dir", SOLR_HOME_DIR, 
+        "--shards", "1",
+        "--manifest", "file:/tmp/manifest.txt",
+        "--incremental",
+        };
+    assertNull(parser.parseArgs(args, conf, opts));
+    assertEquals(new Path("file:/tmp/manifest.txt"), opts.manifest);
+    assertTrue(opts.isIncremental);
+    assertEmptySystemErrAndEmptySystemOut();
+  }
+
+  @Test
+  public void testArgsIncrementalNoManifest() {
+    String[] args = new String[] {
+        "--input-list", "file:///tmp",
+        "--morphline-file", MORPHLINE_FILE,
+        "--output-dir", "file:/tmp/foo",
+        "--solr-home-dir", SOLR_HOME_DIR, 
+        "--shards", "1",
+        "--incremental",
+        };
+    assertArgumentParserException(args);
+  }
+
   private void assertEmptySystemErrAndEmptySystemOut() {
     assertEquals(0, bout.toByteArray().length);
     assertEquals(0, berr.toByteArray().length);
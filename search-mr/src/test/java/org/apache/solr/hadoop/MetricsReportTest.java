@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.solr.hadoop.morphline.MetricsReport;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class MetricsReportTest extends Assert {
+
+  private File tmpDir;
+  private Configuration conf;
+  
+  @Before
+  public void setUp() throws IOException {
+    tmpDir = new File(System.getProperty("java.io.tmpdir"), getClass().getName() + "-" + System.nanoTime());
+    assertTrue(tmpDir.mkdirs());
+    conf = new Configuration();
+  }
+  
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(tmpDir);
+  }
+  
+  @Test
+  public void testSnapshotsAreMerged() throws IOException {
+    Path metricsDir = new Path(new File(tmpDir, "metrics").toURI());
+    
+    MetricRegistry registry1 = new MetricRegistry();
+    registry1.counter("myCounter").inc(3);
+    registry1.timer("fastCommand").update(2, TimeUnit.MILLISECONDS);
+    registry1.timer("slowCommand").update(100, TimeUnit.MILLISECONDS);
+    MetricsReport.writeSnapshot(registry1, new Path(metricsDir, "task_1"), conf);
+    
+    MetricRegistry registry2 = new MetricRegistry();
+    registry2.counter("myCounter").inc(4);
+    registry2.timer("slowCommand").update(300, TimeUnit.MILLISECONDS);
+    MetricsReport.writeSnapshot(registry2, new Path(metricsDir, "task_2"), conf);
+    
+    File report = new File(tmpDir, "report.txt");
+    assertEquals(2, MetricsReport.aggregate(metricsDir, new Path(report.toURI()), conf));
+    
+    List<String> lines = FileUtils.readLines(report, "UTF-8");
+    assertEquals(4, lines.size());
+    assertTrue(lines.get(0).startsWith("#"));
+    String[] slow = lines.get(1).split("\t");
+    assertEquals("timer", slow[0]);
+    assertEquals("slowCommand", slow[1]);
+    assertEquals(2, Long.parseLong(slow[2]));
+    assertEquals(100.0, Double.parseDouble(slow[3]), 0.001);
+    assertEquals(300.0, Double.parseDouble(slow[4]), 0.001);
+    assertEquals(200.0, Double.parseDouble(slow[5]), 0.001);
+    String[] fast = lines.get(2).split("\t");
+    assertEquals("fastCommand", fast[1]);
+    String[] counter = lines.get(3).split("\t");
+    assertEquals("counter", counter[0]);
+    assertEquals(7, Long.parseLong(counter[2]));
+  }
+  
+  @Test
+  public void testRatesOfConcurrentTasksAreSummed() throws IOException {
+    File metricsDir = new File(tmpDir, "metrics");
+    String header = "#type\tname\tcount\tmin\tmax\tmean\tp50\tp95\tp99\tmeanRate\tm1Rate";
+    FileUtils.writeLines(new File(metricsDir, "task_1"), "UTF-8", Arrays.asList(header, 
+        "meter\tdocs\t100\t0\t0\t0\t0\t0\t0\t10.0\t12.0"));
+    FileUtils.writeLines(new File(metricsDir, "task_2"), "UTF-8", Arrays.asList(header, 
+        "meter\tdocs\t300\t0\t0\t0\t0\t0\t0\t30.0\t28.0"));
+    
+    File report = new File(tmpDir, "report.txt");
+    assertEquals(2, MetricsReport.aggregate(new Path(metricsDir.toURI()), new Path(report.toURI()), conf));
+    
+    List<String> lines = FileUtils.readLines(report, "UTF-8");
+    assertEquals(2, lines.size());
+    String[] docs = lines.get(1).split("\t");
+    assertEquals("docs", docs[1]);
+    assertEquals(400, Long.parseLong(docs[2]));
+    assertEquals(40.0, Double.parseDouble(docs[9]), 0.001);
+    assertEquals(40.0, Double.parseDouble(docs[10]), 0.001);
+  }
+  
+  @Test
+  public void testMissingMetricsDir() throws IOException {
+    Path metricsDir = new Path(new File(tmpDir, "metrics").toURI());
+    assertEquals(0, MetricsReport.aggregate(metricsDir, new Path(new File(tmpDir, "report.txt").toURI()), conf));
+  }
+
+}
@@ -29,12 +29,10 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.FileUtil;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.hdfs.MiniDFSCluster;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.MiniMRCluster;
 import org.apache.hadoop.mapreduce.Job;
-import org.apache.hadoop.security.authorize.ProxyUsers;
 import org.apache.hadoop.util.JarFinder;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.solr.handler.extraction.ExtractingParams;
@@ -57,6 +55,7 @@ public class MorphlineBasicMiniMRTest extends Assert {
   
   private static final String SEARCH_ARCHIVES_JAR = JarFinder.getJar(MapReduceIndexerTool.class);
 
+  private static MiniClusters clusters = null;
   private static MiniDFSCluster dfsCluster = null;
   private static MiniMRCluster mrCluster = null;
   private static int numRuns = 0;
@@ -84,52 +83,19 @@ public class MorphlineBasicMiniMRTest extends Assert {
 
   @BeforeClass
   public static void setupClass() throws Exception {
-    if (System.getProperty("hadoop.log.dir") == null) {
-      System.setProperty("hadoop.log.dir", "target");
-    }
-    int taskTrackers = 2;
-    int dataNodes = 2;
-//    String proxyUser = System.getProperty("user.name");
-//    String proxyGroup = "g";
-//    StringBuilder sb = new StringBuilder();
-//    sb.append("127.0.0.1,localhost");
-//    for (InetAddress i : InetAddress.getAllByName(InetAddress.getLocalHost().getHostName())) {
-//      sb.append(",").append(i.getCanonicalHostName());
-//    }
-    
     System.setProperty("solr.hdfs.blockcache.enabled", "false");
-
-    JobConf conf = new JobConf();
-    conf.set("dfs.block.access.token.enable", "false");
-    conf.set("dfs.permissions", "true");
-    conf.set("hadoop.security.authentication", "simple");
-
-    dfsCluster = new MiniDFSCluster(conf, dataNodes, true, null);
-    FileSystem fileSystem = dfsCluster.getFileSystem();
-    fileSystem.mkdirs(new Path("/tmp"));
-    fileSystem.mkdirs(new Path("/user"));
-    fileSystem.mkdirs(new Path("/hadoop/mapred/system"));
-    fileSystem.setPermission(new Path("/tmp"), FsPermission.valueOf("-rwxrwxrwx"));
-    fileSystem.setPermission(new Path("/user"), FsPermission.valueOf("-rwxrwxrwx"));
-    fileSystem.setPermission(new Path("/hadoop/mapred/system"), FsPermission.valueOf("-rwx------"));
-    String nnURI = fileSystem.getUri().toString();
-    int numDirs = 1;
-    String[] racks = null;
-    String[] hosts = null;
-
-    mrCluster = new MiniMRCluster(0, 0, taskTrackers, nnURI, numDirs, racks, hosts, null, conf);
-    ProxyUsers.refreshSuperUserGroupsConfiguration(conf);
+    clusters = new MiniClusters(2, 2);
+    dfsCluster = clusters.getDfsCluster();
+    mrCluster = clusters.getMrCluster();
   }
 
   @AfterClass
   public static void teardownClass() throws Exception {
     System.clearProperty("solr.hdfs.blockcache.enabled");
-    if (mrCluster != null) {
-      mrCluster.shutdown();
+    if (clusters != null) {
+      clusters.shutdown();
+      clusters = null;
       mrCluster = null;
-    }
-    if (dfsCluster != null) {
-      dfsCluster.shutdown();
       dfsCluster = null;
     }
   }
@@ -304,6 +270,9 @@ public class MorphlineBasicMiniMRTest extends Assert {
       assertEquals("Invalid counter " + SolrRecordWriter.class.getName() + "." + SolrCounters.DOCUMENTS_WRITTEN,
           count, job.getCounters().findCounter(SolrCounters.class.getName(), SolrCounters.DOCUMENTS_WRITTEN.toString()).getValue());
     }
+    assertTrue(fs.exists(new Path(outDir, JobTimeline.TIMELINE_JSON)));
+    assertTrue(fs.exists(new Path(outDir, JobTimeline.TIMELINE_HTML)));
+    assertTrue(tool.timeline.getPhases().size() >= 3); // listing, randomization, indexing
     
     // Check the output is as expected
     outDir = new Path(outDir, MapReduceIndexerTool.RESULTS_DIR);
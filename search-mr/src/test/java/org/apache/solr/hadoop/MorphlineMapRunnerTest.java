@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.solr.hadoop.morphline.MorphlineMapRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.cloudera.cdk.morphline.base.FaultTolerance;
+import com.cloudera.cdk.morphline.solr.DocumentLoader;
+
+public class MorphlineMapRunnerTest extends MRUnitBase {
+
+  private static final String PREFIX = MorphlineMapRunner.class.getName();
+  
+  private Configuration config;
+  private Counters counters;
+  private Mapper.Context context;
+  
+  @Before
+  public void setUp() {
+    config = new Configuration();
+    config.set(MorphlineMapRunner.MORPHLINE_FILE_PARAM, RESOURCES_DIR + "/test-morphlines/loadSolrOnly.conf");
+    config.setBoolean(MorphlineMapRunner.DISABLE_FILE_OPEN, true); // the files don't exist
+    counters = new Counters();
+    context = mock(Mapper.Context.class);
+    when(context.getCounter(anyString(), anyString())).thenAnswer(new Answer<Counter>() {
+      @Override
+      public Counter answer(InvocationOnMock invocation) {
+        Object[] args = invocation.getArguments();
+        return counters.findCounter((String) args[0], (String) args[1]);
+      }
+    });
+  }
+  
+  @Test
+  public void testCountersAreKeyedByDocumentType() throws Exception {
+    MorphlineMapRunner runner = createRunner();
+    map(runner, "a.txt", 10);
+    map(runner, "b.txt", 20);
+    map(runner, "c.csv", 5);
+    runner.cleanup();
+    
+    assertEquals(2, getCount("filesByMimeType", ".txt"));
+    assertEquals(30, getCount("fileBytesByMimeType", ".txt"));
+    assertEquals(2, getCount("docsByMimeType", ".txt"));
+    assertEquals(1, getCount("filesByMimeType", ".csv"));
+    assertEquals(5, getCount("fileBytesByMimeType", ".csv"));
+    assertEquals(1, getCount("docsByMimeType", ".csv"));
+    assertEquals(0, getCount("failuresByMimeType", ".txt"));
+  }
+  
+  @Test
+  public void testTypesBeyondMaximumAreFolded() throws Exception {
+    config.setInt(MorphlineMapRunner.MAX_DOCUMENT_TYPES, 2);
+    MorphlineMapRunner runner = createRunner();
+    map(runner, "a.txt", 1);
+    map(runner, "b.csv", 2);
+    map(runner, "c.json", 4);
+    map(runner, "d.xml", 8);
+    map(runner, "e.txt", 16); // a known type is still counted separately
+    map(runner, "noextension", 32);
+    runner.cleanup();
+    
+    assertEquals(2, getCount("filesByMimeType", ".txt"));
+    assertEquals(1, getCount("filesByMimeType", ".csv"));
+    assertEquals(3, getCount("filesByMimeType", "other"));
+    assertEquals(4 + 8 + 32, getCount("fileBytesByMimeType", "other"));
+    assertEquals(3, getCount("docsByMimeType", "other"));
+    Set<String> types = new HashSet<String>();
+    for (Counter counter : counters.getGroup(PREFIX + ".filesByMimeType")) {
+      types.add(counter.getName());
+    }
+    assertEquals(new HashSet<String>(Arrays.asList(".txt", ".csv", "other")), types);
+  }
+  
+  @Test
+  public void testFailuresBeforeOpenAreCountedAsUnknown() throws Exception {
+    config.setBoolean(FaultTolerance.IS_PRODUCTION_MODE, true);
+    MorphlineMapRunner runner = createRunner();
+    map(runner, "a.txt", 10);
+    runner.map("hdfs://localhost/not a uri", config, context);
+    runner.cleanup();
+    
+    assertEquals(1, getCount("filesByMimeType", ".txt"));
+    assertEquals(1, getCount("filesByMimeType", "unknown"));
+    assertEquals(1, getCount("failuresByMimeType", "unknown"));
+    assertEquals(0, getCount("fileBytesByMimeType", "unknown"));
+    assertEquals(1, counters.findCounter(PREFIX + ".errors", IllegalArgumentException.class.getName()).getValue());
+  }
+  
+  private MorphlineMapRunner createRunner() throws IOException {
+    return new MorphlineMapRunner(config, mock(DocumentLoader.class), RESOURCES_DIR + "/solr/mrunit");
+  }
+  
+  /** Maps an input line that carries the file metadata, so the file system isn't asked for it */
+  private void map(MorphlineMapRunner runner, String name, long length) throws IOException {
+    Path path = new Path("hdfs://localhost/" + DOCUMENTS_DIR + "/" + name);
+    FileStatus stats = new FileStatus(length, false, 1, 1024, 0, 0, FsPermission.getDefault(), "user", "group", path);
+    runner.map(InputFileLine.format(stats), config, context);
+  }
+  
+  private long getCount(String group, String name) {
+    return counters.findCounter(PREFIX + "." + group, name).getValue();
+  }
+}
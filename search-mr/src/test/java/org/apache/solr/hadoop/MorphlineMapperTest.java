@@ -55,4 +55,24 @@ public class MorphlineMapperTest extends MRUnitBase {
       System.out.println(p.getSecond());
     }
   }
+  
+  @Test
+  public void testMapperReusesCompiledMorphlineWithJvmReuse() throws Exception {
+    int numResults = -1;
+    for (int i = 0; i < 2; i++) { // second task reuses morphline of first task
+      MapDriver<LongWritable, Text, Text, SolrInputDocumentWritable> mapDriver = MapDriver.newMapDriver(new MorphlineMapper());
+      Configuration config = mapDriver.getConfiguration();
+      setupHadoopConfig(config);
+      config.setInt("mapred.job.reuse.jvm.num.tasks", -1);
+      mapDriver
+        .withCacheArchive(solrHomeZip.getAbsolutePath())
+        .withInput(new LongWritable(0L), new Text("hdfs://localhost/" + DOCUMENTS_DIR + "/sample-statuses-20120906-141433.avro"));
+      List<Pair<Text, SolrInputDocumentWritable>> result = mapDriver.run();
+      assertTrue(result.size() > 0);
+      if (numResults >= 0) {
+        assertEquals(numResults, result.size()); // documents go to the context of the current task
+      }
+      numResults = result.size();
+    }
+  }
 }
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.hadoop;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Job;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SolrOutputFormatTest extends Assert {
+
+  private static final File SOLR_HOME_DIR = new File(MRUnitBase.RESOURCES_DIR + "/solr/mrunit");
+  
+  @Test
+  public void testSolrHomeZipIsDeterministic() throws IOException {
+    File zip1 = SolrOutputFormat.createSolrHomeZip(SOLR_HOME_DIR);
+    File zip2 = SolrOutputFormat.createSolrHomeZip(SOLR_HOME_DIR);
+    try {
+      assertTrue(FileUtils.contentEquals(zip1, zip2));
+      List<String> names = new ArrayList<String>();
+      ZipFile zipFile = new ZipFile(zip1);
+      try {
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+          names.add(entries.nextElement().getName());
+        }
+      } finally {
+        zipFile.close();
+      }
+      assertTrue(names.toString(), names.contains(File.separator + "conf" + File.separator + "solrconfig.xml"));
+    } finally {
+      zip1.delete();
+      zip2.delete();
+    }
+  }
+  
+  @Test
+  public void testSolrHomeZipIsReusedAcrossJobs() throws IOException {
+    File zip = SolrOutputFormat.createSolrHomeZip(SOLR_HOME_DIR);
+    Job job1 = Job.getInstance(new Configuration());
+    Job job2 = Job.getInstance(new Configuration());
+    Path zipPath = null;
+    try {
+      SolrOutputFormat.addSolrConfToDistributedCache(job1, zip);
+      zipPath = new Path(job1.getConfiguration().get(SolrOutputFormat.SETUP_OK));
+      FileSystem fs = FileSystem.get(job1.getConfiguration());
+      assertTrue(fs.exists(zipPath));
+      long modificationTime = fs.getFileStatus(zipPath).getModificationTime();
+      
+      SolrOutputFormat.addSolrConfToDistributedCache(job2, zip);
+      assertEquals(SolrOutputFormat.getZipName(job1.getConfiguration()), 
+          SolrOutputFormat.getZipName(job2.getConfiguration()));
+      assertEquals(zipPath.toString(), job2.getConfiguration().get(SolrOutputFormat.SETUP_OK));
+      assertEquals(modificationTime, fs.getFileStatus(zipPath).getModificationTime()); // not uploaded again
+    } finally {
+      zip.delete();
+      if (zipPath != null) {
+        FileSystem.get(job1.getConfiguration()).delete(zipPath, false);
+      }
+    }
+  }
+  
+}